@@ -120,6 +120,9 @@ public abstract class AbstractAction implements WebExecutable {
         if (errors == null) {
             errors = new FormErrors();
         }
+        if (errors.getLocale() == null) {
+            errors.setLocale(request.getLocale());
+        }
         // Add the error packet to the request for the signin page to pick up
         request.setAttribute(WF4JScopeVariable.error_list.name(), errors);
         // Build up the page with the same arguments as before
@@ -147,6 +150,9 @@ public abstract class AbstractAction implements WebExecutable {
         if (errors == null) {
             errors = new FormErrors();
         }
+        if (errors.getLocale() == null) {
+            errors.setLocale(request.getLocale());
+        }
         // Add the error packet to the request for the signin page to pick up
         request.setAttribute(WF4JScopeVariable.error_list.name(), errors);
         // Build up the page with the same arguments as before
@@ -0,0 +1,243 @@
+package com.socotech.wf4j;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * AbstractChunkedUploadAction.java
+ * <p/>
+ * Accepts a large file as a series of numbered chunks, so a client on a flaky connection only resends the chunks that did not arrive.  Each request names the upload and the
+ * total number of chunks with the <code>uploadId</code> and <code>chunks</code> parameters.  A request that also names a <code>chunk</code> index carries the content of that
+ * chunk as its body; a request without one only asks for status.
+ * <p/>
+ * Chunks are kept in a {@link ChunkStore}, under a key scoped to the session, until every chunk is received.  The chunks are then assembled and the file is bound to the file property of the form, exactly as a
+ * multipart upload would be, before the form is validated and handled.  Until then, each request is answered with the status of the upload:
+ * <pre>
+ * {"uploadId": "abc", "chunks": 4, "received": [0, 1, 3], "missing": [2], "complete": false}
+ * </pre>
+ * Other request parameters, i.e. in the query string, are bound as usual.  The optional <code>fileName</code> and <code>contentType</code> parameters describe the file.
+ */
+public abstract class AbstractChunkedUploadAction extends AsynchronousFormAction {
+
+    /**
+     * Store the chunk carried by this request and, once every chunk is received, bind the assembled file to the form object
+     *
+     * @param request incoming HTTP request
+     * @param o       form object
+     * @param errors  error packet
+     * @throws Exception if unhandled exceptions occur while binding
+     */
+    @Override
+    protected void bindFormObject(HttpServletRequest request, Object o, FormErrors errors) throws Exception {
+        super.bindFormObject(request, o, errors);
+        String uploadId = request.getParameter(UPLOAD_ID);
+        int chunks = NumberUtils.toInt(request.getParameter(CHUNKS), -1);
+        if (!ChunkStore.isValidId(uploadId)) {
+            errors.putMessage(UPLOAD_ID, Messages.UPLOAD_ID);
+            return;
+        } else if (chunks < 1 || chunks > MAX_CHUNKS) {
+            errors.putMessage(CHUNKS, Messages.UPLOAD_CHUNKS, String.valueOf(MAX_CHUNKS));
+            return;
+        }
+        Form form = this.getClass().getAnnotation(Form.class);
+        UploadLimits uploads = this.getUploadLimits(request, form);
+        String property = this.getFileProperty();
+        String contentType = request.getParameter(CONTENT_TYPE);
+        ChunkStore store = this.getChunkStore(request);
+        String key = this.getStoreKey(request, uploadId);
+        if (request.getParameter(CHUNK) != null) {
+            int chunk = NumberUtils.toInt(request.getParameter(CHUNK), -1);
+            if (chunk < 0 || chunk >= chunks) {
+                errors.putMessage(CHUNK, Messages.UPLOAD_CHUNK, String.valueOf(chunks - 1));
+                return;
+            }
+            if (contentType != null) {
+                uploads.checkType(property, contentType);
+            }
+            // each chunk is limited by the size of a request
+            UploadStream in = new UploadStream(request.getInputStream(), property, uploads.getMaxUploadSize());
+            try {
+                store.write(key, chunk, in);
+            } catch (UploadStream.LimitExceeded e) {
+                throw e.getCause();
+            }
+        }
+        BitSet received = store.getReceived(key, chunks);
+        boolean complete = false;
+        if (received.cardinality() == chunks) {
+            Path file = store.assemble(key, chunks);
+            if (file != null) {
+                FileItem fitem = RequestResources.of(request).deleteOnClose(new PathFileItem(property, contentType, request.getParameter(FILE_NAME), file));
+                long maxFileSize = uploads.getMaxFileSize(property);
+                if (maxFileSize >= 0 && Files.size(file) > maxFileSize) {
+                    throw new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, Messages.FILE_TOO_LARGE, property, String.valueOf(maxFileSize));
+                }
+                try {
+                    this.bindFile(request, o, property, fitem, null);
+                } catch (Exception e) {
+                    if (!errors.isSet(property)) {  // don't overwrite existing property error
+                        errors.put(property, ExceptionUtils.getRootCauseMessage(e));
+                    }
+                }
+                complete = true;
+            }
+        }
+        request.setAttribute(STATUS, new UploadStatus(uploadId, chunks, received, complete));
+    }
+
+    /**
+     * The form is submitted once its file is assembled and bound
+     *
+     * @param request HTTP request
+     * @param o       form object
+     * @return true, if every chunk has been received
+     */
+    @Override
+    protected boolean isFormSubmission(HttpServletRequest request, Object o) {
+        UploadStatus status = getUploadStatus(request);
+        return status != null && status.isComplete();
+    }
+
+    /**
+     * Answer with the status of an incomplete upload
+     *
+     * @param request  HTTP request
+     * @param response HTTP response
+     * @param o        form object
+     * @param errors   error packet
+     * @throws Exception if status cannot be written
+     */
+    @Override
+    protected void showForm(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
+        UploadStatus status = getUploadStatus(request);
+        if (status != null) {
+            this.writeStatus(response, status);
+        }
+    }
+
+    /**
+     * Write the status of an upload as JSON
+     *
+     * @param response HTTP response
+     * @param status   upload status
+     * @throws Exception if status cannot be written
+     */
+    protected void writeStatus(HttpServletResponse response, UploadStatus status) throws Exception {
+        JsonWriter json = this.newJsonWriter(response);
+        try {
+            json.beginObject().name("uploadId").value(status.getUploadId()).name("chunks").value(status.getChunks());
+            json.name("received").beginArray();
+            for (int i = status.received.nextSetBit(0); i >= 0; i = status.received.nextSetBit(i + 1)) {
+                json.value(i);
+            }
+            json.endArray().name("missing").beginArray();
+            for (int i = status.received.nextClearBit(0); i < status.getChunks(); i = status.received.nextClearBit(i + 1)) {
+                json.value(i);
+            }
+            json.endArray().name("complete").value(status.isComplete()).endObject();
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * The form property to which the assembled file is bound.  The property may be of any type supported for multipart uploads, i.e. {@link UploadedFile} or {@link Path}.
+     *
+     * @return property name
+     */
+    protected String getFileProperty() {
+        return "file";
+    }
+
+    /**
+     * Sub-classes can override to keep chunks elsewhere.  By default, chunks are kept under the system temporary directory and partial uploads idle for a day are purged.
+     *
+     * @param request web request
+     * @return chunk store
+     */
+    protected ChunkStore getChunkStore(HttpServletRequest request) {
+        return DefaultStore.INSTANCE;
+    }
+
+    /**
+     * The name under which the chunks of an upload are kept.  Upload ids are chosen by the client, so by default they are scoped to the session: a request cannot add chunks to,
+     * or complete, an upload started in another session.  Sub-classes can override to scope uploads to the authenticated user instead, i.e. to resume across sessions.
+     *
+     * @param request  web request
+     * @param uploadId upload id supplied by the client
+     * @return key that is a valid upload id of the chunk store
+     */
+    protected String getStoreKey(HttpServletRequest request, String uploadId) {
+        return Hashing.sha256().hashString(request.getSession().getId() + '/' + uploadId, Charsets.UTF_8).toString();
+    }
+
+    /**
+     * @param request web request
+     * @return status of the upload named by the request, or null if the request does not name a valid upload
+     */
+    public static UploadStatus getUploadStatus(HttpServletRequest request) {
+        return (UploadStatus) request.getAttribute(STATUS);
+    }
+
+    /**
+     * The chunks received for an upload
+     */
+    public static final class UploadStatus {
+        UploadStatus(String uploadId, int chunks, BitSet received, boolean complete) {
+            this.chunks = chunks;
+            this.received = received;
+            this.uploadId = uploadId;
+            this.complete = complete;
+        }
+
+        public String getUploadId() {
+            return uploadId;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        public boolean isReceived(int chunk) {
+            return this.received.get(chunk);
+        }
+
+        /**
+         * @return true, if every chunk was received and the file was assembled by this request
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        private final int chunks;
+        private final String uploadId;
+        private final BitSet received;
+        private final boolean complete;
+    }
+
+    /**
+     * Lazily created default store
+     */
+    private static class DefaultStore {
+        static final ChunkStore INSTANCE = new ChunkStore(new File(System.getProperty("java.io.tmpdir"), "wf4j-chunks"), 24 * 60 * 60 * 1000L);
+    }
+
+    public static final String CHUNK = "chunk";
+    public static final String CHUNKS = "chunks";
+    public static final String UPLOAD_ID = "uploadId";
+    public static final String FILE_NAME = "fileName";
+    public static final String CONTENT_TYPE = "contentType";
+
+    private static final int MAX_CHUNKS = 10000;
+    private static final String STATUS = UploadStatus.class.getName();
+}
@@ -3,19 +3,31 @@ package com.socotech.wf4j;
 import java.beans.PropertyEditor;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -25,6 +37,9 @@ import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.FileItemFactory;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
@@ -68,7 +83,7 @@ public abstract class AbstractFormAction extends AbstractAction {
      */
     protected Object getFormObject(HttpServletRequest req) throws Exception {
         Form form = this.getClass().getAnnotation(Form.class);
-        Object command, newbie = form.formClass().newInstance();
+        Object command, newbie = this.newFormObject(form);
         // as default, assign new instance to command
         command = newbie;
         // try to load an existing object from the session (optional)
@@ -93,6 +108,23 @@ public abstract class AbstractFormAction extends AbstractAction {
         return command;
     }
 
+    /**
+     * Instantiate a form object to which request parameters are bound.  Immutable form classes are bound to a {@link FormArguments} bean instead, which constructs the form
+     * object once binding is complete.
+     *
+     * @param form form spec
+     * @return new form object or argument bean
+     * @throws Exception if object cannot be instantiated
+     */
+    Object newFormObject(Form form) throws Exception {
+        FormConstructor constructor = BindingPlan.of(form).getConstructor();
+        if (constructor == null) {
+            return form.formClass().newInstance();
+        }
+        Preconditions.checkState(!form.sessionForm(), "immutable form class cannot be a session form");
+        return constructor.newArguments();
+    }
+
     /**
      * If the request method is "POST", a form submission is assumed.  Sub-classes can override this to use request params.
      *
@@ -114,170 +146,482 @@ public abstract class AbstractFormAction extends AbstractAction {
      * @param errors  error packet
      * @throws Exception if unhandled exceptions occur while binding
      */
-    @SuppressWarnings("unchecked")
     protected void bindFormObject(HttpServletRequest request, Object o, FormErrors errors) throws Exception {
-        // assemble parameter map
-        Map<String, String[]> parameters = Maps.newHashMap();
+        Form form = this.getClass().getAnnotation(Form.class);
+        FormTarget target = new FormTarget(form, o, this.getParameterLimits(request, form), this.getUploadLimits(request, form));
+        // assemble parameter snapshot, enforcing limits and dropping unknown names
+        this.readParameters(request, Collections.singletonList(target), null);
+        // bind snapshot to form object
+        this.bindTarget(request, target, errors);
+    }
+
+    /**
+     * Read request parameters and uploaded files in a single pass, routing each to the first target whose prefix it matches.
+     *
+     * @param request  incoming HTTP request
+     * @param targets  form targets
+     * @param envelope limits enforced on every parameter, including those matching no target (optional)
+     * @throws Exception if a limit is exceeded or the request cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    void readParameters(HttpServletRequest request, List<FormTarget> targets, ParameterSnapshot envelope) throws Exception {
         if (!ServletFileUpload.isMultipartContent(request)) {
             // process as standard request
             Enumeration names = request.getParameterNames();
             while (names.hasMoreElements()) {
                 String name = (String) names.nextElement();
                 String[] values = request.getParameterValues(name);
-                parameters.put(name, values);
+                if (envelope != null && values != null) {
+                    envelope.enforce(name, values);
+                }
+                FormTarget target = route(targets, name);
+                if (target != null) {
+                    target.getSnapshot().put(target.strip(name), values);
+                }
             }
         } else {
-            // process as multi-part request
-            ServletFileUpload fu = new ServletFileUpload(this.getFileItemFactory());
+            // process as multi-part request, streaming each part as it arrives
+            ServletFileUpload fu = new ServletFileUpload(this.getFileItemFactory(request));
+            fu.setSizeMax(this.getUploadLimits(request, this.getClass().getAnnotation(Form.class)).getMaxUploadSize());
+            String encoding = StringUtils.defaultIfEmpty(request.getCharacterEncoding(), DEFAULT_MULTIPART_ENCODING);
             try {
-                List<FileItem> fitems = fu.parseRequest(request);
-                for (FileItem fitem : fitems) {
-                    String name = fitem.getFieldName();
-                    if (fitem.isFormField()) {
-                        String value = fitem.getString();
-                        String[] values = parameters.get(name);
-                        if (values == null) {
-                            // Not in parameter map yet, so add as new value.
-                            parameters.put(name, new String[]{value});
-                        } else {
-                            // Multiple field values, so add new value to existing array.
-                            int length = values.length;
-                            String[] newValues = new String[length + 1];
-                            System.arraycopy(values, 0, newValues, 0, length);
-                            newValues[length] = value;
-                            parameters.put(name, newValues);
+                FileItemIterator items = fu.getItemIterator(request);
+                while (items.hasNext()) {
+                    FileItemStream item = items.next();
+                    String name = item.getFieldName();
+                    if (item.isFormField()) {
+                        FormTarget target = route(targets, name);
+                        // stop reading a value as soon as it is over a size limit
+                        long max = min(envelope == null ? -1 : envelope.remaining(), target == null ? -1 : target.getSnapshot().remaining());
+                        String value = readField(item, encoding, max);
+                        if (envelope != null) {
+                            envelope.enforce(name, value);
+                        }
+                        if (target != null) {
+                            target.getSnapshot().add(target.strip(name), value);
                         }
                     } else {
-                        // bind uploaded files to form object now instead of below
-                        InputStream in = fitem.getInputStream();
-                        try {
-                            byte[] bytes = ByteStreams.toByteArray(in);
-                            BeanUtils.setProperty(o, name, bytes);
-                        } catch (Exception e) {
-                            if (!errors.isSet(name)) {  // don't overwrite existing property error
-                                errors.put(name, ExceptionUtils.getRootCauseMessage(e));
+                        if (envelope != null) {
+                            envelope.enforce(name, "");
+                        }
+                        FormTarget target = route(targets, name);
+                        if (target == null) {
+                            continue;
+                        }
+                        String field = target.strip(name);
+                        boolean sink = target.getObject() instanceof UploadSink;
+                        if (sink) {
+                            target.getSnapshot().enforce(field, "");
+                        } else if (!target.getSnapshot().acceptFile(field)) {
+                            continue;
+                        }
+                        // reject file before reading any of it
+                        UploadLimits uploads = target.getUploadLimits();
+                        if (uploads.getMaxFiles() >= 0 && target.countFile() > uploads.getMaxFiles()) {
+                            throw new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Too many files: more than " + uploads.getMaxFiles());
+                        }
+                        uploads.checkType(field, item.getContentType());
+                        UploadStream in = new UploadStream(item.openStream(), field, uploads.getMaxFileSize(field));
+                        if (sink) {
+                            // hand file straight to the form
+                            try {
+                                ((UploadSink) target.getObject()).receiveUpload(field, item.getName(), item.getContentType(), in);
+                            } finally {
+                                Closeables.close(in, true);
+                            }
+                        } else {
+                            UploadProcessor<?> processor = this.getUploadProcessor(request, target.getObject(), field);
+                            FileItem fitem = spool(fu.getFileItemFactory(), item, in);
+                            target.addFile(fitem, in.getDigest());
+                            if (processor != null) {
+                                // process file while the remaining parts are read; processing deletes the file once no task reads it
+                                target.getProcessing(request).submit(this.getUploadExecutor(request), field, processor, fitem, in.getDigest());
+                            } else {
+                                // delete temporary file when request completes, not when item is finalized
+                                RequestResources.of(request).deleteOnClose(fitem);
                             }
-                        } finally {
-                            Closeables.close(in, true);
                         }
                     }
                 }
+            } catch (UploadStream.LimitExceeded e) {
+                throw e.getCause();
+            } catch (FileUploadBase.FileUploadIOException e) {
+                if (e.getCause() instanceof FileUploadBase.SizeLimitExceededException) {
+                    throw new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getCause().getMessage());
+                }
+                throw e;
+            } catch (FileUploadBase.SizeLimitExceededException e) {
+                throw new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
             } catch (FileUploadException e) {
                 log.warn(e.getMessage(), e);
             }
         }
-        // copy param keys to list
-        List<String> paramKeys = Lists.newArrayList(parameters.keySet());
-        // sort by name so we bind in ancestral order
-        Collections.sort(paramKeys);
+    }
+
+    /**
+     * Read the value of a form field part
+     *
+     * @param item     form field part
+     * @param encoding character encoding
+     * @param max      maximum length of the value, or -1 for no limit
+     * @return field value
+     * @throws IOException             if the part cannot be read
+     * @throws ParameterLimitException if the value is longer than the maximum
+     */
+    private static String readField(FileItemStream item, String encoding, long max) throws IOException, ParameterLimitException {
+        Reader reader = new InputStreamReader(item.openStream(), encoding);
+        StringBuilder value = new StringBuilder();
+        char[] buffer = new char[4096];
+        for (int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) {
+            if (max >= 0 && value.length() + n > max) {
+                // not closed, since closing would read the rest of the part; the request is rejected anyway
+                throw new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Parameter too large: " + item.getFieldName());
+            }
+            value.append(buffer, 0, n);
+        }
+        reader.close();
+        return value.toString();
+    }
+
+    /**
+     * @param a limit, or -1 for no limit
+     * @param b limit, or -1 for no limit
+     * @return the stricter limit
+     */
+    private static long min(long a, long b) {
+        return a < 0 ? b : b < 0 ? a : Math.min(a, b);
+    }
+
+    /**
+     * Store a streamed file part using the file item factory, as {@link ServletFileUpload#parseRequest} would.  A partly stored item is deleted if the part cannot be read.
+     *
+     * @param factory file item factory
+     * @param item    streamed part
+     * @param in      content of part
+     * @return stored file item
+     * @throws IOException if the part cannot be stored
+     */
+    private static FileItem spool(FileItemFactory factory, FileItemStream item, InputStream in) throws IOException {
+        FileItem fitem = factory.createItem(item.getFieldName(), item.getContentType(), item.isFormField(), item.getName());
+        try {
+            OutputStream out = fitem.getOutputStream();
+            try {
+                ByteStreams.copy(in, out);
+            } finally {
+                Closeables.close(out, false);
+            }
+        } catch (IOException e) {
+            fitem.delete();
+            throw e;
+        } finally {
+            Closeables.close(in, true);
+        }
+        fitem.setHeaders(item.getHeaders());
+        return fitem;
+    }
+
+    /**
+     * Bind the parameters and files routed to a target to its form object
+     *
+     * @param request incoming HTTP request
+     * @param target  form target
+     * @param errors  error packet
+     * @throws Exception if unhandled exceptions occur while binding
+     */
+    void bindTarget(HttpServletRequest request, FormTarget target, FormErrors errors) throws Exception {
+        Object o = target.getObject();
+        ParameterSnapshot snapshot = target.getSnapshot();
+        // finish processing uploads before files are taken over by the form
+        UploadProcessing processing = target.getProcessing();
+        if (processing != null) {
+            processing.await(errors, this.getUploadProcessingTimeout(request));
+        }
+        // restrict binding to a subset of properties (optional)
+        Set<String> bindable = this.getBindableProperties(request, o, snapshot.getParameters());
+        if (bindable != null) {
+            snapshot.retain(bindable);
+        }
+        // bind uploaded files to form object now instead of below
+        for (FileItem fitem : target.getFiles()) {
+            String name = target.strip(fitem.getFieldName());
+            if (bindable != null && !BindingPlan.contains(bindable, name)) {
+                continue;
+            }
+            try {
+                this.bindFile(request, o, name, fitem, target.getDigest(fitem));
+            } catch (Exception e) {
+                if (!errors.isSet(name)) {  // don't overwrite existing property error
+                    errors.put(name, ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
         // bind simple form fields to form object
-        for (String fieldName : paramKeys) {
-            String fieldPath = fieldName.replaceAll(Patterns.INDEX_REFERENCE.pattern(), "");
-            String[] valueArray = parameters.get(fieldName);
-            Field field = Reflect.getDeclaredField(o, fieldName);
-            if (field != null) {
-                try {
-                    Class<?> type = field.getType();
-                    // resolve binders based on type and path
-                    Set<FormBinder> binders = this.getBinders(fieldPath);
-                    // re-package array as collection
-                    Set<String> values = Sets.newHashSet(valueArray);
-                    // determine if field is an array
-                    if (type.isArray()) {
-                        // get the underlying class of this array
-                        type = type.getComponentType();
-                        // determine if field is enum
-                        if (type.isEnum()) {
-                            // array of enums; try to resolve value if not blank
-                            Set<Enum> enums = Sets.newHashSet();
-                            for (String value : values) {
-                                if (StringUtils.isNotBlank(value)) {
-                                    Class<Enum> ce = (Class<Enum>) type;
-                                    Enum e = Enum.valueOf(ce, value);
-                                    enums.add(e);
-                                }
-                            }
-                            Object[] array = (Object[]) Array.newInstance(type, enums.size());
-                            Object object = enums.toArray(array);
-                            BeanUtils.setProperty(o, fieldName, object);
-                        } else {
-                            // array of primitive or object types
-                            Set<Object> objects = Sets.newHashSet();
-                            for (String value : values) {
-                                Object obj = value;
-                                // try to match using equality; otherwise, try to match using a regular expression
-                                for (FormBinder binder : binders) {
-                                    PropertyEditor pe = this.newPropertyEditor(request, binder);
-                                    pe.setAsText(value);
-                                    obj = pe.getValue();
-                                }
-                                if (obj.getClass().isArray()) {
-                                    // value is delimited array of elements
-                                    Object[] array = (Object[]) obj;
-                                    objects.addAll(Arrays.asList(array));
-                                } else {
-                                    // value is a primitive or object
-                                    objects.add(obj);
-                                }
+        this.bindParameters(request, o, target.getPlan(), snapshot.getParameters(), errors);
+        // apply processing results last, so they are not overwritten by request parameters
+        if (processing != null) {
+            processing.apply(o, errors);
+        }
+    }
+
+    /**
+     * Bind an uploaded file according to the declared type of its property.  Properties of type {@link UploadedFile} or {@link Path} take over the uploaded content without
+     * reading it onto the heap; any other property is bound to a byte array.
+     * <p/>
+     * Properties of type {@link InputStream}, {@link ReadableByteChannel}, {@link FileChannel}, {@link SeekableByteChannel} or {@link MappedByteBuffer} give read-only access to
+     * the file on disk for the duration of the request only: the stream or channel is closed and the file deleted when the request completes.  A {@link ByteBuffer} property is a read-only view of an upload held in memory, or a mapping of
+     * one on disk.
+     *
+     * @param request web request
+     * @param o       form object
+     * @param name    property name
+     * @param fitem   uploaded file
+     * @param digest  size and checksums computed while the file was streamed
+     * @throws Exception if the file cannot be bound
+     */
+    void bindFile(HttpServletRequest request, Object o, String name, FileItem fitem, UploadDigest digest) throws Exception {
+        Class<?> type = Reflect.getDeclaredType(o, name);
+        if (type == UploadedFile.class) {
+            PropertyUtils.setProperty(o, name, UploadedFile.of(fitem, digest));
+        } else if (type == Path.class) {
+            PropertyUtils.setProperty(o, name, UploadedFile.of(fitem, null).getPath());
+        } else if (type == InputStream.class || type == ReadableByteChannel.class) {
+            RequestResources resources = RequestResources.of(request);
+            UploadedFile file = UploadedFile.of(fitem, null);
+            if (!file.isInMemory()) {
+                // nothing else holds the renamed file, so delete it once the stream is closed
+                resources.deleteOnClose(file.getPath());
+            }
+            PropertyUtils.setProperty(o, name, resources.register(type == InputStream.class ? file.openStream() : file.openChannel()));
+        } else if (type == FileChannel.class || type == SeekableByteChannel.class) {
+            RequestResources resources = RequestResources.of(request);
+            Path path = resources.deleteOnClose(UploadedFile.of(fitem, null).getPath());
+            PropertyUtils.setProperty(o, name, resources.register(FileChannel.open(path, StandardOpenOption.READ)));
+        } else if (type == ByteBuffer.class && fitem.isInMemory()) {
+            PropertyUtils.setProperty(o, name, UploadedFile.of(fitem, null).getBuffer());
+        } else if (type == ByteBuffer.class || type == MappedByteBuffer.class) {
+            Path path = RequestResources.of(request).deleteOnClose(UploadedFile.of(fitem, null).getPath());
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                // mapping remains valid once channel is closed
+                PropertyUtils.setProperty(o, name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } finally {
+                Closeables.close(channel, true);
+            }
+        } else {
+            InputStream in = fitem.getInputStream();
+            try {
+                byte[] bytes = ByteStreams.toByteArray(in);
+                BeanUtils.setProperty(o, name, bytes);
+            } finally {
+                Closeables.close(in, true);
+            }
+        }
+    }
+
+    private static FormTarget route(List<FormTarget> targets, String name) {
+        for (FormTarget target : targets) {
+            if (target.matches(name)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determine which properties may be bound from this request.  By default, every property is bindable.  Sub-classes can override to bind only part of the form.
+     *
+     * @param request    incoming HTTP request
+     * @param o          form object
+     * @param parameters accepted request parameters, before restriction
+     * @return property names or paths that may be bound, or null if all properties are bindable
+     */
+    protected Set<String> getBindableProperties(HttpServletRequest request, Object o, Map<String, String[]> parameters) {
+        return null;
+    }
+
+    /**
+     * Bind a snapshot of request parameters to the form object, in ancestral order.
+     *
+     * @param request    incoming HTTP request
+     * @param o          form object
+     * @param plan       binding plan
+     * @param parameters parameter snapshot
+     * @param errors     error packet
+     * @throws Exception if unhandled exceptions occur while binding
+     */
+    private void bindParameters(HttpServletRequest request, Object o, BindingPlan plan, Map<String, String[]> parameters, FormErrors errors) throws Exception {
+        for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+            this.bindProperty(request, o, parameter.getKey(), parameter.getKey(), parameter.getValue(), plan, errors);
+        }
+    }
+
+    /**
+     * Convert and bind the values of a single property.  Binders are resolved using the full path of the property, which is also the code under which errors are reported.
+     *
+     * @param request    incoming HTTP request
+     * @param o          bean on which the property is set
+     * @param fieldName  simple, indexed, mapped or nested property name relative to the bean
+     * @param path       full path to the property from the form object
+     * @param valueArray values to bind
+     * @param plan       binding plan
+     * @param errors     error packet
+     * @throws Exception if unhandled exceptions occur while binding
+     */
+    @SuppressWarnings("unchecked")
+    void bindProperty(HttpServletRequest request, Object o, String fieldName, String path, String[] valueArray, BindingPlan plan, FormErrors errors) throws Exception {
+        String fieldPath = Patterns.INDEX_REFERENCE.matcher(path).replaceAll("");
+        Class<?> type = Reflect.getDeclaredType(o, fieldName);
+        if (type != null) {
+            try {
+                // resolve binders based on type and path
+                Set<FormBinder> binders = plan.getBinders(fieldPath);
+                // re-package array as collection
+                Set<String> values = Sets.newHashSet(valueArray);
+                // determine if field is an array
+                if (type.isArray()) {
+                    // get the underlying class of this array
+                    type = type.getComponentType();
+                    // determine if field is enum
+                    if (type.isEnum()) {
+                        // array of enums; try to resolve value if not blank
+                        Set<Enum> enums = Sets.newHashSet();
+                        for (String value : values) {
+                            if (StringUtils.isNotBlank(value)) {
+                                Class<Enum> ce = (Class<Enum>) type;
+                                Enum e = Enum.valueOf(ce, value);
+                                enums.add(e);
                             }
-                            Object[] array = (Object[]) Array.newInstance(type, objects.size());
-                            Object object = objects.toArray(array);
-                            BeanUtils.setProperty(o, fieldName, object);
                         }
+                        Object[] array = (Object[]) Array.newInstance(type, enums.size());
+                        Object object = enums.toArray(array);
+                        BeanUtils.setProperty(o, fieldName, object);
                     } else {
-                        String value = values.iterator().next();
-                        if (!binders.isEmpty()) {
-                            // use form binders to convert...
-                            Object object = value;
+                        // array of primitive or object types
+                        Set<Object> objects = Sets.newHashSet();
+                        for (String value : values) {
+                            Object obj = value;
+                            // try to match using equality; otherwise, try to match using a regular expression
                             for (FormBinder binder : binders) {
                                 PropertyEditor pe = this.newPropertyEditor(request, binder);
                                 pe.setAsText(value);
-                                object = pe.getValue();
+                                obj = pe.getValue();
                             }
-                            // set property with no type conversions
-                            PropertyUtils.setProperty(o, fieldName, object);
-                        } else if (StringUtils.isNotBlank(value)) {
-                            if (type.isEnum()) {
-                                Class<Enum> e = (Class<Enum>) type;
-                                Object object = Enum.valueOf(e, value);
-                                // set property with no type conversions
-                                PropertyUtils.setProperty(o, fieldName, object);
+                            if (obj.getClass().isArray()) {
+                                // value is delimited array of elements
+                                Object[] array = (Object[]) obj;
+                                objects.addAll(Arrays.asList(array));
                             } else {
-                                // set property using type conversions if necessary
-                                BeanUtils.setProperty(o, fieldName, value);
-                            }
-                        } else if (StringUtils.isEmpty(value)) {
-                            // per #4408, set value to null
-                            if (type.isPrimitive()) {
-                                // set property using type conversions if necessary
-                                BeanUtils.setProperty(o, fieldName, null);
-                            } else {
-                                // set property with no type conversions
-                                PropertyUtils.setProperty(o, fieldName, null);
+                                // value is a primitive or object
+                                objects.add(obj);
                             }
                         }
+                        Object[] array = (Object[]) Array.newInstance(type, objects.size());
+                        Object object = objects.toArray(array);
+                        BeanUtils.setProperty(o, fieldName, object);
                     }
-                } catch (Exception e) {
-                    if (e instanceof IllegalArgumentException) {
-                        // This is a simple IAE: no point in writing out the stack
-                        log.warn(e.getMessage());
-                    } else {
-                        log.warn(e.getMessage(), e);
-                    }
-                    if (!errors.isSet(fieldName)) {  // don't overwrite existing property error
-                        errors.put(fieldName, e.getMessage());
+                } else {
+                    String value = values.iterator().next();
+                    if (!binders.isEmpty()) {
+                        // use form binders to convert...
+                        Object object = value;
+                        for (FormBinder binder : binders) {
+                            PropertyEditor pe = this.newPropertyEditor(request, binder);
+                            pe.setAsText(value);
+                            object = pe.getValue();
+                        }
+                        // set property with no type conversions
+                        PropertyUtils.setProperty(o, fieldName, object);
+                    } else if (StringUtils.isNotBlank(value)) {
+                        if (type.isEnum()) {
+                            Class<Enum> e = (Class<Enum>) type;
+                            Object object = Enum.valueOf(e, value);
+                            // set property with no type conversions
+                            PropertyUtils.setProperty(o, fieldName, object);
+                        } else {
+                            // set property using type conversions if necessary
+                            BeanUtils.setProperty(o, fieldName, value);
+                        }
+                    } else if (StringUtils.isEmpty(value)) {
+                        // per #4408, set value to null
+                        if (type.isPrimitive()) {
+                            // set property using type conversions if necessary
+                            BeanUtils.setProperty(o, fieldName, null);
+                        } else {
+                            // set property with no type conversions
+                            PropertyUtils.setProperty(o, fieldName, null);
+                        }
                     }
                 }
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug("Writable property \"" + fieldName + "\" not found on form object");
+            } catch (Exception e) {
+                if (e instanceof IllegalArgumentException) {
+                    // This is a simple IAE: no point in writing out the stack
+                    log.warn(e.getMessage());
+                } else {
+                    log.warn(e.getMessage(), e);
+                }
+                if (!errors.isSetHere(path)) {  // don't overwrite existing property error
+                    int i = ExceptionUtils.indexOfType(e, InvalidValueException.class);
+                    if (i >= 0) {
+                        InvalidValueException ive = (InvalidValueException) ExceptionUtils.getThrowables(e)[i];
+                        errors.putMessage(path, ive.getCode(), ive.getArgs());
+                    } else {
+                        errors.put(path, e.getMessage());
+                    }
                 }
             }
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("Writable property \"" + path + "\" not found on form object");
+            }
         }
     }
 
     /**
-     * Sub-classes can override to avoid writing to disk, i.e. Google Appengine
+     * Sub-classes can override to process uploaded files, i.e. to sniff or thumbnail them, while the rest of the request is read.  By default, files are not processed.
+     *
+     * @param request web request
+     * @param o       form object
+     * @param name    property name, relative to the form object
+     * @return upload processor, or null if the file needs no processing
+     */
+    protected UploadProcessor<?> getUploadProcessor(HttpServletRequest request, Object o, String name) {
+        return null;
+    }
+
+    /**
+     * Sub-classes can override to process uploads on their own executor.  By default, uploads are processed on a shared executor bounded by the number of processors.
+     *
+     * @param request web request
+     * @return executor
+     */
+    protected ExecutorService getUploadExecutor(HttpServletRequest request) {
+        return UploadProcessing.getDefaultExecutor();
+    }
+
+    /**
+     * Sub-classes can override to allow more or less time for upload processing.  By default, every file of a form must be processed within 30 seconds of binding.
+     *
+     * @param request web request
+     * @return time allowed in milliseconds
+     */
+    protected long getUploadProcessingTimeout(HttpServletRequest request) {
+        return DEFAULT_UPLOAD_PROCESSING_TIMEOUT;
+    }
+
+    /**
+     * Resolve the factory used to store uploaded files.  By default, the {@link UploadManager} shared by the controller is used, if any; otherwise, the factory returned by
+     * {@link #getFileItemFactory()}.
+     *
+     * @param request web request
+     * @return file item factory
+     */
+    protected FileItemFactory getFileItemFactory(HttpServletRequest request) {
+        UploadManager uploads = UploadManager.of(request);
+        return uploads != null ? uploads : this.getFileItemFactory();
+    }
+
+    /**
+     * Sub-classes can override to avoid writing to disk, i.e. Google Appengine, by returning a {@link PooledFileItemFactory} with no threshold
      *
      * @return file item factory
      */
@@ -286,21 +630,27 @@ public abstract class AbstractFormAction extends AbstractAction {
     }
 
     /**
-     * Extract binders for a specific form property
+     * Resolve the limits applied to request parameters before binding.  By default, limits are read from the form configuration.  Sub-classes can override to apply limits
+     * per action or per request.
      *
-     * @param path path to property
-     * @return set of binders
+     * @param request web request
+     * @param form    form spec
+     * @return parameter limits
      */
-    @SuppressWarnings("unchecked")
-    private Set<FormBinder> getBinders(String path) {
-        Set<FormBinder> set = Sets.newHashSet();
-        FormBinder[] binders = this.getClass().getAnnotation(Form.class).binders();
-        for (FormBinder binder : binders) {
-            if (binder.property().equals(path) || Pattern.compile(binder.property()).matcher(path).matches()) {
-                set.add(binder);
-            }
-        }
-        return set;
+    protected ParameterLimits getParameterLimits(HttpServletRequest request, Form form) {
+        return BindingPlan.of(form).getLimits();
+    }
+
+    /**
+     * Resolve the limits applied to uploaded files while a multipart request is streamed.  By default, limits are read from the form configuration.  Sub-classes can override to
+     * apply limits per action or per request.
+     *
+     * @param request web request
+     * @param form    form spec
+     * @return upload limits
+     */
+    protected UploadLimits getUploadLimits(HttpServletRequest request, Form form) {
+        return BindingPlan.of(form).getUploadLimits();
     }
 
     /**
@@ -316,7 +666,29 @@ public abstract class AbstractFormAction extends AbstractAction {
     }
 
     /**
-     * Create a new validator. By default, it simply creates a new instance of the class.
+     * Find the validator for a form.  Validators are created by {@link #newFormValidator} once per action class and cached: a validator marked {@link ThreadSafe} is shared
+     * by every request, while any other validator is created once per thread and reused by later requests on that thread.  If a sub-class overrides
+     * {@link #newFormValidator}, only a validator marked {@link ThreadSafe} is reused; any other is created for each request, since it may depend on the request.
+     *
+     * @param request web request
+     * @param form    form spec
+     * @return cached form validator instance
+     * @throws Exception if the validator cannot be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    protected FormValidator<Object> getFormValidator(final HttpServletRequest request, final Form form) throws Exception {
+        boolean perThread = ValidatorCache.isDefaultFactory(this.getClass(), "newFormValidator", HttpServletRequest.class, Form.class);
+        return ValidatorCache.get(this.getClass(), form, perThread, new Callable<FormValidator<Object>>() {
+            @Override
+            public FormValidator<Object> call() throws Exception {
+                return newFormValidator(request, form);
+            }
+        });
+    }
+
+    /**
+     * Create a new validator. By default, it simply creates a new instance of the class.  Instances are cached by {@link #getFormValidator}, so this method is not called on
+     * every request.  A validator created by an overriding method is cached only if it is marked {@link ThreadSafe}.
      * <p>
      * Sub-classes can override this method to do something fancier, i.e. instantiate via DI/IoC
      *
@@ -389,7 +761,8 @@ public abstract class AbstractFormAction extends AbstractAction {
     }
 
     /**
-     * After binding, validate the form object
+     * After binding, validate the form object.  Constraints declared on the fields of the form class, i.e. {@link Required}, are checked before the form validator is called.
+     * If the form fails fast, validation stops at the first error instead.
      *
      * @param request HTTP request
      * @param o       form object
@@ -398,8 +771,201 @@ public abstract class AbstractFormAction extends AbstractAction {
      */
     protected void validateFormObject(HttpServletRequest request, Object o, FormErrors errors) throws Exception {
         Form form = this.getClass().getAnnotation(Form.class);
+        if (form.failFast()) {
+            this.validateFirst(request, form, o, errors);
+            return;
+        }
+        // start slow validators first, so they overlap the rest
+        AsyncValidation async = this.startAsyncValidation(request, form, o);
+        ValidationPlan.of(o.getClass()).validate(o, errors);
+        if (!form.validatorClass().equals(void.class)) {
+            this.getFormValidator(request, form).validate(o, errors);
+        }
+        this.joinAsyncValidation(request, form, o, async, errors);
+    }
+
+    /**
+     * Start every async validator declared for a form
+     *
+     * @param request web request
+     * @param form    form spec
+     * @param o       form object
+     * @return started validators, or null if the form declares none
+     * @throws Exception if a validator cannot be instantiated
+     */
+    AsyncValidation startAsyncValidation(HttpServletRequest request, Form form, Object o) throws Exception {
+        if (form.asyncValidators().length == 0) {
+            return null;
+        }
+        AsyncValidation async = new AsyncValidation();
+        ExecutorService executor = this.getValidationExecutor(request);
+        for (Class<?> validatorClass : form.asyncValidators()) {
+            async.start(this.getAsyncValidator(request, validatorClass), o, executor);
+        }
+        return async;
+    }
+
+    /**
+     * Validate the form object until the first error.  Field constraints, the form validator and each async validator run in order of {@link Cost}, so cheap checks run first
+     * and expensive ones only run while the form is still valid.  A form that already has errors, i.e. from binding, is not validated at all.
+     *
+     * @param request web request
+     * @param form    form spec
+     * @param o       form object
+     * @param errors  error packet
+     * @throws Exception if a validator cannot be instantiated or fails
+     */
+    void validateFirst(HttpServletRequest request, Form form, Object o, FormErrors errors) throws Exception {
+        if (errors.hasErrorsHere()) {
+            return;  // binding already failed
+        }
+        // errors of other forms posted together do not count
+        int size = errors.size();
+        List<Class<?>> validators = Lists.newArrayList();
         if (!form.validatorClass().equals(void.class)) {
-            this.newFormValidator(request, form).validate(o, errors);
+            validators.add(form.validatorClass());
+        }
+        Collections.addAll(validators, form.asyncValidators());
+        sortByCost(validators);
+        // run the constraints cheaper than each validator before it
+        ValidationPlan plan = ValidationPlan.of(o.getClass());
+        int from = Integer.MIN_VALUE;
+        for (Class<?> validatorClass : validators) {
+            int cost = costOf(validatorClass);
+            if (plan.validateFirst(o, errors, from, cost)) {
+                return;
+            }
+            if (AsyncFormValidator.class.isAssignableFrom(validatorClass)) {
+                AsyncValidation async = new AsyncValidation();
+                async.start(this.getAsyncValidator(request, validatorClass), o, this.getValidationExecutor(request));
+                this.joinAsyncValidation(request, form, o, async, errors);
+            } else {
+                this.getFormValidator(request, form).validate(o, errors);
+            }
+            if (errors.size() > size) {
+                return;
+            }
+            from = cost;
+        }
+        plan.validateFirst(o, errors, from, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Run the async validators of a form one at a time, cheapest first, until the first error
+     *
+     * @param request web request
+     * @param form    form spec
+     * @param o       form object
+     * @param errors  error packet
+     * @throws Exception if a validator cannot be instantiated or fails
+     */
+    void validateAsyncFirst(HttpServletRequest request, Form form, Object o, FormErrors errors) throws Exception {
+        int size = errors.size();
+        List<Class<?>> validators = Lists.newArrayList(form.asyncValidators());
+        sortByCost(validators);
+        for (Class<?> validatorClass : validators) {
+            AsyncValidation async = new AsyncValidation();
+            async.start(this.getAsyncValidator(request, validatorClass), o, this.getValidationExecutor(request));
+            this.joinAsyncValidation(request, form, o, async, errors);
+            if (errors.size() > size) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param validators form and async validator classes, sorted in place, cheapest first
+     */
+    private static void sortByCost(List<Class<?>> validators) {
+        Collections.sort(validators, new Comparator<Class<?>>() {
+            @Override
+            public int compare(Class<?> a, Class<?> b) {
+                return Integer.compare(costOf(a), costOf(b));
+            }
+        });
+    }
+
+    /**
+     * @param validatorClass form or async validator class
+     * @return declared cost of the validator, or the default cost of its kind
+     */
+    private static int costOf(Class<?> validatorClass) {
+        Cost cost = validatorClass.getAnnotation(Cost.class);
+        if (cost != null) {
+            return cost.value();
+        }
+        return AsyncFormValidator.class.isAssignableFrom(validatorClass) ? Cost.DEFAULT_ASYNC_VALIDATOR : Cost.DEFAULT_VALIDATOR;
+    }
+
+    /**
+     * @param request        web request
+     * @param validatorClass async validator class
+     * @return cached async validator
+     * @throws Exception if the validator cannot be instantiated
+     */
+    private AsyncFormValidator<?> getAsyncValidator(final HttpServletRequest request, final Class<?> validatorClass) throws Exception {
+        boolean perThread = ValidatorCache.isDefaultFactory(this.getClass(), "newAsyncValidator", HttpServletRequest.class, Class.class);
+        return ValidatorCache.get(this.getClass(), validatorClass, perThread, new Callable<AsyncFormValidator<?>>() {
+            @Override
+            public AsyncFormValidator<?> call() throws Exception {
+                return newAsyncValidator(request, validatorClass);
+            }
+        });
+    }
+
+    /**
+     * Wait for the async validators of a form, up to its validation timeout, and report those that did not complete
+     *
+     * @param request web request
+     * @param form    form spec
+     * @param o       form object
+     * @param async   started validators, if any
+     * @param errors  error packet
+     * @throws Exception if a validator fails
+     */
+    void joinAsyncValidation(HttpServletRequest request, Form form, Object o, AsyncValidation async, FormErrors errors) throws Exception {
+        if (async != null) {
+            for (AsyncFormValidator<?> validator : async.join(errors, form.validationTimeout())) {
+                this.onValidationTimeout(request, o, validator, errors);
+            }
+        }
+    }
+
+    /**
+     * Create a new async validator.  By default, it simply creates a new instance of the class.  Instances are cached like form validators.
+     *
+     * @param request        web request
+     * @param validatorClass async validator class
+     * @return new async validator instance
+     * @throws Exception if the validator cannot be instantiated
+     */
+    protected AsyncFormValidator<?> newAsyncValidator(HttpServletRequest request, Class<?> validatorClass) throws Exception {
+        return (AsyncFormValidator<?>) validatorClass.newInstance();
+    }
+
+    /**
+     * Sub-classes can override to run async validators on their own executor.  By default, a shared executor sized for validators that wait on I/O is used.
+     *
+     * @param request web request
+     * @return executor
+     */
+    protected ExecutorService getValidationExecutor(HttpServletRequest request) {
+        return AsyncValidation.getDefaultExecutor();
+    }
+
+    /**
+     * Report an async validator that did not complete within the validation timeout, or that a saturated executor rejected.  By default, a single {@link #VALIDATION_TIMEOUT} error is set.  Sub-classes can override
+     * to report the timeout on a specific property, i.e. an address that could not be verified.
+     *
+     * @param request   web request
+     * @param o         form object
+     * @param validator async validator, which has been cancelled or was never run
+     * @param errors    error packet
+     */
+    protected void onValidationTimeout(HttpServletRequest request, Object o, AsyncFormValidator<?> validator, FormErrors errors) {
+        log.warn("Validation timed out: " + validator.getClass().getName());
+        if (!errors.isSet(VALIDATION_TIMEOUT)) {
+            errors.putMessage(VALIDATION_TIMEOUT, Messages.VALIDATION_TIMEOUT);
         }
     }
 
@@ -415,12 +981,17 @@ public abstract class AbstractFormAction extends AbstractAction {
     public final void execute(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
         if (!this.redirectRequest(req, res)) {
             FormErrors errors = new FormErrors();
+            errors.setLocale(req.getLocale());
             try {
                 Form form = this.getClass().getAnnotation(Form.class);
                 // get or create a new form
                 Object o = this.getFormObject(req);
                 // copy bean properties from request params
                 this.bindFormObject(req, o, errors);
+                // immutable forms are constructed once all arguments are bound
+                if (o instanceof FormArguments) {
+                    o = ((FormArguments) o).newInstance(errors, form.name());
+                }
                 // Allow actions to do their own work prior to form processing
                 this.onBind(req, res, o, errors);
                 // got errors?
@@ -457,9 +1028,15 @@ public abstract class AbstractFormAction extends AbstractAction {
                 } else {
                     this.showForm(req, res, o, errors);
                 }
+            } catch (ParameterLimitException e) {
+                log.warn(e.getMessage());
+                res.sendError(e.getStatus(), e.getMessage(req.getLocale()));
             } catch (Exception e) {
                 log.error(e.getMessage(), e);
                 this.raiseServerError(req, res, e.getMessage());
+            } finally {
+                // close channels and delete files bound for this request only
+                RequestResources.release(req);
             }
         }
     }
@@ -539,6 +1116,17 @@ public abstract class AbstractFormAction extends AbstractAction {
      */
     protected abstract void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException;
 
+    /**
+     * The error code set when async validators do not complete in time
+     */
+    public static final String VALIDATION_TIMEOUT = "validationTimeout";
+
+    /**
+     * Charset of multipart form fields when the request does not declare one, as per {@link FileItem#getString()}
+     */
+    private static final String DEFAULT_MULTIPART_ENCODING = "ISO-8859-1";
+    private static final long DEFAULT_UPLOAD_PROCESSING_TIMEOUT = 30 * 1000L;
+
     /**
      * <p/> A logging category for each action. </p>
      */
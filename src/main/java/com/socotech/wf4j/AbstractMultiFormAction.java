@@ -0,0 +1,137 @@
+package com.socotech.wf4j;
+
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * AbstractMultiFormAction.java
+ * <p/>
+ * Binds several logical forms posted together.  The forms are declared with {@link Forms}, each with its own parameter prefix, binders and validator.  Request parameters are
+ * read once and routed to each form by prefix.  The form object seen by the rest of the action is a {@link MultiForm} keyed by form name, and errors of each form are nested
+ * under its name.
+ */
+@Form(name = "forms", formClass = MultiForm.class)
+public abstract class AbstractMultiFormAction extends AbstractSimpleFormAction {
+
+    /**
+     * Default constructor
+     */
+    protected AbstractMultiFormAction() {
+        Preconditions.checkState(this.getClass().isAnnotationPresent(Forms.class), "multi-form action must declare its forms");
+    }
+
+    /**
+     * Constructs a form object for each declared form and, if specified, stores it in the session for later use
+     *
+     * @param req web request
+     * @return multi-form object
+     * @throws Exception if a form object cannot be instantiated
+     */
+    @Override
+    protected Object getFormObject(HttpServletRequest req) throws Exception {
+        MultiForm forms = new MultiForm();
+        for (Form form : this.getClass().getAnnotation(Forms.class).value()) {
+            Object o = super.newFormObject(form);
+            if (form.sessionForm()) {
+                o = WebUtil.getOrCreateSessionAttribute(req, this.getSessionAttributeName(form), o);
+            }
+            forms.put(form.name(), o);
+        }
+        return forms;
+    }
+
+    /**
+     * Read request parameters once, splitting them by prefix, and bind each form with its own binders.
+     *
+     * @param request incoming HTTP request
+     * @param o       multi-form object
+     * @param errors  error packet
+     * @throws Exception if unhandled exceptions occur while binding
+     */
+    @Override
+    protected void bindFormObject(HttpServletRequest request, Object o, FormErrors errors) throws Exception {
+        MultiForm forms = (MultiForm) o;
+        List<FormTarget> targets = Lists.newArrayList();
+        for (Form form : this.getClass().getAnnotation(Forms.class).value()) {
+            targets.add(new FormTarget(form, forms.get(form.name()), this.getParameterLimits(request, form), this.getUploadLimits(request, form)));
+        }
+        // limits of the action apply to the request as a whole
+        Form envelope = this.getClass().getAnnotation(Form.class);
+        this.readParameters(request, targets, new ParameterSnapshot(this.getParameterLimits(request, envelope), forms.keySet()));
+        for (FormTarget target : targets) {
+            Form form = target.getForm();
+            errors.push(form.name());
+            try {
+                this.bindTarget(request, target, errors);
+            } finally {
+                errors.pop();
+            }
+            // immutable forms are constructed once all arguments are bound
+            if (target.getObject() instanceof FormArguments) {
+                forms.put(form.name(), ((FormArguments) target.getObject()).newInstance(errors, form.name()));
+            }
+        }
+    }
+
+    /**
+     * Return user to the form view.  Each form object is also added to request scope under its own name.
+     *
+     * @param request  HTTP request
+     * @param response HTTP response
+     * @param o        multi-form object
+     * @param errors   error packet
+     * @throws Exception bad stuff
+     */
+    @Override
+    protected void showForm(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
+        for (Map.Entry<String, Object> entry : ((MultiForm) o).entrySet()) {
+            request.setAttribute(entry.getKey(), entry.getValue());
+        }
+        super.showForm(request, response, o, errors);
+    }
+
+    /**
+     * Validate each form with its own field constraints, validator and async validators.  A form that fails fast stops at its own first error; the other forms are still
+     * validated.
+     *
+     * @param request HTTP request
+     * @param o       multi-form object
+     * @param errors  error packet
+     * @throws Exception if a validator cannot be instantiated
+     */
+    @Override
+    protected void validateFormObject(HttpServletRequest request, Object o, FormErrors errors) throws Exception {
+        MultiForm forms = (MultiForm) o;
+        Form[] specs = this.getClass().getAnnotation(Forms.class).value();
+        // start slow validators of every form first, so they overlap the rest
+        AsyncValidation[] async = new AsyncValidation[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            if (!specs[i].failFast()) {
+                async[i] = this.startAsyncValidation(request, specs[i], forms.get(specs[i].name()));
+            }
+        }
+        for (int i = 0; i < specs.length; i++) {
+            Form form = specs[i];
+            Object part = forms.get(form.name());
+            errors.push(form.name());
+            try {
+                if (form.failFast()) {
+                    this.validateFirst(request, form, part, errors);
+                    continue;
+                }
+                ValidationPlan.of(part.getClass()).validate(part, errors);
+                if (!form.validatorClass().equals(void.class)) {
+                    this.getFormValidator(request, form).validate(part, errors);
+                }
+                this.joinAsyncValidation(request, form, part, async[i], errors);
+            } finally {
+                errors.pop();
+            }
+        }
+    }
+}
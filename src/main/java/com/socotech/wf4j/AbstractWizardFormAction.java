@@ -1,15 +1,24 @@
 package com.socotech.wf4j;
 
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,6 +92,7 @@ public abstract class AbstractWizardFormAction extends AbstractFormAction {
             if (this.isExitSubmission(request, o)) {
                 // exit from wizard
                 this.exit(o, request, response);
+                this.removePageFingerprints(request);
             } else if (this.isJumpSubmission(request, o)) {
                 // show form of target page
                 this.showPage(request, response, o, errors, page);
@@ -92,22 +102,33 @@ public abstract class AbstractWizardFormAction extends AbstractFormAction {
             } else if (this.isCancelSubmission(request, o)) {
                 // cancel out of wizard
                 this.cancel(o, request, response);
+                this.removePageFingerprints(request);
             } else if (this.isNextSubmission(request, o)) {
                 // no errors, process current page
                 this.executePage(request, response, o, page);
                 // show form of next page
                 this.showPage(request, response, o, errors, ++page);
             } else if (this.isFinishSubmission(request, o)) {
-                // fully validate the form one last time
-                this.validateFormObject(request, o, errors);
+                // fully validate the form one last time; async validators check the whole form, so they run only now
+                Form form = this.getClass().getAnnotation(Form.class);
+                if (form.failFast()) {
+                    this.validateFormObject(request, o, errors);
+                    if (errors.isEmpty()) {
+                        this.validateAsyncFirst(request, form, o, errors);
+                    }
+                } else {
+                    AsyncValidation async = this.startAsyncValidation(request, form, o);
+                    this.validateFormObject(request, o, errors);
+                    this.joinAsyncValidation(request, form, o, async, errors);
+                }
                 if (errors.isEmpty()) {
                     // finish up!
                     this.finish(o, request, response);
                     // expel form from session
-                    Form form = this.getClass().getAnnotation(Form.class);
                     if (form.sessionForm()) {
                         WebUtil.removeSessionAttribute(request, super.getSessionAttributeName(form));
                     }
+                    this.removePageFingerprints(request);
                 } else {
                     // return to the initial page of wizard and report error
                     this.forwardToWithErrors(request, response, this.getView(request, 0), errors);
@@ -160,7 +181,49 @@ public abstract class AbstractWizardFormAction extends AbstractFormAction {
     }
 
     /**
-     * After binding, validate the form object
+     * Bind only the properties of the submitted page, if the wizard maps pages to properties.  The page index and choice are always bound.
+     *
+     * @param request    incoming HTTP request
+     * @param o          form object
+     * @param parameters accepted request parameters, before restriction
+     * @return property names or paths of the submitted page, or null if all properties are bindable
+     * @see WizardPages
+     */
+    @Override
+    protected Set<String> getBindableProperties(HttpServletRequest request, Object o, Map<String, String[]> parameters) {
+        int page = WizardForm.class.cast(o).getPage();
+        String[] values = parameters.get(WF4JScopeVariable.page.name());
+        // a missing, malformed or out of range page falls back on the page of the session form
+        int submitted = values != null && values.length > 0 ? NumberUtils.toInt(values[0], -1) : -1;
+        if (submitted >= 0) {
+            page = submitted;
+        }
+        Set<String> properties = this.getPageProperties(request, page);
+        if (properties == null) {
+            return null;
+        }
+        return Sets.union(properties, NAVIGATION_PROPERTIES);
+    }
+
+    /**
+     * Resolve the properties bound when a specific page is submitted.  By default, the {@link WizardPages} declared on the action, or else on the form class, are used.
+     *
+     * @param request HTTP request
+     * @param page    page index
+     * @return property names or paths, or null if all properties are bindable
+     */
+    protected Set<String> getPageProperties(HttpServletRequest request, int page) {
+        WizardPages pages = this.getClass().getAnnotation(WizardPages.class);
+        if (pages == null) {
+            Class<?> formClass = this.getClass().getAnnotation(Form.class).formClass();
+            pages = formClass.getAnnotation(WizardPages.class);
+        }
+        return pages == null ? null : BindingPlan.getPages(pages).get(page);
+    }
+
+    /**
+     * After binding, validate the form object.  The field constraints of the properties on the current page, or of every property if pages are not mapped, are checked before
+     * the page is validated.  If pages are mapped, each page that validates cleanly is fingerprinted, so finishing the wizard re-validates only the pages changed since.
      *
      * @param request HTTP request
      * @param o       form object
@@ -170,7 +233,116 @@ public abstract class AbstractWizardFormAction extends AbstractFormAction {
      */
     @Override
     protected final void validateFormObject(HttpServletRequest request, Object o, FormErrors errors) throws Exception {
-        this.validatePage(request, o, errors, WizardForm.class.cast(o).getPage());
+        int page = WizardForm.class.cast(o).getPage();
+        Set<Integer> numbers = this.getPageNumbers();
+        if (numbers == null) {
+            // every page validates the whole form, so there is no page to skip
+            this.validatePage(request, o, errors, page, null, null);
+            return;
+        }
+        Map<Integer, String> fingerprints = this.getPageFingerprints(request);
+        if (this.isFinishSubmission(request, o)) {
+            // re-validate only pages changed since they last validated cleanly
+            Set<Integer> pages = Sets.newTreeSet(numbers);
+            pages.add(page);
+            boolean failFast = this.getClass().getAnnotation(Form.class).failFast();
+            for (int p : pages) {
+                if (failFast && !errors.isEmpty()) {
+                    break;  // stop at the first page with errors
+                }
+                String fingerprint = this.fingerprint(request, o, p);
+                if (fingerprint == null || !fingerprint.equals(fingerprints.get(p))) {
+                    this.validatePage(request, o, errors, p, fingerprint, fingerprints);
+                }
+            }
+        } else {
+            this.validatePage(request, o, errors, page, this.fingerprint(request, o, page), fingerprints);
+        }
+    }
+
+    /**
+     * Check the field constraints and validate a page, recording its fingerprint if it adds no errors
+     *
+     * @param request      HTTP request
+     * @param o            form object
+     * @param errors       error packet
+     * @param page         page index
+     * @param fingerprint  fingerprint of the page values, or null if they cannot be fingerprinted
+     * @param fingerprints fingerprints of pages that validated cleanly, or null if pages are not fingerprinted
+     * @throws Exception bad things
+     */
+    private void validatePage(HttpServletRequest request, Object o, FormErrors errors, int page, String fingerprint, Map<Integer, String> fingerprints) throws Exception {
+        int size = errors.size();
+        // check field constraints of the page only
+        ValidationPlan.of(o.getClass()).validate(o, errors, this.getPageProperties(request, page));
+        this.validatePage(request, o, errors, page);
+        if (fingerprints == null) {
+            return;
+        } else if (errors.size() == size && fingerprint != null) {
+            fingerprints.put(page, fingerprint);
+        } else {
+            fingerprints.remove(page);
+        }
+    }
+
+    /**
+     * Compute a fingerprint of the values bound on a page, i.e. a hash of their serialized form.  Sub-classes can override to fingerprint values that are not serializable.
+     *
+     * @param request HTTP request
+     * @param o       form object
+     * @param page    page index
+     * @return fingerprint, or null if the page values cannot be fingerprinted and the page must always be validated
+     */
+    protected String fingerprint(HttpServletRequest request, Object o, int page) {
+        Set<String> properties = this.getPageProperties(request, page);
+        HashingOutputStream hash = new HashingOutputStream(Hashing.murmur3_128(), ByteStreams.nullOutputStream());
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(hash);
+            if (properties == null) {
+                out.writeObject(o);
+            } else {
+                for (String property : Sets.newTreeSet(properties)) {
+                    out.writeObject(PropertyUtils.getProperty(o, property));
+                }
+            }
+            out.close();
+            return hash.hash().toString();
+        } catch (Exception e) {
+            log.debug("Unable to fingerprint page " + page + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return indexes of the pages mapped to properties, or null if pages are not mapped
+     */
+    private Set<Integer> getPageNumbers() {
+        WizardPages pages = this.getClass().getAnnotation(WizardPages.class);
+        if (pages == null) {
+            Class<?> formClass = this.getClass().getAnnotation(Form.class).formClass();
+            pages = formClass.getAnnotation(WizardPages.class);
+        }
+        return pages == null ? null : BindingPlan.getPages(pages).keySet();
+    }
+
+    /**
+     * The fingerprints of pages that validated cleanly, kept in the session alongside the form
+     *
+     * @param request HTTP request
+     * @return fingerprints by page index
+     */
+    private Map<Integer, String> getPageFingerprints(HttpServletRequest request) {
+        String name = this.getSessionAttributeName(this.getClass().getAnnotation(Form.class)) + FINGERPRINTS;
+        return WebUtil.getOrCreateSessionAttribute(request, name, new ConcurrentHashMap<Integer, String>());
+    }
+
+    /**
+     * Discard the page fingerprints once the wizard is left
+     *
+     * @param request HTTP request
+     */
+    private void removePageFingerprints(HttpServletRequest request) {
+        WebUtil.removeSessionAttribute(request, this.getSessionAttributeName(this.getClass().getAnnotation(Form.class)) + FINGERPRINTS);
     }
 
     /**
@@ -414,5 +586,8 @@ public abstract class AbstractWizardFormAction extends AbstractFormAction {
 
     public static final String FORM_OBJECT_PARAMS = "_form_object_params";
 
+    private static final String FINGERPRINTS = ".FINGERPRINTS";
+    private static final Set<String> NAVIGATION_PROPERTIES = ImmutableSet.of(WF4JScopeVariable.page.name(), UserScopeVariable.choice.name());
+
     private static final Logger log = LoggerFactory.getLogger(AbstractWizardFormAction.class);
 }
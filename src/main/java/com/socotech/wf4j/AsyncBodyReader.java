@@ -0,0 +1,211 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a request body with non-blocking servlet I/O, so no container thread waits on a slow client.  The body is buffered in a file item, i.e. in memory up to the upload
+ * threshold and on disk past it, and the action is executed on a container thread only once the whole body has arrived.  The action sees a {@link BufferedBodyRequest}
+ * that replays the buffered body.
+ * <p/>
+ * The body must arrive within the read timeout.  The timeout covers reading only: it is cancelled once the body is read, so it does not bound the time taken by the action.
+ */
+final class AsyncBodyReader implements ReadListener, AsyncListener {
+    /**
+     * Constructor
+     *
+     * @param context    async context, started by the caller
+     * @param factory    factory for the body buffer
+     * @param maxBody    maximum body size in bytes, or -1 for no limit
+     * @param timeout    time allowed to read the body in milliseconds, or 0 for no limit
+     * @param executable action to execute once the body is read
+     */
+    AsyncBodyReader(AsyncContext context, FileItemFactory factory, long maxBody, long timeout, WebExecutable executable) {
+        this.context = context;
+        this.maxBody = maxBody;
+        this.timeout = timeout;
+        this.executable = executable;
+        this.request = (HttpServletRequest) context.getRequest();
+        this.body = factory.createItem("body", this.request.getContentType(), false, null);
+    }
+
+    /**
+     * Register this reader with the request input stream
+     *
+     * @throws IOException if the input stream cannot be opened
+     */
+    void start() throws IOException {
+        if (this.maxBody >= 0 && this.request.getContentLengthLong() > this.maxBody) {
+            this.fail(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body exceeds " + this.maxBody + " bytes");
+            return;
+        }
+        this.context.addListener(this);
+        if (this.timeout > 0) {
+            this.deadline = DefaultScheduler.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    fail(HttpServletResponse.SC_REQUEST_TIMEOUT, "Request body not received in time");
+                }
+            }, this.timeout, TimeUnit.MILLISECONDS);
+        }
+        this.out = this.body.getOutputStream();
+        this.in = this.request.getInputStream();
+        this.in.setReadListener(this);
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        int n;
+        // read only what is available, then return the thread to the container
+        while (!this.done.get() && this.in.isReady() && (n = this.in.read(this.buffer)) != -1) {
+            this.read += n;
+            if (this.maxBody >= 0 && this.read > this.maxBody) {
+                this.fail(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body exceeds " + this.maxBody + " bytes");
+                return;
+            }
+            this.out.write(this.buffer, 0, n);
+        }
+    }
+
+    @Override
+    public void onAllDataRead() throws IOException {
+        if (!this.done.compareAndSet(false, true)) {
+            return;
+        }
+        this.cancelDeadline();
+        this.out.close();
+        this.context.start(new Runnable() {
+            @Override
+            public void run() {
+                BufferedBodyRequest req = new BufferedBodyRequest(request, body);
+                try {
+                    executable.execute(req, (HttpServletResponse) context.getResponse());
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                } finally {
+                    req.delete();
+                    context.complete();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.warn("Unable to read request body: " + t.getMessage());
+        this.fail(HttpServletResponse.SC_BAD_REQUEST, "Unable to read request body");
+    }
+
+    /**
+     * The container timeout is not set by default; if one is configured and expires while the body is read, fail as the read timeout would
+     *
+     * @param event async event
+     * @throws IOException never
+     */
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+        this.fail(HttpServletResponse.SC_REQUEST_TIMEOUT, "Request body not received in time");
+    }
+
+    @Override
+    public void onError(AsyncEvent event) throws IOException {
+        this.cleanup();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) throws IOException {
+        this.cleanup();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) throws IOException {
+        // no-op
+    }
+
+    /**
+     * Answer with an error and end the request, unless the action has already answered
+     *
+     * @param status  HTTP status
+     * @param message error message
+     */
+    private void fail(int status, String message) {
+        if (!this.done.compareAndSet(false, true)) {
+            return;
+        }
+        this.cancelDeadline();
+        this.cleanup();
+        try {
+            HttpServletResponse response = (HttpServletResponse) this.context.getResponse();
+            if (!response.isCommitted()) {
+                response.sendError(status, message);
+            }
+        } catch (IOException e) {
+            log.debug(e.getMessage());
+        } finally {
+            this.context.complete();
+        }
+    }
+
+    private void cancelDeadline() {
+        if (this.deadline != null) {
+            this.deadline.cancel(false);
+        }
+    }
+
+    private void cleanup() {
+        try {
+            Closeables.close(this.out, true);
+        } catch (IOException e) {
+            // swallowed
+        }
+        this.body.delete();
+    }
+
+    private long read;
+    private OutputStream out;
+    private ServletInputStream in;
+    private volatile ScheduledFuture<?> deadline;
+    private final long maxBody;
+    private final long timeout;
+    private final FileItem body;
+    private final AsyncContext context;
+    private final HttpServletRequest request;
+    private final WebExecutable executable;
+    private final byte[] buffer = new byte[8192];
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    /**
+     * Lazily created scheduler of read timeouts
+     */
+    private static class DefaultScheduler {
+        static final ScheduledExecutorService INSTANCE;
+
+        static {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("wf4j-body-timeout-%d").setDaemon(true).build());
+            // most reads complete in time, so drop cancelled timeouts rather than keep them queued
+            executor.setRemoveOnCancelPolicy(true);
+            INSTANCE = executor;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncBodyReader.class);
+}
@@ -0,0 +1,25 @@
+package com.socotech.wf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A validator whose checks are slow, i.e. a uniqueness check against a database or an address lookup against a remote service.  Async validators are declared with
+ * {@link Form#asyncValidators()}; every async validator of a form is started before the {@link FormValidator} runs, so their latencies overlap rather than add up.
+ * <p/>
+ * A validator that does not complete within {@link Form#validationTimeout()} is cancelled and reported by {@link AbstractFormAction#onValidationTimeout}, as is a validator
+ * whose work is rejected by a saturated executor.  Instances are cached
+ * like form validators; see {@link ThreadSafe}.
+ *
+ * @param <T> form type
+ */
+public interface AsyncFormValidator<T> {
+    /**
+     * Start validating a form.  This method is called on the request thread and should return promptly, submitting slow work to the executor.
+     *
+     * @param t        form object
+     * @param executor bounded executor shared by async validators
+     * @return errors found, empty if the form is valid
+     */
+    Future<FormErrors> validate(T t, ExecutorService executor);
+}
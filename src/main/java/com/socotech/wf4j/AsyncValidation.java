@@ -0,0 +1,109 @@
+package com.socotech.wf4j;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The async validators started for one form.  Their results are joined with a single deadline and merged into the error packet of the request.
+ */
+final class AsyncValidation {
+    /**
+     * Start an async validator.  A validator rejected by a saturated executor is not run, and is reported as late by {@link #join}.
+     *
+     * @param validator async validator
+     * @param o         form object
+     * @param executor  executor
+     */
+    @SuppressWarnings("unchecked")
+    void start(AsyncFormValidator<?> validator, Object o, ExecutorService executor) {
+        this.validators.add(validator);
+        try {
+            // validators are declared for the form class, so the form object is of the type they validate
+            this.futures.add(((AsyncFormValidator<Object>) validator).validate(o, executor));
+        } catch (RejectedExecutionException e) {
+            this.futures.add(null);
+        }
+    }
+
+    /**
+     * Wait for every validator to complete and merge their errors.  An error already set is not overwritten.
+     *
+     * @param errors        error packet
+     * @param timeoutMillis time allowed for all validators, in milliseconds
+     * @return validators that did not complete in time, which are cancelled, or were rejected by the executor
+     * @throws Exception if a validator fails or the request thread is interrupted
+     */
+    List<AsyncFormValidator<?>> join(FormErrors errors, long timeoutMillis) throws Exception {
+        List<AsyncFormValidator<?>> late = Lists.newArrayList();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (int i = 0; i < this.futures.size(); i++) {
+            Future<FormErrors> future = this.futures.get(i);
+            if (future == null) {
+                late.add(this.validators.get(i));
+                continue;
+            }
+            try {
+                FormErrors found = future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                if (found != null) {
+                    errors.merge(found, false);  // don't overwrite existing property error
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                late.add(this.validators.get(i));
+            } catch (ExecutionException e) {
+                // a failed validator is a failed request, as with a form validator
+                this.cancel();
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        return late;
+    }
+
+    /**
+     * Cancel every validator still running
+     */
+    void cancel() {
+        for (Future<FormErrors> future : this.futures) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return shared executor for validators that wait on I/O; once its queue is full, validation work is rejected rather than run on the request thread, where the
+     * validation timeout could not be enforced
+     */
+    static ExecutorService getDefaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Lazily created default executor
+     */
+    private static class DefaultExecutor {
+        static final ExecutorService INSTANCE;
+
+        static {
+            // validators mostly wait on remote calls, so allow more threads than processors
+            int threads = Runtime.getRuntime().availableProcessors() * 4;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(threads * 16),
+                    new ThreadFactoryBuilder().setNameFormat("wf4j-validation-%d").setDaemon(true).build(), new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            INSTANCE = executor;
+        }
+    }
+
+    private final List<AsyncFormValidator<?>> validators = Lists.newArrayList();
+    private final List<Future<FormErrors>> futures = Lists.newArrayList();
+}
@@ -1,12 +1,20 @@
 package com.socotech.wf4j;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Closeables;
+import org.apache.commons.lang.StringUtils;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,7 +42,84 @@ public abstract class AsynchronousFormAction extends AbstractFormAction {
     }
 
     /**
-     * Returns 'true' because there is no form or success view
+     * Bind a JSON request body directly to the form object when the request declares <code>application/json</code> content.  Otherwise, request parameters are bound as usual.
+     *
+     * @param request incoming HTTP request
+     * @param o       form object
+     * @param errors  error packet
+     * @throws Exception if unhandled exceptions occur while binding
+     */
+    @Override
+    protected void bindFormObject(HttpServletRequest request, Object o, FormErrors errors) throws Exception {
+        if (this.isJsonContent(request)) {
+            Form form = this.getClass().getAnnotation(Form.class);
+            ParameterSnapshot limits = new ParameterSnapshot(this.getParameterLimits(request, form), BindingPlan.getProperties(o));
+            JsonBodyBinder binder = new JsonBodyBinder(this, request, BindingPlan.of(form), limits, errors)
+                    .restrict(this.getBindableProperties(request, o, Collections.<String, String[]>emptyMap()));
+            // JSON is UTF-8 unless the client says otherwise
+            Reader reader = request.getCharacterEncoding() == null ? new InputStreamReader(request.getInputStream(), Charsets.UTF_8) : request.getReader();
+            try {
+                binder.bind(reader, o);
+            } catch (JSONException e) {
+                log.warn(e.getMessage());
+                errors.putMessage(form.name(), Messages.MALFORMED_BODY);  // parser details stay in the log
+            } finally {
+                Closeables.closeQuietly(reader);
+            }
+        } else {
+            super.bindFormObject(request, o, errors);
+        }
+    }
+
+    /**
+     * Bind only the target fields of a field validation request
+     *
+     * @param request    incoming HTTP request
+     * @param o          form object
+     * @param parameters accepted request parameters, before restriction
+     * @return target fields, or null if all properties are bindable
+     */
+    @Override
+    protected Set<String> getBindableProperties(HttpServletRequest request, Object o, Map<String, String[]> parameters) {
+        return this.getTargetFields(request);
+    }
+
+    /**
+     * Find the fields named by a field validation request, i.e. <code>_validate=email</code> or <code>_validate=email,phone</code>.  A field validation request binds and
+     * validates only its target fields and answers with their errors; the form is never handled.
+     *
+     * @param request HTTP request
+     * @return target fields, or null if the request validates the whole form
+     */
+    protected Set<String> getTargetFields(HttpServletRequest request) {
+        String[] values = request.getParameterValues(VALIDATE);
+        if (values == null) {
+            return null;
+        }
+        ImmutableSet.Builder<String> fields = ImmutableSet.builder();
+        for (String value : values) {
+            for (String field : StringUtils.split(value, ',')) {
+                if (StringUtils.isNotBlank(field)) {
+                    fields.add(field.trim());
+                }
+            }
+        }
+        return fields.build();
+    }
+
+    /**
+     * Determine if the request body is JSON
+     *
+     * @param request HTTP request
+     * @return true, if content type is application/json
+     */
+    protected boolean isJsonContent(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && StringUtils.substringBefore(contentType, ";").trim().equalsIgnoreCase("application/json");
+    }
+
+    /**
+     * Returns 'true' because there is no form or success view, unless the request validates specific fields
      *
      * @param request HTTP request
      * @param o       form object
@@ -42,11 +127,11 @@ public abstract class AsynchronousFormAction extends AbstractFormAction {
      */
     @Override
     protected boolean isFormSubmission(HttpServletRequest request, Object o) {
-        return true;
+        return this.getTargetFields(request) == null;
     }
 
     /**
-     * Does nothing because there is no form view.
+     * Does nothing because there is no form view.  A field validation request is answered here instead: its target fields are validated and their errors written.
      *
      * @param request  HTTP request
      * @param response HTTP response
@@ -56,7 +141,37 @@ public abstract class AsynchronousFormAction extends AbstractFormAction {
      */
     @Override
     protected void showForm(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
-        // noop
+        Set<String> fields = this.getTargetFields(request);
+        if (fields != null) {
+            if (!this.suppressValidation(request, o, errors)) {
+                this.validateFields(request, o, fields, errors);
+            }
+            this.writeErrors(response, errors, fields);
+        }
+    }
+
+    /**
+     * Validate the target fields of a field validation request.  Only the constraints declared on those fields are checked, and the form validator is called per field if it
+     * is a {@link FieldValidator}.  Async validators are not run.
+     *
+     * @param request HTTP request
+     * @param o       form object
+     * @param fields  target fields
+     * @param errors  error packet
+     * @throws Exception if the validator cannot be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    protected void validateFields(HttpServletRequest request, Object o, Set<String> fields, FormErrors errors) throws Exception {
+        Form form = this.getClass().getAnnotation(Form.class);
+        ValidationPlan.of(o.getClass()).validate(o, errors, fields);
+        if (!form.validatorClass().equals(void.class)) {
+            FormValidator<Object> validator = this.getFormValidator(request, form);
+            if (validator instanceof FieldValidator) {
+                for (String field : fields) {
+                    ((FieldValidator) validator).validateField(o, field, errors);
+                }
+            }
+        }
     }
 
     /**
@@ -74,20 +189,51 @@ public abstract class AsynchronousFormAction extends AbstractFormAction {
 
     @Override
     protected void onBindingAndValidationErrors(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
-        JSONObject json = new JSONObject();
-        PrintWriter writer = response.getWriter();
+        this.writeErrors(response, errors, null);
+    }
+
+    /**
+     * Write errors as JSON, i.e. <code>{"errors": [{"key": "email", "value": "Invalid email"}]}</code>
+     *
+     * @param response HTTP response
+     * @param errors   error packet
+     * @param fields   write only errors of these fields, or null for every error
+     * @throws IOException if the response cannot be written
+     */
+    private void writeErrors(HttpServletResponse response, FormErrors errors, Set<String> fields) throws IOException {
+        JsonWriter json = this.newJsonWriter(response);
         try {
-            json.put("errors", errors.toJSON());
-            writer.write(json.toString());
-        } catch (JSONException e) {
-            log.warn(e.getMessage(), e);
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            json.beginObject().name("errors").value(errors, fields).endObject();
         } finally {
-            writer.flush();
-            writer.close();
+            json.close();
         }
     }
 
+    /**
+     * Start a JSON response.  Errors are written this way, and sub-classes can do the same for successful responses, i.e. in {@link #handleFormSubmission}:
+     * <pre>
+     * JsonWriter json = this.newJsonWriter(response);
+     * try {
+     *     json.beginObject().name("id").value(id).endObject();
+     * } finally {
+     *     json.close();
+     * }
+     * </pre>
+     *
+     * @param response HTTP response
+     * @return writer over the response, which the caller must close
+     * @throws IOException if the response cannot be written
+     */
+    protected JsonWriter newJsonWriter(HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        return new JsonWriter(response.getWriter());
+    }
+
+    /**
+     * The request parameter that names the fields of a field validation request
+     */
+    public static final String VALIDATE = "_validate";
+
     private static Logger log = LoggerFactory.getLogger(AsynchronousFormAction.class);
 
 }
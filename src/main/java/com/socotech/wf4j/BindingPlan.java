@@ -0,0 +1,238 @@
+package com.socotech.wf4j;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.beanutils.PropertyUtils;
+
+/**
+ * Binding metadata computed once per form specification and shared by every request that binds it.
+ */
+final class BindingPlan {
+    /**
+     * Constructor
+     *
+     * @param form form spec
+     */
+    private BindingPlan(Form form) {
+        this.form = form;
+        this.limits = ParameterLimits.of(form);
+        this.uploadLimits = UploadLimits.of(form);
+        this.constructor = FormConstructor.of(form.formClass());
+        this.properties = this.constructor == null ? getProperties(form.formClass()) : this.constructor.getProperties();
+        for (FormBinder binder : form.binders()) {
+            this.patterns.add(Pattern.compile(binder.property()));
+        }
+    }
+
+    /**
+     * Find or build the plan for a form specification
+     *
+     * @param form form spec
+     * @return binding plan
+     */
+    static BindingPlan of(Form form) {
+        BindingPlan plan = PLANS.get(form);
+        if (plan == null) {
+            BindingPlan newbie = new BindingPlan(form);
+            plan = PLANS.putIfAbsent(form, newbie);
+            if (plan == null) {
+                plan = newbie;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Find or compute the names of the properties of a bean to which request parameters can be bound
+     *
+     * @param bean bean or form arguments
+     * @return set of property names
+     */
+    static Set<String> getProperties(Object bean) {
+        if (bean instanceof FormArguments) {
+            return ((FormArguments) bean).getConstructor().getProperties();
+        }
+        return getProperties(bean.getClass());
+    }
+
+    /**
+     * Find or compute the names of the properties to which request parameters can be bound
+     *
+     * @param clazz bean class
+     * @return set of property names
+     */
+    static Set<String> getProperties(Class<?> clazz) {
+        Set<String> names = PROPERTIES.get(clazz);
+        if (names == null) {
+            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+            // simple, indexed and nested properties
+            for (PropertyDescriptor pd : PropertyUtils.getPropertyDescriptors(clazz)) {
+                if (!"class".equals(pd.getName())) {
+                    builder.add(pd.getName());
+                }
+            }
+            // mapped properties, i.e. setFoo(String key, Object value)
+            for (Method method : clazz.getMethods()) {
+                Class<?>[] types = method.getParameterTypes();
+                if (method.getName().startsWith("set") && method.getName().length() > 3 && types.length == 2 && types[0] == String.class) {
+                    String name = method.getName().substring(3);
+                    builder.add(Character.toLowerCase(name.charAt(0)) + name.substring(1));
+                }
+            }
+            names = builder.build();
+            PROPERTIES.putIfAbsent(clazz, names);
+        }
+        return names;
+    }
+
+    /**
+     * Find or compute the properties bound on each page of a wizard
+     *
+     * @param pages page mappings
+     * @return map of page index to property names or paths
+     */
+    static Map<Integer, Set<String>> getPages(WizardPages pages) {
+        Map<Integer, Set<String>> map = PAGES.get(pages);
+        if (map == null) {
+            ImmutableMap.Builder<Integer, Set<String>> builder = ImmutableMap.builder();
+            for (WizardPage page : pages.value()) {
+                builder.put(page.page(), ImmutableSet.copyOf(page.properties()));
+            }
+            map = builder.build();
+            PAGES.putIfAbsent(pages, map);
+        }
+        return map;
+    }
+
+    /**
+     * Determine if a parameter name falls within a set of property names or paths, i.e. <code>address.street[0]</code> falls within <code>address</code>.
+     *
+     * @param paths property names or paths
+     * @param name  parameter name
+     * @return true, if name is the same as or nested within one of the paths
+     */
+    static boolean contains(Set<String> paths, String name) {
+        String path = Patterns.INDEX_REFERENCE.matcher(name).replaceAll("");
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if ((c == '.' || c == '(') && paths.contains(path.substring(0, i))) {
+                return true;
+            }
+        }
+        return paths.contains(path);
+    }
+
+    /**
+     * Determine if a parameter name is a parent of one of a set of property paths, i.e. <code>address</code> is a parent of <code>address.zip</code>.
+     *
+     * @param paths property names or paths
+     * @param name  parameter name
+     * @return true, if one of the paths is nested within name
+     */
+    static boolean isParent(Set<String> paths, String name) {
+        String parent = Patterns.INDEX_REFERENCE.matcher(name).replaceAll("");
+        for (String path : paths) {
+            path = Patterns.INDEX_REFERENCE.matcher(path).replaceAll("");
+            if (path.length() > parent.length() && path.startsWith(parent) && (path.charAt(parent.length()) == '.' || path.charAt(parent.length()) == '(')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Isolate the top-level property of a simple, indexed, mapped or nested parameter name
+     *
+     * @param name parameter name
+     * @return top-level property name
+     */
+    static String getRootProperty(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.' || c == '[' || c == '(') {
+                return name.substring(0, i);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Count the nesting/index depth of a parameter name
+     *
+     * @param name parameter name
+     * @return depth
+     */
+    static int getDepth(String name) {
+        int depth = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.' || c == '[' || c == '(') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Extract binders for a specific form property.  Matches are computed once per path.
+     *
+     * @param path path to property
+     * @return set of binders
+     */
+    Set<FormBinder> getBinders(String path) {
+        Set<FormBinder> set = this.binders.get(path);
+        if (set == null) {
+            ImmutableSet.Builder<FormBinder> builder = ImmutableSet.builder();
+            FormBinder[] array = this.form.binders();
+            for (int i = 0; i < array.length; i++) {
+                if (array[i].property().equals(path) || this.patterns.get(i).matcher(path).matches()) {
+                    builder.add(array[i]);
+                }
+            }
+            set = builder.build();
+            this.binders.putIfAbsent(path, set);
+        }
+        return set;
+    }
+
+    /**
+     * @return constructor of an immutable form class, or null if form class is a mutable bean
+     */
+    FormConstructor getConstructor() {
+        return constructor;
+    }
+
+    ParameterLimits getLimits() {
+        return limits;
+    }
+
+    Set<String> getProperties() {
+        return properties;
+    }
+
+    UploadLimits getUploadLimits() {
+        return uploadLimits;
+    }
+
+    private final Form form;
+    private final ParameterLimits limits;
+    private final UploadLimits uploadLimits;
+    private final Set<String> properties;
+    private final FormConstructor constructor;
+    private final List<Pattern> patterns = Lists.newArrayList();
+    private final ConcurrentMap<String, Set<FormBinder>> binders = Maps.newConcurrentMap();
+
+    private static final ConcurrentMap<Form, BindingPlan> PLANS = Maps.newConcurrentMap();
+    private static final ConcurrentMap<Class<?>, Set<String>> PROPERTIES = Maps.newConcurrentMap();
+    private static final ConcurrentMap<WizardPages, Map<Integer, Set<String>>> PAGES = Maps.newConcurrentMap();
+}
@@ -0,0 +1,65 @@
+package com.socotech.wf4j;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of fixed-size byte buffers.  Buffers are handed out on demand and kept for reuse when released, up to the capacity of the pool; buffers released to a full
+ * pool are left to the garbage collector.
+ */
+public final class BufferPool {
+    /**
+     * Constructor
+     *
+     * @param chunkSize size of each buffer, in bytes
+     * @param capacity  maximum number of idle buffers kept for reuse
+     * @param direct    if true, buffers are allocated off-heap
+     */
+    public BufferPool(int chunkSize, int capacity, boolean direct) {
+        this.direct = direct;
+        this.chunkSize = chunkSize;
+        this.idle = new ArrayBlockingQueue<ByteBuffer>(capacity);
+    }
+
+    /**
+     * @return an empty buffer, reused if one is idle
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = this.idle.poll();
+        if (buffer == null) {
+            buffer = this.direct ? ByteBuffer.allocateDirect(this.chunkSize) : ByteBuffer.allocate(this.chunkSize);
+        }
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool.  The caller must not use the buffer, or any view of it, afterwards.
+     *
+     * @param buffer buffer acquired from this pool
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == this.chunkSize && buffer.isDirect() == this.direct) {
+            buffer.clear();
+            this.idle.offer(buffer);
+        }
+    }
+
+    /**
+     * @return size of each buffer, in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return number of idle buffers
+     */
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    private final boolean direct;
+    private final int chunkSize;
+    private final BlockingQueue<ByteBuffer> idle;
+}
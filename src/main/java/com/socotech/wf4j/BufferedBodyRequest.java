@@ -0,0 +1,181 @@
+package com.socotech.wf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A request whose body was read ahead of time, i.e. by {@link AsyncBodyReader}.  The body is replayed from a file item held in memory or spooled to disk, and the parameters of
+ * the query string and of an url-encoded body are parsed from the buffered copy, since the container can no longer read them from the consumed input stream.
+ */
+final class BufferedBodyRequest extends HttpServletRequestWrapper {
+    /**
+     * Constructor
+     *
+     * @param request original request
+     * @param body    buffered request body
+     */
+    BufferedBodyRequest(HttpServletRequest request, FileItem body) {
+        super(request);
+        this.body = body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        final InputStream in = this.body.getInputStream();
+        return new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                this.finished = b < 0;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                this.finished = n < 0;
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return finished;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener listener) {
+                throw new IllegalStateException("Request body has already been read");
+            }
+
+            private boolean finished;
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(this.getInputStream(), this.getEncoding()));
+    }
+
+    @Override
+    public int getContentLength() {
+        return (int) Math.min(this.body.getSize(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return this.body.getSize();
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = this.getParameterMap().get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = this.getParameterMap().get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(this.getParameterMap().keySet());
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (this.parameters == null) {
+            Map<String, List<String>> values = Maps.newLinkedHashMap();
+            String encoding = this.getEncoding();
+            try {
+                parse(this.getQueryString(), encoding, values);
+                if (StringUtils.startsWithIgnoreCase(this.getContentType(), FORM_CONTENT_TYPE)) {
+                    parse(this.body.getString(encoding), encoding, values);
+                }
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            Map<String, String[]> parameters = Maps.newLinkedHashMap();
+            for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+                parameters.put(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+            }
+            this.parameters = Collections.unmodifiableMap(parameters);
+        }
+        return parameters;
+    }
+
+    /**
+     * Release the buffered body
+     */
+    void delete() {
+        this.body.delete();
+    }
+
+    private String getEncoding() {
+        return this.getCharacterEncoding() != null ? this.getCharacterEncoding() : DEFAULT_ENCODING;
+    }
+
+    /**
+     * Parse url-encoded name/value pairs.  Pairs with malformed escapes are skipped.
+     *
+     * @param query    url-encoded pairs, if any
+     * @param encoding character encoding
+     * @param values   values by name
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     */
+    private static void parse(String query, String encoding, Map<String, List<String>> values) throws UnsupportedEncodingException {
+        if (StringUtils.isEmpty(query)) {
+            return;
+        }
+        for (String pair : StringUtils.split(query, '&')) {
+            int eq = pair.indexOf('=');
+            String name, value;
+            try {
+                name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), encoding);
+                value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), encoding);
+            } catch (IllegalArgumentException e) {
+                // malformed escape, i.e. "%zz"
+                continue;
+            }
+            List<String> list = values.get(name);
+            if (list == null) {
+                values.put(name, list = Lists.newArrayListWithCapacity(1));
+            }
+            list.add(value);
+        }
+    }
+
+    private final FileItem body;
+    private Map<String, String[]> parameters;
+
+    private static final String DEFAULT_ENCODING = "ISO-8859-1";
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+}
@@ -17,7 +17,10 @@ import org.apache.commons.fileupload.FileItemHeaders;
  * User: marc
  * Date: 2/26/17
  * Time: 11:00 AM
+ *
+ * @deprecated every read copies the content; use {@link PooledFileItemFactory}
  */
+@Deprecated
 public class ByteArrayFileItem implements FileItem {
     private String fileName;
     private String fieldName;
@@ -0,0 +1,204 @@
+package com.socotech.wf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local store for the chunks of resumable uploads.  Each upload is a directory of numbered chunk files; a chunk is written to a temporary file first, so an interrupted chunk
+ * is never counted as received.  Once every chunk is received, the chunks are assembled into a single file without copying them through the heap.
+ * <p/>
+ * Uploads that receive no chunk for longer than the stale period are purged.
+ */
+public class ChunkStore {
+    /**
+     * Constructor
+     *
+     * @param directory   root directory, created if missing
+     * @param staleMillis idle time after which a partial upload is purged
+     */
+    public ChunkStore(File directory, long staleMillis) {
+        this.root = directory.toPath();
+        this.staleMillis = staleMillis;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Unable to create chunk store " + directory);
+        }
+    }
+
+    /**
+     * Store a chunk, replacing any previous copy
+     *
+     * @param uploadId upload identifier
+     * @param index    chunk index
+     * @param in       chunk content
+     * @throws IOException if the chunk cannot be stored
+     */
+    public void write(String uploadId, int index, InputStream in) throws IOException {
+        this.purgeIfDue();
+        Path dir = Files.createDirectories(this.getDirectory(uploadId));
+        Path part = Files.createTempFile(dir, "chunk-" + index, ".part");
+        try {
+            Files.copy(in, part, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(part, dir.resolve(CHUNK_PREFIX + index), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * Determine which chunks of an upload have been received
+     *
+     * @param uploadId upload identifier
+     * @param chunks   total number of chunks
+     * @return bit set of received chunk indexes
+     * @throws IOException if the store cannot be read
+     */
+    public BitSet getReceived(String uploadId, int chunks) throws IOException {
+        BitSet received = new BitSet(chunks);
+        Path dir = this.getDirectory(uploadId);
+        if (Files.isDirectory(dir)) {
+            DirectoryStream<Path> files = Files.newDirectoryStream(dir, CHUNK_PREFIX + "*");
+            try {
+                for (Path file : files) {
+                    String suffix = file.getFileName().toString().substring(CHUNK_PREFIX.length());
+                    if (NUMBER.matcher(suffix).matches() && Integer.parseInt(suffix) < chunks) {
+                        received.set(Integer.parseInt(suffix));
+                    }
+                }
+            } finally {
+                Closeables.close(files, true);
+            }
+        }
+        return received;
+    }
+
+    /**
+     * Assemble a complete upload into a single file and remove its chunks.  If two requests complete the same upload, only one assembles it.
+     *
+     * @param uploadId upload identifier
+     * @param chunks   total number of chunks
+     * @return assembled file, or null if the upload is being assembled by another request
+     * @throws IOException if the chunks cannot be assembled
+     */
+    public Path assemble(String uploadId, int chunks) throws IOException {
+        Path dir;
+        try {
+            // claim the upload
+            dir = Files.move(this.getDirectory(uploadId), this.root.resolve(uploadId + ".assembling"), StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        Path target = Files.createTempFile(this.root, uploadId + "-", ".upload");
+        try {
+            FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE);
+            try {
+                for (int i = 0; i < chunks; i++) {
+                    FileChannel in = FileChannel.open(dir.resolve(CHUNK_PREFIX + i), StandardOpenOption.READ);
+                    try {
+                        long position = 0, size = in.size();
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    } finally {
+                        in.close();
+                    }
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        } finally {
+            delete(dir);
+        }
+        return target;
+    }
+
+    /**
+     * Remove partial uploads that have been idle for longer than the stale period
+     *
+     * @return number of uploads removed
+     * @throws IOException if the store cannot be read
+     */
+    public int purge() throws IOException {
+        int count = 0;
+        long cutoff = System.currentTimeMillis() - this.staleMillis;
+        DirectoryStream<Path> dirs = Files.newDirectoryStream(this.root);
+        try {
+            for (Path dir : dirs) {
+                if (Files.isDirectory(dir) && Files.getLastModifiedTime(dir).toMillis() < cutoff) {
+                    delete(dir);
+                    count++;
+                }
+            }
+        } finally {
+            Closeables.close(dirs, true);
+        }
+        return count;
+    }
+
+    /**
+     * @param uploadId upload identifier
+     * @return true, if identifier is safe to use as a file name
+     */
+    public static boolean isValidId(String uploadId) {
+        return uploadId != null && UPLOAD_ID.matcher(uploadId).matches();
+    }
+
+    private Path getDirectory(String uploadId) {
+        Preconditions.checkArgument(isValidId(uploadId), "invalid upload id");
+        return this.root.resolve(uploadId);
+    }
+
+    private void purgeIfDue() {
+        long now = System.currentTimeMillis(), last = this.lastPurge.get();
+        if (now - last > PURGE_INTERVAL && this.lastPurge.compareAndSet(last, now)) {
+            try {
+                int count = this.purge();
+                if (count > 0) {
+                    log.info("Purged " + count + " stale partial uploads");
+                }
+            } catch (IOException e) {
+                log.warn("Unable to purge stale uploads: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        DirectoryStream<Path> files = Files.newDirectoryStream(dir);
+        try {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } finally {
+            Closeables.close(files, true);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private final Path root;
+    private final long staleMillis;
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    private static final String CHUNK_PREFIX = "chunk.";
+    private static final long PURGE_INTERVAL = 60 * 1000L;
+    private static final Pattern NUMBER = Pattern.compile("\\d{1,9}");
+    private static final Pattern UPLOAD_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final Logger log = LoggerFactory.getLogger(ChunkStore.class);
+}
@@ -0,0 +1,27 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the relative cost of a {@link FormValidator} or {@link AsyncFormValidator}.  When an action fails fast, field constraints and validators run together in order of
+ * cost and validation stops at the first error.  Field constraints cost between 0 and 10 by default; unmarked form validators cost {@link #DEFAULT_VALIDATOR} and unmarked
+ * async validators cost {@link #DEFAULT_ASYNC_VALIDATOR}.
+ *
+ * @see Form#failFast()
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cost {
+    /**
+     * @return relative cost
+     */
+    int value();
+
+    int DEFAULT_VALIDATOR = 100;
+    int DEFAULT_ASYNC_VALIDATOR = 1000;
+}
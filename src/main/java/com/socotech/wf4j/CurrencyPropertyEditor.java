@@ -84,8 +84,7 @@ public class CurrencyPropertyEditor extends PropertyEditorSupport {
                 setValue(biggie);
             } catch (IllegalArgumentException iae) {
                 // Rethrow but with a friendlier error message
-                String ex = "Please enter a number in the format '" + this.numberFormat.format(999.99) + "'";
-                throw new IllegalArgumentException(ex);
+                throw new InvalidValueException(Messages.INVALID_NUMBER, this.numberFormat.format(999.99));
             }
         }
     }
@@ -3,7 +3,10 @@ package com.socotech.wf4j;
 import java.beans.PropertyEditorSupport;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -43,9 +46,16 @@ public class DatePropertyEditor extends PropertyEditorSupport {
                 }
             }
             // give up
-            throw new IllegalArgumentException("Invalid format: " + text);
+            throw new InvalidValueException(Messages.INVALID_DATE, text);
         }
     }
 
+    /**
+     * @return date patterns accepted, in the order they are tried
+     */
+    public static List<String> getPatterns() {
+        return Collections.unmodifiableList(Arrays.asList(patterns));
+    }
+
     private static String[] patterns = {"MM/yy", "MM/yyyy", "MM/dd/yyyy"};
 }
\ No newline at end of file
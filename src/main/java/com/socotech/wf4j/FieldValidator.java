@@ -0,0 +1,18 @@
+package com.socotech.wf4j;
+
+/**
+ * A form validator that can also check a single field, i.e. for live feedback while a user types.  When an {@link AsynchronousFormAction} is asked to validate specific
+ * fields, a form validator that implements this interface is called once per field; any other form validator is skipped and only field constraints are checked.
+ *
+ * @param <T> form type
+ */
+public interface FieldValidator<T> extends FormValidator<T> {
+    /**
+     * Validate a single field of a form
+     *
+     * @param t      form object
+     * @param field  property name
+     * @param errors error packet
+     */
+    void validateField(T t, String field, FormErrors errors);
+}
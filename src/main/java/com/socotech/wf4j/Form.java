@@ -36,6 +36,32 @@ public @interface Form {
 	@SuppressWarnings("unchecked")
 	Class validatorClass() default void.class;
 
+	/**
+	 * Optional validators that check the form concurrently, i.e. against remote services.  They run alongside the validator class and must complete within the
+	 * validation timeout.  A wizard runs them once, when it is finished, rather than on each page.
+	 *
+	 * @return async validator classes
+	 * @see AsyncFormValidator
+	 */
+	Class<?>[] asyncValidators() default {};
+
+	/**
+	 * The time allowed for async validators to complete.  Validators still running at the deadline are cancelled and reported as errors.
+	 *
+	 * @return timeout in milliseconds
+	 */
+	long validationTimeout() default 5000;
+
+	/**
+	 * Stop validating at the first error.  Field constraints and validators run together, cheapest first, and the async validators run one at a time, so a request that
+	 * fails a cheap check never reaches an expensive one.  Each form of a {@link Forms multi-form} action stops at its own first error.  A wizard validates page by page, so
+	 * on finish it stops at the first page with errors, and runs its async validators one at a time only once every page is valid.
+	 *
+	 * @return true, to stop at the first error
+	 * @see Cost
+	 */
+	boolean failFast() default false;
+
 	/**
 	 * Binders to use on form properties
 	 *
@@ -49,4 +75,68 @@ public @interface Form {
 	 * @return true if session form
 	 */
 	boolean sessionForm() default false;
+
+	/**
+	 * The maximum number of parameter values accepted in a single request.  Requests exceeding this limit are rejected before binding.
+	 *
+	 * @return maximum parameter count, or -1 for no limit
+	 */
+	int maxParameters() default -1;
+
+	/**
+	 * The maximum combined length of all parameter values accepted in a single request.  Requests exceeding this limit are rejected before binding.
+	 *
+	 * @return maximum total value length, or -1 for no limit
+	 */
+	long maxParameterSize() default -1;
+
+	/**
+	 * The maximum nesting/index depth of a parameter name, i.e. <code>a.b[0].c</code> has a depth of 3.  Requests exceeding this limit are rejected before binding.
+	 *
+	 * @return maximum name depth, or -1 for no limit
+	 */
+	int maxParameterDepth() default -1;
+
+	/**
+	 * The prefix of the request parameters bound to this form when several forms are posted together, i.e. <code>search.</code>
+	 *
+	 * @return parameter prefix
+	 * @see Forms
+	 */
+	String prefix() default "";
+
+	/**
+	 * The maximum size of each uploaded file.  Uploads exceeding this limit are rejected while the request is streamed.
+	 *
+	 * @return maximum size in bytes, or -1 for no limit
+	 */
+	long maxFileSize() default -1;
+
+	/**
+	 * The maximum size of a multipart request.  Requests exceeding this limit are rejected while the request is streamed.
+	 *
+	 * @return maximum size in bytes, or -1 for no limit
+	 */
+	long maxUploadSize() default -1;
+
+	/**
+	 * The maximum number of files uploaded in a single request
+	 *
+	 * @return maximum file count, or -1 for no limit
+	 */
+	int maxFiles() default -1;
+
+	/**
+	 * The content types accepted for uploaded files, i.e. <code>image/png</code> or <code>image/*</code>
+	 *
+	 * @return accepted content types, or empty to accept any type
+	 */
+	String[] uploadTypes() default {};
+
+	/**
+	 * Upload limits of specific form properties
+	 *
+	 * @return array of upload limits
+	 */
+	FormUpload[] uploads() default {};
 }
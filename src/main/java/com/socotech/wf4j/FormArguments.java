@@ -0,0 +1,152 @@
+package com.socotech.wf4j;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Defaults;
+import com.google.common.primitives.Primitives;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaClass;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Collects the constructor or builder arguments of an immutable form while request parameters are bound.  Arguments are held in an array sized by the {@link FormConstructor},
+ * and the form object is created by a single call to {@link #newInstance(FormErrors, String)} once binding is complete.
+ */
+public final class FormArguments implements DynaBean {
+    /**
+     * Constructor
+     *
+     * @param constructor form constructor
+     */
+    FormArguments(FormConstructor constructor) {
+        this.constructor = constructor;
+        Class<?>[] types = constructor.getTypes();
+        this.values = new Object[types.length];
+        this.assigned = new boolean[types.length];
+        for (int i = 0; i < types.length; i++) {
+            this.values[i] = Defaults.defaultValue(types[i]);
+        }
+    }
+
+    /**
+     * Construct the form object.  A failure to construct is reported under the given error code.
+     *
+     * @param errors error packet
+     * @param code   error code used if construction fails
+     * @return form object, or this argument bean if construction fails
+     */
+    public Object newInstance(FormErrors errors, String code) {
+        try {
+            return this.constructor.newInstance(this.values, this.assigned);
+        } catch (Exception e) {
+            if (!errors.isSet(code)) {  // don't overwrite existing property error
+                errors.put(code, ExceptionUtils.getRootCauseMessage(e));
+            }
+            return this;
+        }
+    }
+
+    FormConstructor getConstructor() {
+        return constructor;
+    }
+
+    @Override
+    public boolean contains(String name, String key) {
+        Object value = this.get(name);
+        return value instanceof Map && ((Map) value).containsKey(key);
+    }
+
+    @Override
+    public Object get(String name) {
+        return this.values[this.indexOf(name)];
+    }
+
+    @Override
+    public Object get(String name, int index) {
+        Object value = this.get(name);
+        if (value == null) {
+            throw new NullPointerException("No indexed value for '" + name + "[" + index + "]'");
+        } else if (value.getClass().isArray()) {
+            return Array.get(value, index);
+        } else if (value instanceof List) {
+            return ((List) value).get(index);
+        }
+        throw new IllegalArgumentException("Non-indexed property for '" + name + "[" + index + "]'");
+    }
+
+    @Override
+    public Object get(String name, String key) {
+        Object value = this.get(name);
+        if (value instanceof Map) {
+            return ((Map) value).get(key);
+        }
+        throw new IllegalArgumentException("Non-mapped property for '" + name + "(" + key + ")'");
+    }
+
+    @Override
+    public DynaClass getDynaClass() {
+        return this.constructor.getDynaClass();
+    }
+
+    @Override
+    public void remove(String name, String key) {
+        Object value = this.get(name);
+        if (value instanceof Map) {
+            ((Map) value).remove(key);
+        }
+    }
+
+    @Override
+    public void set(String name, Object value) {
+        int index = this.indexOf(name);
+        Class<?> type = this.constructor.getTypes()[index];
+        if (value == null) {
+            // primitives fall back to their default value
+            value = Defaults.defaultValue(type);
+        } else if (!Primitives.wrap(type).isInstance(value)) {
+            throw new IllegalArgumentException("Cannot assign value of type '" + value.getClass().getName() + "' to property '" + name + "' of type '" + type.getName() + "'");
+        }
+        this.values[index] = value;
+        this.assigned[index] = true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void set(String name, int index, Object value) {
+        Object indexed = this.get(name);
+        if (indexed == null) {
+            throw new NullPointerException("No indexed value for '" + name + "[" + index + "]'");
+        } else if (indexed.getClass().isArray()) {
+            Array.set(indexed, index, value);
+        } else if (indexed instanceof List) {
+            ((List) indexed).set(index, value);
+        } else {
+            throw new IllegalArgumentException("Non-indexed property for '" + name + "[" + index + "]'");
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void set(String name, String key, Object value) {
+        Object mapped = this.get(name);
+        if (mapped instanceof Map) {
+            ((Map) mapped).put(key, value);
+        } else {
+            throw new IllegalArgumentException("Non-mapped property for '" + name + "(" + key + ")'");
+        }
+    }
+
+    private int indexOf(String name) {
+        int index = this.constructor.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid property name '" + name + "' (DynaClass is '" + this.getDynaClass().getName() + "')");
+        }
+        return index;
+    }
+
+    private final Object[] values;
+    private final boolean[] assigned;
+    private final FormConstructor constructor;
+}
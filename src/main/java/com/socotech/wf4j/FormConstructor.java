@@ -0,0 +1,173 @@
+package com.socotech.wf4j;
+
+import java.beans.ConstructorProperties;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.DynaClass;
+import org.apache.commons.beanutils.DynaProperty;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Describes how an immutable form class is constructed.  A form class without a public no-arg constructor is bound through either:
+ * <ul>
+ * <li>a public constructor annotated with {@link ConstructorProperties}, which names each constructor argument; or</li>
+ * <li>a public static <code>builder()</code> method whose result has a public <code>build()</code> method.  Builder properties are the one-argument methods of the builder,
+ * named either <code>foo</code>, <code>setFoo</code> or <code>withFoo</code>.</li>
+ * </ul>
+ * Request parameters are bound to a {@link FormArguments} bean and the form object is constructed once all arguments are bound.  Immutable forms cannot be session forms.
+ */
+final class FormConstructor {
+    /**
+     * Constructor
+     *
+     * @param formClass   form class
+     * @param names       argument names
+     * @param types       argument types
+     * @param constructor canonical constructor, if any
+     * @param builder     static builder factory method, if any
+     * @param setters     builder methods, in argument order
+     * @param build       builder completion method
+     */
+    private FormConstructor(Class<?> formClass, String[] names, Class<?>[] types, Constructor<?> constructor, Method builder, Method[] setters, Method build) {
+        this.types = types;
+        this.build = build;
+        this.setters = setters;
+        this.builder = builder;
+        this.constructor = constructor;
+        DynaProperty[] properties = new DynaProperty[names.length];
+        ImmutableMap.Builder<String, Integer> indexes = ImmutableMap.builder();
+        for (int i = 0; i < names.length; i++) {
+            properties[i] = new DynaProperty(names[i], types[i]);
+            indexes.put(names[i], i);
+        }
+        this.indexes = indexes.build();
+        this.dynaClass = new BasicDynaClass(formClass.getName(), null, properties);
+    }
+
+    /**
+     * Describe how a form class is constructed
+     *
+     * @param formClass form class
+     * @return constructor description, or null if the form class has a public no-arg constructor
+     */
+    static FormConstructor of(Class<?> formClass) {
+        try {
+            formClass.getConstructor();
+            return null;
+        } catch (NoSuchMethodException e) {
+            // not a mutable bean
+        }
+        // canonical constructor?
+        for (Constructor<?> constructor : formClass.getConstructors()) {
+            ConstructorProperties cp = constructor.getAnnotation(ConstructorProperties.class);
+            if (cp != null && cp.value().length == constructor.getParameterTypes().length) {
+                return new FormConstructor(formClass, cp.value(), constructor.getParameterTypes(), constructor, null, null, null);
+            }
+        }
+        // builder?
+        try {
+            Method builder = formClass.getMethod("builder");
+            if (Modifier.isStatic(builder.getModifiers())) {
+                Class<?> builderClass = builder.getReturnType();
+                Method build = builderClass.getMethod("build");
+                Map<String, Method> setters = Maps.newLinkedHashMap();
+                for (Method method : builderClass.getMethods()) {
+                    if (method.getParameterTypes().length == 1 && !Modifier.isStatic(method.getModifiers()) && method.getDeclaringClass() != Object.class) {
+                        String name = getBuilderProperty(method.getName());
+                        if (!setters.containsKey(name)) {
+                            setters.put(name, method);
+                        }
+                    }
+                }
+                List<Class<?>> types = Lists.newArrayList();
+                for (Method setter : setters.values()) {
+                    types.add(setter.getParameterTypes()[0]);
+                }
+                String[] names = setters.keySet().toArray(new String[setters.size()]);
+                return new FormConstructor(formClass, names, types.toArray(new Class<?>[types.size()]), null, builder, setters.values().toArray(new Method[setters.size()]), build);
+            }
+        } catch (NoSuchMethodException e) {
+            // no builder
+        }
+        throw new IllegalStateException(formClass.getName() + " has no public no-arg constructor, @ConstructorProperties constructor or builder");
+    }
+
+    /**
+     * @return a new, empty argument bean sized for this constructor
+     */
+    FormArguments newArguments() {
+        return new FormArguments(this);
+    }
+
+    /**
+     * Construct the form object in a single call
+     *
+     * @param values   argument values
+     * @param assigned flags indicating which arguments were bound
+     * @return form object
+     * @throws Exception if the constructor or builder fails
+     */
+    Object newInstance(Object[] values, boolean[] assigned) throws Exception {
+        if (this.constructor != null) {
+            return this.constructor.newInstance(values);
+        }
+        Object builder = this.builder.invoke(null);
+        for (int i = 0; i < this.setters.length; i++) {
+            // builder defaults are kept for unbound arguments
+            if (assigned[i]) {
+                this.setters[i].invoke(builder, values[i]);
+            }
+        }
+        return this.build.invoke(builder);
+    }
+
+    DynaClass getDynaClass() {
+        return dynaClass;
+    }
+
+    Set<String> getProperties() {
+        return indexes.keySet();
+    }
+
+    Class<?>[] getTypes() {
+        return types;
+    }
+
+    /**
+     * @param name argument name
+     * @return index of argument, or -1 if unknown
+     */
+    int indexOf(String name) {
+        Integer index = this.indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    private static String getBuilderProperty(String method) {
+        for (String prefix : BUILDER_PREFIXES) {
+            if (method.length() > prefix.length() && method.startsWith(prefix) && Character.isUpperCase(method.charAt(prefix.length()))) {
+                return StringUtils.uncapitalize(method.substring(prefix.length()));
+            }
+        }
+        return method;
+    }
+
+    private final Method build;
+    private final Method builder;
+    private final Method[] setters;
+    private final Class<?>[] types;
+    private final DynaClass dynaClass;
+    private final Constructor<?> constructor;
+    private final Map<String, Integer> indexes;
+
+    private static final Set<String> BUILDER_PREFIXES = ImmutableSet.of("set", "with");
+}
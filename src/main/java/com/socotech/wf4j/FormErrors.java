@@ -4,14 +4,16 @@
 package com.socotech.wf4j;
 
 import java.util.AbstractMap;
-import java.util.ArrayList;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
+import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.Stack;
-import java.util.TreeMap;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang.StringUtils;
@@ -21,9 +23,11 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 /**
- * <p>The FormErrors is a very simple object used to add error messages to wf4j pages.  It's basically just a map of strings to human-readable error descriptions.</p> <p/> <p>Right
- * now these are all English language.</p> <p/> <p>Clients can iterate over the errors, if they're not sure what might have happened; or, if there is a well-known name, they can
- * look for it directly.  For example, the <code>FormErrors</code> for the login page has an error "password" if the password is wrong.</p>
+ * <p>The FormErrors is a very simple object used to add error messages to wf4j pages.  It's basically just a map of strings to human-readable error descriptions.</p> <p/> <p>A
+ * description is either a plain string or a registered {@link Messages message}, which is formatted in the locale of the packet only when the description is read.</p> <p/> <p>Clients can iterate over the errors, if they're not sure what might have happened; or, if there is a well-known name, they can
+ * look for it directly.  For example, the <code>FormErrors</code> for the login page has an error "password" if the password is wrong.</p> <p/> <p>Most requests have no errors,
+ * so an error packet allocates nothing until its first error.  Errors are kept in a pair of small arrays and sorted by code only when they are iterated; larger packets are
+ * kept sorted as they grow, so lookups stay logarithmic.</p>
  */
 public class FormErrors extends AbstractMap<String, String> {
 
@@ -33,7 +37,17 @@ public class FormErrors extends AbstractMap<String, String> {
      * @param property deeper property
      */
     public void push(String property) {
-        this.nesting.push(property);
+        if (this.path == null) {
+            this.path = new StringBuilder();
+            this.marks = new int[4];
+        } else if (this.depth == this.marks.length) {
+            this.marks = Arrays.copyOf(this.marks, this.depth * 2);
+        }
+        this.marks[this.depth] = this.path.length();
+        if (this.depth++ > 0) {
+            this.path.append('.');
+        }
+        this.path.append(property);
     }
 
     /**
@@ -42,7 +56,13 @@ public class FormErrors extends AbstractMap<String, String> {
      * @return the property which is popped off the stack
      */
     public String pop() {
-        return this.nesting.pop();
+        if (this.depth == 0) {
+            throw new EmptyStackException();
+        }
+        int mark = this.marks[--this.depth];
+        String property = this.path.substring(this.depth > 0 ? mark + 1 : mark);
+        this.path.setLength(mark);
+        return property;
     }
 
     /**
@@ -55,14 +75,87 @@ public class FormErrors extends AbstractMap<String, String> {
     public String put(String code, String description) {
         Validate.notNull(code, "Can't put an error with a null code");
         Validate.notNull(description, "Can't put an error with a null description");
-        if (this.nesting.isEmpty()) {
-            this.errors.put(code, description);
+        this.set(this.nest(code), description);
+        return description;
+    }
+
+    /**
+     * Sets an error whose description is a registered message, formatted only when the description is read.  Like {@link #put(String, String)}, the code is nested under the
+     * current property path.
+     *
+     * @param code        The error code
+     * @param messageCode The message code
+     * @param args        The message arguments
+     * @see Messages
+     */
+    public void putMessage(String code, String messageCode, Object... args) {
+        Validate.notNull(code, "Can't put an error with a null code");
+        Validate.notNull(messageCode, "Can't put an error with a null message code");
+        this.set(this.nest(code), new Messages.Message(messageCode, args));
+    }
+
+    /**
+     * Find the message code of an error, so callers can tell which check failed without formatting its description
+     *
+     * @param code The error code
+     * @return the message code, or null if the error is not set or has a plain description
+     */
+    public String getMessageCode(String code) {
+        int i = code == null ? -1 : this.indexOf(code);
+        return i >= 0 && this.descriptions[i] instanceof Messages.Message ? ((Messages.Message) this.descriptions[i]).code : null;
+    }
+
+    /**
+     * Copies every error of another packet under the current property path.  Messages of another error packet are copied unformatted.
+     *
+     * @param m errors to copy
+     */
+    @Override
+    public void putAll(Map<? extends String, ? extends String> m) {
+        if (m instanceof FormErrors) {
+            this.merge((FormErrors) m, true);
         } else {
-            List<String> path = new ArrayList<String>(this.nesting);
-            path.add(code);
-            this.errors.put(StringUtils.join(path.iterator(), '.'), description);
+            super.putAll(m);
         }
-        return description;
+    }
+
+    /**
+     * Copy the errors of another packet under the current property path, without formatting their messages
+     *
+     * @param other     errors to copy
+     * @param overwrite true, to replace errors already set
+     */
+    void merge(FormErrors other, boolean overwrite) {
+        for (int i = 0; i < other.size; i++) {
+            String key = this.nest(other.codes[i]);
+            if (overwrite || !this.isSet(key)) {
+                this.set(key, other.descriptions[i]);
+            }
+        }
+    }
+
+    /**
+     * @param code error code, relative to the current property path
+     * @return error code nested under the current property path
+     */
+    private String nest(String code) {
+        return this.depth == 0 ? code : this.path.toString() + '.' + code;
+    }
+
+    /**
+     * The locale in which messages are formatted
+     *
+     * @param locale locale, or null for the default locale
+     */
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    /**
+     * @return locale in which messages are formatted, or null for the default locale
+     */
+    public Locale getLocale() {
+        return locale;
     }
 
     /**
@@ -73,7 +166,51 @@ public class FormErrors extends AbstractMap<String, String> {
      */
     @Override
     public String get(Object code) {
-        return this.errors.get(code);
+        int i = code instanceof String ? this.indexOf((String) code) : -1;
+        return i >= 0 ? this.describe(i) : null;
+    }
+
+    /**
+     * Remove the error set for a code
+     *
+     * @param code the error code
+     * @return the description removed, or null if no error was set
+     */
+    @Override
+    public String remove(Object code) {
+        int i = code instanceof String ? this.indexOf((String) code) : -1;
+        if (i < 0) {
+            return null;
+        }
+        String description = this.describe(i);
+        this.delete(i);
+        return description;
+    }
+
+    /**
+     * Remove every error
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(this.codes, 0, this.size, null);
+        Arrays.fill(this.descriptions, 0, this.size, null);
+        this.size = 0;
+        this.sorted = true;
+    }
+
+    @Override
+    public boolean containsKey(Object code) {
+        return code instanceof String && this.indexOf((String) code) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
     }
 
     /**
@@ -83,7 +220,35 @@ public class FormErrors extends AbstractMap<String, String> {
      * @return true if it's in there, false otherwise
      */
     public boolean isSet(String code) {
-        return this.errors.containsKey(code);
+        return code != null && this.indexOf(code) >= 0;
+    }
+
+    /**
+     * Returns true if the specified error code has been set under the current property path, i.e. by a call to {@link #put(String, String)} with the same code
+     *
+     * @param code The error code, relative to the current property path
+     * @return true if it's in there, false otherwise
+     */
+    boolean isSetHere(String code) {
+        return code != null && this.indexOf(this.nest(code)) >= 0;
+    }
+
+    /**
+     * Returns true if any error has been set under the current property path, i.e. an error of the form being validated
+     *
+     * @return true if there is one, false otherwise
+     */
+    boolean hasErrorsHere() {
+        if (this.depth == 0) {
+            return this.size > 0;
+        }
+        String prefix = this.path.toString() + '.';
+        for (int i = 0; i < this.size; i++) {
+            if (this.codes[i].startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -128,7 +293,7 @@ public class FormErrors extends AbstractMap<String, String> {
      */
     @Override
     public Set<Entry<String, String>> entrySet() {
-        return this.errors.entrySet();
+        return new EntrySet();
     }
 
     /**
@@ -137,7 +302,7 @@ public class FormErrors extends AbstractMap<String, String> {
      * @return The codes in an unmodifiable set
      */
     public Set<String> getCodes() {
-        return Collections.unmodifiableSet(this.errors.keySet());
+        return Collections.unmodifiableSet(this.keySet());
     }
 
     /**
@@ -147,7 +312,7 @@ public class FormErrors extends AbstractMap<String, String> {
      */
     @SuppressWarnings("unchecked")
     public Collection getDescriptions() {
-        return Collections.unmodifiableCollection(this.errors.values());
+        return Collections.unmodifiableCollection(this.values());
     }
 
     /**
@@ -169,7 +334,7 @@ public class FormErrors extends AbstractMap<String, String> {
         // Build up a list of the errors, separated by semis, and append
         if (this.size() > 0) {
             rv.append(" ");
-            rv.append(this.errors.toString());
+            rv.append(super.toString());
         }
 
         return rv.toString();
@@ -183,7 +348,7 @@ public class FormErrors extends AbstractMap<String, String> {
      */
     public JSONArray toJSON() throws JSONException {
         JSONArray errors = new JSONArray();
-        for (Entry<String, String> entry : this.errors.entrySet()) {
+        for (Entry<String, String> entry : this.entrySet()) {
             JSONObject error = new JSONObject();
             error.put("key", entry.getKey());
             error.put("value", entry.getValue());
@@ -215,11 +380,222 @@ public class FormErrors extends AbstractMap<String, String> {
 
 
     /**
-     * The path to the current property
+     * @param key         full error code
+     * @param description description or message
+     */
+    private void set(String key, Object description) {
+        int i = this.indexOf(key);
+        if (i >= 0) {
+            this.descriptions[i] = description;
+            return;
+        }
+        if (this.size == this.codes.length) {
+            int capacity = this.size == 0 ? 4 : this.size * 2;
+            this.codes = Arrays.copyOf(this.codes, capacity);
+            this.descriptions = Arrays.copyOf(this.descriptions, capacity);
+        }
+        if (this.size < LINEAR_SIZE) {
+            // append, sort later
+            this.sorted = this.sorted && (this.size == 0 || this.codes[this.size - 1].compareTo(key) < 0);
+            this.codes[this.size] = key;
+            this.descriptions[this.size++] = description;
+        } else {
+            // insert in order
+            this.sort();
+            i = -Arrays.binarySearch(this.codes, 0, this.size, key) - 1;
+            System.arraycopy(this.codes, i, this.codes, i + 1, this.size - i);
+            System.arraycopy(this.descriptions, i, this.descriptions, i + 1, this.size - i);
+            this.codes[i] = key;
+            this.descriptions[i] = description;
+            this.size++;
+        }
+    }
+
+    /**
+     * @param i index of an error
+     * @return its description, formatting a message in the locale of this packet
+     */
+    private String describe(int i) {
+        Object description = this.descriptions[i];
+        return description instanceof Messages.Message ? ((Messages.Message) description).format(this.locale) : (String) description;
+    }
+
+    /**
+     * @param code full error code
+     * @return index of the code, or a negative number if not set
+     */
+    private int indexOf(String code) {
+        if (this.sorted) {
+            return Arrays.binarySearch(this.codes, 0, this.size, code);
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (this.codes[i].equals(code)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sort errors by code.  Unsorted packets are small, so an insertion sort will do.
+     */
+    private void sort() {
+        if (this.sorted) {
+            return;
+        }
+        for (int i = 1; i < this.size; i++) {
+            String code = this.codes[i];
+            Object description = this.descriptions[i];
+            int j = i;
+            for (; j > 0 && this.codes[j - 1].compareTo(code) > 0; j--) {
+                this.codes[j] = this.codes[j - 1];
+                this.descriptions[j] = this.descriptions[j - 1];
+            }
+            this.codes[j] = code;
+            this.descriptions[j] = description;
+        }
+        this.sorted = true;
+    }
+
+    /**
+     * @param i index of the error to remove
+     */
+    private void delete(int i) {
+        int tail = this.size - i - 1;
+        System.arraycopy(this.codes, i + 1, this.codes, i, tail);
+        System.arraycopy(this.descriptions, i + 1, this.descriptions, i, tail);
+        this.size--;
+        this.codes[this.size] = null;
+        this.descriptions[this.size] = null;
+    }
+
+    /**
+     * The errors in order of code, backed by the error packet
+     */
+    private final class EntrySet extends AbstractSet<Entry<String, String>> {
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+            sort();
+            return new Iterator<Entry<String, String>>() {
+                @Override
+                public boolean hasNext() {
+                    return this.next < size;
+                }
+
+                @Override
+                public Entry<String, String> next() {
+                    if (this.next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    this.last = this.next++;
+                    return new ErrorEntry(this.last);
+                }
+
+                @Override
+                public void remove() {
+                    if (this.last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    delete(this.last);
+                    this.next = this.last;
+                    this.last = -1;
+                }
+
+                private int next, last = -1;
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * An error, backed by the error packet
+     */
+    private final class ErrorEntry implements Entry<String, String> {
+        ErrorEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return codes[this.index];
+        }
+
+        @Override
+        public String getValue() {
+            return describe(this.index);
+        }
+
+        @Override
+        public String setValue(String value) {
+            Validate.notNull(value, "Can't put an error with a null description");
+            String old = describe(this.index);
+            descriptions[this.index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> that = (Entry<?, ?>) o;
+            return this.getKey().equals(that.getKey()) && this.getValue().equals(that.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return this.getKey().hashCode() ^ this.getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.getKey() + "=" + this.getValue();
+        }
+
+        private final int index;
+    }
+
+    /**
+     * The path to the current property, created on first push
+     */
+    private StringBuilder path;
+    /**
+     * The length of the path before each push
+     */
+    private int[] marks;
+    /**
+     * The number of nested properties
+     */
+    private int depth;
+    /**
+     * <p>Error codes, shared empty array until the first error.</p>
      */
-    private Stack<String> nesting = new Stack<>();
+    private String[] codes = EMPTY;
+    /**
+     * <p>Descriptions of errors, either strings or messages to format.</p>
+     */
+    private Object[] descriptions = NO_DESCRIPTIONS;
+    /**
+     * The locale in which messages are formatted
+     */
+    private Locale locale;
+    /**
+     * The number of errors
+     */
+    private int size;
+    /**
+     * True, if codes are in order
+     */
+    private boolean sorted = true;
+
     /**
-     * <p>A map of error codes to error descriptions.</p>
+     * Packets up to this size append errors and sort on iteration; larger packets insert in order
      */
-    private Map<String, String> errors = new TreeMap<String, String>();
+    private static final int LINEAR_SIZE = 8;
+    private static final String[] EMPTY = new String[0];
+    private static final Object[] NO_DESCRIPTIONS = new Object[0];
 }
@@ -0,0 +1,125 @@
+package com.socotech.wf4j;
+
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.fileupload.FileItem;
+
+/**
+ * A form object and the parameters routed to it while a request is read.  A request normally has a single target; multi-form actions route parameters to one target per
+ * parameter prefix.
+ */
+final class FormTarget {
+    /**
+     * Constructor
+     *
+     * @param form    form spec
+     * @param o       form object
+     * @param limits  parameter limits
+     * @param uploads upload limits
+     */
+    FormTarget(Form form, Object o, ParameterLimits limits, UploadLimits uploads) {
+        this.form = form;
+        this.uploads = uploads;
+        this.object = o;
+        this.prefix = form.prefix();
+        this.plan = BindingPlan.of(form);
+        this.snapshot = new ParameterSnapshot(limits, BindingPlan.getProperties(o));
+    }
+
+    /**
+     * Determine whether a request parameter is routed to this target
+     *
+     * @param name request parameter name
+     * @return true, if name starts with the prefix of this target
+     */
+    boolean matches(String name) {
+        return name.startsWith(this.prefix);
+    }
+
+    /**
+     * @param name request parameter name
+     * @return parameter name relative to the form object
+     */
+    String strip(String name) {
+        return name.substring(this.prefix.length());
+    }
+
+    Form getForm() {
+        return form;
+    }
+
+    BindingPlan getPlan() {
+        return plan;
+    }
+
+    Object getObject() {
+        return object;
+    }
+
+    ParameterSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    List<FileItem> getFiles() {
+        return files;
+    }
+
+    /**
+     * Add an uploaded file to be bound to the form object
+     *
+     * @param fitem  stored file
+     * @param digest size and checksums computed while the file was streamed
+     */
+    void addFile(FileItem fitem, UploadDigest digest) {
+        this.files.add(fitem);
+        this.digests.put(fitem, digest);
+    }
+
+    UploadDigest getDigest(FileItem fitem) {
+        return this.digests.get(fitem);
+    }
+
+    /**
+     * @return number of files uploaded to this target so far, including the current one
+     */
+    int countFile() {
+        return ++this.fileCount;
+    }
+
+    UploadLimits getUploadLimits() {
+        return uploads;
+    }
+
+    /**
+     * @return upload processors started for this target, or null if none
+     */
+    UploadProcessing getProcessing() {
+        return processing;
+    }
+
+    /**
+     * @param request web request
+     * @return upload processors started for this target, created on first call and cancelled when the request completes
+     */
+    UploadProcessing getProcessing(HttpServletRequest request) {
+        if (this.processing == null) {
+            this.processing = RequestResources.of(request).register(new UploadProcessing());
+        }
+        return processing;
+    }
+
+    private int fileCount;
+    private UploadProcessing processing;
+    private final Form form;
+    private final Object object;
+    private final String prefix;
+    private final BindingPlan plan;
+    private final UploadLimits uploads;
+    private final ParameterSnapshot snapshot;
+    private final List<FileItem> files = Lists.newArrayList();
+    private final Map<FileItem, UploadDigest> digests = Maps.newIdentityHashMap();
+}
@@ -0,0 +1,35 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * FormUpload.java
+ * <p/>
+ * Limits applied to the files uploaded to a single form property.  Limits are enforced while the request is streamed, so an offending upload is rejected before it is stored.
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FormUpload {
+    /**
+     * The name of the property to which the files are uploaded
+     *
+     * @return property name
+     */
+    String property();
+
+    /**
+     * The maximum size of each file uploaded to this property.  Overrides the maximum file size of the form.
+     *
+     * @return maximum size in bytes, or -1 to use the limit of the form
+     */
+    long maxFileSize() default -1;
+
+    /**
+     * The content types accepted for this property, i.e. <code>image/png</code> or <code>image/*</code>.  Overrides the upload types of the form.
+     *
+     * @return accepted content types, or empty to use the upload types of the form
+     */
+    String[] types() default {};
+}
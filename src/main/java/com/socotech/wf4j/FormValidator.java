@@ -2,6 +2,8 @@ package com.socotech.wf4j;
 
 /**
  * FormValidator.java
+ * <p/>
+ * Validator instances are cached and reused across requests.  Mark a validator {@link ThreadSafe} to share one instance across threads; otherwise, each thread keeps its own.
  */
 public interface FormValidator<T> {
     void validate(T t, FormErrors errors);
@@ -1,5 +1,9 @@
 package com.socotech.wf4j;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  *
  */
@@ -13,16 +17,85 @@ public class FormValidatorUtil {
      * @param field     a simple or nested property
      */
     public static void invokeValidator(FormValidator validator, Object o, FormErrors errors, String field) {
-        String[] nested = field.split("\\.");
+        // a nested property is pushed whole, since error paths are joined with dots anyway
+        errors.push(field);
         try {
-            for (String nest : nested) {
-                errors.push(nest);
-            }
             validator.validate(o, errors);
         } finally {
-            for (String s : nested) {
-                errors.pop();
+            errors.pop();
+        }
+    }
+
+    /**
+     * Validate each element of an indexed property, i.e. rows of an import.  Errors are reported under the indexed path of each element, i.e. <code>rows[3].price</code>,
+     * exactly as if each element were validated in turn with {@link #invokeValidator}.
+     * <p/>
+     * Large collections are split across a fork/join pool.  Each task collects errors in its own buffer and buffers are merged in element order, so the result does not depend
+     * on scheduling.  The validator must therefore be safe to call from several threads at once.
+     *
+     * @param validator a thread-safe form validator
+     * @param elements  elements of the property
+     * @param errors    validation errors
+     * @param field     a simple or nested indexed property
+     * @param <T>       element type
+     */
+    public static <T> void validateEach(FormValidator<? super T> validator, List<T> elements, FormErrors errors, String field) {
+        ValidateTask<T> task = new ValidateTask<T>(validator, elements, field, 0, elements.size(), Math.max(MIN_PARTITION, elements.size() / (POOL.getParallelism() * 4)));
+        FormErrors found = elements.size() <= MIN_PARTITION ? task.compute() : POOL.invoke(task);
+        errors.merge(found, true);
+    }
+
+    /**
+     * Validates a range of elements, splitting it while it is larger than the partition size
+     */
+    private static class ValidateTask<T> extends RecursiveTask<FormErrors> {
+        ValidateTask(FormValidator<? super T> validator, List<T> elements, String field, int from, int to, int partition) {
+            this.to = to;
+            this.from = from;
+            this.field = field;
+            this.elements = elements;
+            this.validator = validator;
+            this.partition = partition;
+        }
+
+        @Override
+        protected FormErrors compute() {
+            if (this.to - this.from <= this.partition) {
+                FormErrors buffer = new FormErrors();
+                StringBuilder prefix = new StringBuilder(this.field.length() + 8).append(this.field).append('[');
+                int length = prefix.length();
+                for (int i = this.from; i < this.to; i++) {
+                    prefix.setLength(length);
+                    buffer.push(prefix.append(i).append(']').toString());
+                    try {
+                        this.validator.validate(this.elements.get(i), buffer);
+                    } finally {
+                        buffer.pop();
+                    }
+                }
+                return buffer;
             }
+            int middle = (this.from + this.to) >>> 1;
+            ValidateTask<T> left = new ValidateTask<T>(this.validator, this.elements, this.field, this.from, middle, this.partition);
+            ValidateTask<T> right = new ValidateTask<T>(this.validator, this.elements, this.field, middle, this.to, this.partition);
+            left.fork();
+            FormErrors merged = right.compute();
+            FormErrors first = left.join();
+            // later elements win, as they would if validated in turn
+            first.merge(merged, true);
+            return first;
         }
+
+        private final int to;
+        private final int from;
+        private final int partition;
+        private final String field;
+        private final List<T> elements;
+        private final FormValidator<? super T> validator;
+
+        private static final long serialVersionUID = 1L;
     }
+
+    private static final int MIN_PARTITION = 64;
+    private static final ForkJoinPool POOL = new ForkJoinPool();
 }
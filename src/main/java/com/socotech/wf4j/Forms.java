@@ -0,0 +1,25 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Forms.java
+ * <p/>
+ * Declares several logical forms posted together to a single {@link AbstractMultiFormAction}.  Each form is bound from the request parameters that start with its
+ * {@link Form#prefix()}.
+ */
+@Target(ElementType.TYPE)
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Forms {
+    /**
+     * The forms, in the order their prefixes are matched
+     *
+     * @return array of forms
+     */
+    Form[] value();
+}
@@ -0,0 +1,38 @@
+package com.socotech.wf4j;
+
+/**
+ * Thrown by property editors when text cannot be converted.  Carries a message code and arguments, so that a binding error is put with
+ * {@link FormErrors#putMessage(String, String, Object...)} and described in the locale of the request.
+ */
+public class InvalidValueException extends IllegalArgumentException {
+    /**
+     * Constructor
+     *
+     * @param code message code
+     * @param args message arguments
+     */
+    public InvalidValueException(String code, Object... args) {
+        super(Messages.format(null, code, args));
+        this.code = code;
+        this.args = args;
+    }
+
+    /**
+     * @return message code
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return message arguments
+     */
+    public Object[] getArgs() {
+        return args;
+    }
+
+    private final String code;
+    private final Object[] args;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,322 @@
+package com.socotech.wf4j;
+
+import java.beans.PropertyDescriptor;
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+/**
+ * Binds a JSON request body directly to a form object.  The body is read token by token and each value is bound to its property as soon as it is parsed, so neither an
+ * intermediate JSON tree nor flattened parameter names are built.  Members that do not name a property of the target bean are skipped without being materialized.
+ */
+final class JsonBodyBinder {
+    /**
+     * Constructor
+     *
+     * @param action  action used to convert and set scalar values
+     * @param request web request
+     * @param plan    binding plan
+     * @param limits  parameter limits accounting
+     * @param errors  error packet
+     */
+    JsonBodyBinder(AbstractFormAction action, HttpServletRequest request, BindingPlan plan, ParameterSnapshot limits, FormErrors errors) {
+        this.plan = plan;
+        this.action = action;
+        this.limits = limits;
+        this.errors = errors;
+        this.request = request;
+    }
+
+    /**
+     * Bind only members that fall within a set of property names or paths, and the objects that hold them.  Other members are skipped as if unknown.
+     *
+     * @param paths property names or paths, or null to bind every member
+     * @return this binder
+     */
+    JsonBodyBinder restrict(Set<String> paths) {
+        this.bindable = paths;
+        return this;
+    }
+
+    /**
+     * Bind a JSON object to the form object
+     *
+     * @param reader request body
+     * @param o      form object
+     * @throws Exception if body is malformed, exceeds limits or cannot be bound
+     */
+    void bind(Reader reader, Object o) throws Exception {
+        JSONTokener x = new JSONTokener(reader);
+        this.bindObject(x, o, "");
+        if (x.nextClean() != 0) {
+            throw x.syntaxError("Unexpected content after JSON object");
+        }
+    }
+
+    private void bindObject(JSONTokener x, Object bean, String prefix) throws Exception {
+        if (x.nextClean() != '{') {
+            throw x.syntaxError("A JSON object must begin with '{'");
+        }
+        if (x.nextClean() == '}') {
+            return;
+        }
+        x.back();
+        while (true) {
+            if (x.nextClean() != '"') {
+                throw x.syntaxError("Expected a quoted property name");
+            }
+            String name = x.nextString('"');
+            if (x.nextClean() != ':') {
+                throw x.syntaxError("Expected a ':' after a property name");
+            }
+            this.bindMember(x, bean, name, prefix + name);
+            char c = x.nextClean();
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw x.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bindMember(JSONTokener x, Object bean, String name, String path) throws Exception {
+        char c = x.nextClean();
+        x.back();
+        // an object is also bound if a nested property is bindable, though only that property is bound
+        boolean bindable = this.bindable == null || BindingPlan.contains(this.bindable, path) || (c == '{' && BindingPlan.isParent(this.bindable, path));
+        if (!BindingPlan.getProperties(bean).contains(name) || !bindable) {
+            // unknown member still counts against limits
+            this.limits.enforce(path, "");
+            this.skipValue(x);
+            return;
+        }
+        if (c == '{') {
+            this.limits.enforce(path);
+            Object child = this.getOrCreateProperty(bean, name, path);
+            if (child == null) {
+                this.skipValue(x);
+            } else if (child instanceof Map) {
+                this.bindMap(x, (Map<Object, Object>) child, path);
+            } else {
+                this.bindObject(x, child, path + ".");
+            }
+        } else if (c == '[') {
+            this.bindArray(x, bean, name, path);
+        } else {
+            String value = this.nextScalar(x);
+            this.limits.enforce(path, value);
+            this.action.bindProperty(this.request, bean, name, path, new String[]{value}, this.plan, this.errors);
+        }
+    }
+
+    private void bindMap(JSONTokener x, Map<Object, Object> map, String path) throws Exception {
+        x.nextClean(); // '{'
+        if (x.nextClean() == '}') {
+            return;
+        }
+        x.back();
+        while (true) {
+            if (x.nextClean() != '"') {
+                throw x.syntaxError("Expected a quoted key");
+            }
+            String key = x.nextString('"');
+            if (x.nextClean() != ':') {
+                throw x.syntaxError("Expected a ':' after a key");
+            }
+            char c = x.nextClean();
+            x.back();
+            if (c == '{' || c == '[' || (this.bindable != null && !BindingPlan.contains(this.bindable, path + "(" + key + ")"))) {
+                this.limits.enforce(path + "(" + key + ")", "");
+                this.skipValue(x);
+            } else {
+                String value = this.nextScalar(x);
+                this.limits.enforce(path + "(" + key + ")", value);
+                map.put(key, value);
+            }
+            c = x.nextClean();
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw x.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bindArray(JSONTokener x, Object bean, String name, String path) throws Exception {
+        Class<?> type = PropertyUtils.getPropertyType(bean, name);
+        Class<?> element = null;
+        if (type != null && type.isArray()) {
+            element = type.getComponentType();
+        } else if (type != null && Collection.class.isAssignableFrom(type)) {
+            element = this.getElementType(bean, name);
+        }
+        if (element == null) {
+            this.limits.enforce(path, "");
+            this.skipValue(x);
+            return;
+        }
+        boolean scalar = this.isScalar(element) || !this.plan.getBinders(Patterns.INDEX_REFERENCE.matcher(path).replaceAll("")).isEmpty();
+        List<Object> elements = Lists.newArrayList();
+        x.nextClean(); // '['
+        if (x.nextClean() != ']') {
+            x.back();
+            for (int index = 0; ; index++) {
+                String elementPath = path + "[" + index + "]";
+                char c = x.nextClean();
+                x.back();
+                if (scalar && c != '{' && c != '[') {
+                    String value = this.nextScalar(x);
+                    this.limits.enforce(elementPath, value);
+                    elements.add(value);
+                } else if (!scalar && c == '{') {
+                    this.limits.enforce(elementPath);
+                    Object child = element.newInstance();
+                    this.bindObject(x, child, elementPath + ".");
+                    elements.add(child);
+                } else {
+                    this.limits.enforce(elementPath, "");
+                    this.skipValue(x);
+                }
+                c = x.nextClean();
+                if (c == ']') {
+                    break;
+                } else if (c != ',') {
+                    throw x.syntaxError("Expected a ',' or ']'");
+                }
+            }
+        }
+        if (type.isArray() && scalar) {
+            // arrays of simple values use the same conversions as request parameters
+            String[] values = elements.toArray(new String[elements.size()]);
+            this.action.bindProperty(this.request, bean, name, path, values, this.plan, this.errors);
+        } else {
+            try {
+                if (scalar) {
+                    for (int i = 0; i < elements.size(); i++) {
+                        String value = (String) elements.get(i);
+                        elements.set(i, element.isEnum() ? Enum.valueOf((Class<Enum>) element, value) : ConvertUtils.convert(value, element));
+                    }
+                }
+                Object value;
+                if (type.isArray()) {
+                    value = elements.toArray((Object[]) Array.newInstance(element, elements.size()));
+                } else if (type.isInterface()) {
+                    value = Set.class.isAssignableFrom(type) ? new LinkedHashSet<Object>(elements) : new ArrayList<Object>(elements);
+                } else {
+                    Collection<Object> collection = (Collection<Object>) type.newInstance();
+                    collection.addAll(elements);
+                    value = collection;
+                }
+                PropertyUtils.setProperty(bean, name, value);
+            } catch (Exception e) {
+                if (!this.errors.isSet(path)) {  // don't overwrite existing property error
+                    this.errors.put(path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Object getOrCreateProperty(Object bean, String name, String path) {
+        try {
+            Object child = PropertyUtils.getProperty(bean, name);
+            if (child == null) {
+                Class<?> type = PropertyUtils.getPropertyType(bean, name);
+                child = type.isInterface() && Map.class.isAssignableFrom(type) ? Maps.newHashMap() : type.newInstance();
+                PropertyUtils.setProperty(bean, name, child);
+            }
+            return child;
+        } catch (Exception e) {
+            if (!this.errors.isSet(path)) {  // don't overwrite existing property error
+                this.errors.put(path, e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private Class<?> getElementType(Object bean, String name) throws Exception {
+        PropertyDescriptor pd = bean instanceof DynaBean ? null : PropertyUtils.getPropertyDescriptor(bean, name);
+        Method getter = pd == null ? null : pd.getReadMethod();
+        if (getter != null && getter.getGenericReturnType() instanceof ParameterizedType) {
+            Type[] args = ((ParameterizedType) getter.getGenericReturnType()).getActualTypeArguments();
+            if (args.length == 1 && args[0] instanceof Class) {
+                return (Class<?>) args[0];
+            }
+        }
+        return String.class;
+    }
+
+    private boolean isScalar(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || type == String.class || type == Boolean.class || type == Character.class || type == Object.class
+                || Number.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type);
+    }
+
+    private String nextScalar(JSONTokener x) throws JSONException {
+        char c = x.nextClean();
+        if (c == '"') {
+            return x.nextString('"');
+        }
+        x.back();
+        String value = x.nextTo(",}]").trim();
+        if (value.isEmpty()) {
+            throw x.syntaxError("Missing value");
+        }
+        return "null".equals(value) ? null : value;
+    }
+
+    /**
+     * Skip a value of any type without recursion, so deeply nested junk cannot exhaust the stack
+     */
+    private void skipValue(JSONTokener x) throws JSONException {
+        int depth = 0;
+        do {
+            char c = x.nextClean();
+            switch (c) {
+                case 0:
+                    throw x.syntaxError("Unterminated JSON value");
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                case '"':
+                    x.nextString('"');
+                    break;
+                default:
+                    if (depth == 0) {
+                        x.back();
+                        this.nextScalar(x);
+                    }
+            }
+        } while (depth > 0);
+    }
+
+    private Set<String> bindable;
+    private final BindingPlan plan;
+    private final FormErrors errors;
+    private final ParameterSnapshot limits;
+    private final HttpServletRequest request;
+    private final AbstractFormAction action;
+}
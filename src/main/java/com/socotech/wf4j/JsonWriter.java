@@ -0,0 +1,301 @@
+package com.socotech.wf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+/**
+ * Writes JSON straight to a stream, without building a document first.  Strings are written in runs between the characters that need escaping, so plain text is copied once
+ * and nothing is allocated per value.
+ * <pre>
+ * JsonWriter json = new JsonWriter(response.getWriter());
+ * json.beginObject().name("id").value(42).name("errors").value(errors).endObject().close();
+ * </pre>
+ * The writer checks only that names and values are written in a sensible order; it is not safe for use by more than one thread.
+ */
+public class JsonWriter implements Closeable, Flushable {
+    /**
+     * Constructor
+     *
+     * @param out character stream
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+        this.push(DOCUMENT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param out byte stream, written as buffered UTF-8
+     */
+    public JsonWriter(OutputStream out) {
+        this(new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8)));
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter beginObject() throws IOException {
+        this.beforeValue();
+        this.push(EMPTY_OBJECT);
+        this.out.write('{');
+        return this;
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter endObject() throws IOException {
+        int scope = this.peek();
+        Preconditions.checkState(scope == EMPTY_OBJECT || scope == OBJECT, "Not in an object");
+        this.depth--;
+        this.out.write('}');
+        return this;
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter beginArray() throws IOException {
+        this.beforeValue();
+        this.push(EMPTY_ARRAY);
+        this.out.write('[');
+        return this;
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter endArray() throws IOException {
+        int scope = this.peek();
+        Preconditions.checkState(scope == EMPTY_ARRAY || scope == ARRAY, "Not in an array");
+        this.depth--;
+        this.out.write(']');
+        return this;
+    }
+
+    /**
+     * Write the name of the next member of an object
+     *
+     * @param name member name
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter name(String name) throws IOException {
+        Preconditions.checkNotNull(name, "name");
+        int scope = this.peek();
+        Preconditions.checkState(scope == EMPTY_OBJECT || scope == OBJECT, "Not in an object");
+        if (scope == OBJECT) {
+            this.out.write(',');
+        }
+        this.stack[this.depth - 1] = NAME;
+        this.string(name);
+        this.out.write(':');
+        return this;
+    }
+
+    /**
+     * @param value string, or null
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(String value) throws IOException {
+        this.beforeValue();
+        if (value == null) {
+            this.out.write("null");
+        } else {
+            this.string(value);
+        }
+        return this;
+    }
+
+    /**
+     * @param value boolean
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        this.beforeValue();
+        this.out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * @param value number
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(long value) throws IOException {
+        this.beforeValue();
+        this.out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * @param value number, or null
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(Number value) throws IOException {
+        if (value instanceof Double || value instanceof Float) {
+            Preconditions.checkArgument(!Double.isNaN(value.doubleValue()) && !Double.isInfinite(value.doubleValue()), "JSON does not allow non-finite numbers");
+        }
+        this.beforeValue();
+        this.out.write(value == null ? "null" : value.toString());
+        return this;
+    }
+
+    /**
+     * Write an error packet as an array of <code>{"key": ..., "value": ...}</code> objects, in the same form as {@link FormErrors#toJSON()}
+     *
+     * @param errors error packet
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(FormErrors errors) throws IOException {
+        return this.value(errors, null);
+    }
+
+    /**
+     * Write the errors of some fields as an array of <code>{"key": ..., "value": ...}</code> objects
+     *
+     * @param errors error packet
+     * @param fields write only errors of these fields and their nested properties, or null for every error
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(FormErrors errors, Set<String> fields) throws IOException {
+        this.beginArray();
+        for (Map.Entry<String, String> entry : errors.entrySet()) {
+            if (fields == null || BindingPlan.contains(fields, entry.getKey())) {
+                this.beginObject().name("key").value(entry.getKey()).name("value").value(entry.getValue()).endObject();
+            }
+        }
+        return this.endArray();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * Flush and close the underlying stream
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    private void beforeValue() throws IOException {
+        int scope = this.peek();
+        switch (scope) {
+            case DOCUMENT:
+                this.stack[this.depth - 1] = CLOSED;
+                break;
+            case EMPTY_ARRAY:
+                this.stack[this.depth - 1] = ARRAY;
+                break;
+            case ARRAY:
+                this.out.write(',');
+                break;
+            case NAME:
+                this.stack[this.depth - 1] = OBJECT;
+                break;
+            default:
+                throw new IllegalStateException(scope == CLOSED ? "Document already has a value" : "Expected a name");
+        }
+    }
+
+    private void push(int scope) {
+        if (this.depth == this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+        }
+        this.stack[this.depth++] = scope;
+    }
+
+    private int peek() {
+        Preconditions.checkState(this.depth > 0, "Document is complete");
+        return this.stack[this.depth - 1];
+    }
+
+    private void string(String value) throws IOException {
+        Writer out = this.out;
+        out.write('"');
+        int last = 0, length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = REPLACEMENTS[c];
+                if (replacement == null && (c != '/' || i == 0 || value.charAt(i - 1) != '<')) {
+                    continue;
+                } else if (replacement == null) {
+                    replacement = "\\/";  // keep "</script>" out of inline scripts
+                }
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+            if (last < i) {
+                out.write(value, last, i - last);
+            }
+            out.write(replacement);
+            last = i + 1;
+        }
+        if (last < length) {
+            out.write(value, last, length - last);
+        }
+        out.write('"');
+    }
+
+    private final Writer out;
+    private int[] stack = new int[8];
+    private int depth;
+
+    private static final int DOCUMENT = 0;
+    private static final int EMPTY_OBJECT = 1;
+    private static final int OBJECT = 2;
+    private static final int NAME = 3;
+    private static final int EMPTY_ARRAY = 4;
+    private static final int ARRAY = 5;
+    private static final int CLOSED = 6;
+
+    /**
+     * Escapes of the ASCII characters that may not appear in a JSON string as-is
+     */
+    private static final String[] REPLACEMENTS = new String[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            REPLACEMENTS[c] = String.format("\\u%04x", c);
+        }
+        REPLACEMENTS['"'] = "\\\"";
+        REPLACEMENTS['\\'] = "\\\\";
+        REPLACEMENTS['\t'] = "\\t";
+        REPLACEMENTS['\b'] = "\\b";
+        REPLACEMENTS['\n'] = "\\n";
+        REPLACEMENTS['\r'] = "\\r";
+        REPLACEMENTS['\f'] = "\\f";
+    }
+}
@@ -0,0 +1,42 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the length of a text field.  Null values are accepted; combine with {@link Required} to reject them.
+ *
+ * @see ValidationPlan
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Length {
+    /**
+     * @return minimum number of characters
+     */
+    int min() default 0;
+
+    /**
+     * @return maximum number of characters
+     */
+    int max() default Integer.MAX_VALUE;
+
+    /**
+     * The error description reported on the field, or a {@link Messages message code} in braces.  By default, the allowed length is described.
+     *
+     * @return error description
+     */
+    String message() default "";
+
+    /**
+     * The relative cost of the check.  Cheaper checks run first, which matters most when an action fails fast.
+     *
+     * @return relative cost
+     * @see Form#failFast()
+     */
+    int cost() default 1;
+}
@@ -0,0 +1,37 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requires a text field to match a regular expression in full.  Null and empty values are accepted; combine with {@link Required} to reject them.
+ *
+ * @see ValidationPlan
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Matches {
+    /**
+     * @return regular expression
+     */
+    String value();
+
+    /**
+     * The error description reported on the field, or a {@link Messages message code} in braces
+     *
+     * @return error description
+     */
+    String message() default "{" + Messages.MATCHES + "}";
+
+    /**
+     * The relative cost of the check.  Cheaper checks run first, which matters most when an action fails fast.
+     *
+     * @return relative cost
+     * @see Form#failFast()
+     */
+    int cost() default 10;
+}
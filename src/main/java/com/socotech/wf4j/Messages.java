@@ -0,0 +1,329 @@
+package com.socotech.wf4j;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+
+/**
+ * A registry of error message templates, keyed by message code.  An error put with {@link FormErrors#putMessage(String, String, Object...)} is formatted only when its
+ * description is read, in the locale of the error packet.
+ * <p/>
+ * A template is looked up in the resource bundle named by {@link #setBundle(String)}, <code>wf4j-messages</code> by default, and falls back to the template registered for
+ * the code.  Templates use the {@link MessageFormat} syntax and are compiled once per bundle locale, i.e. the locale of the bundle that supplies them, so a client cannot
+ * fill the cache by sending made-up locales.  Templates with only plain arguments, i.e. <code>Must be at least {0} characters</code>, are formatted by substituting string
+ * arguments as they are; other arguments, such as numbers and dates, and templates with typed arguments, i.e. <code>{0,number,#.##}</code>, are formatted in the locale of the
+ * message by a copy of a parsed MessageFormat, since a MessageFormat cannot be shared between threads.
+ */
+public final class Messages {
+    private Messages() {
+        // use the static methods
+    }
+
+    /**
+     * Register the default template of a message code, used in any locale whose bundle does not define the code.  Validation manifests are rendered again with the new
+     * template.
+     *
+     * @param code     message code
+     * @param template message template
+     */
+    public static void register(String code, String template) {
+        DEFAULTS.put(code, template);
+        TEMPLATES.clear();
+        ValidationManifest.clear();
+    }
+
+    /**
+     * Look up templates in another resource bundle, discarding compiled templates and validation manifests
+     *
+     * @param baseName bundle base name, or null to use registered templates only
+     */
+    public static void setBundle(String baseName) {
+        bundle = baseName;
+        LOCALES.invalidateAll();
+        TEMPLATES.clear();
+        ValidationManifest.clear();
+    }
+
+    /**
+     * Format a message
+     *
+     * @param locale locale, or null for the default locale
+     * @param code   message code
+     * @param args   message arguments
+     * @return formatted message, or the code itself if no template is defined
+     */
+    public static String format(Locale locale, String code, Object... args) {
+        if (locale == null) {
+            locale = Locale.getDefault();
+        }
+        return template(resolve(locale), code).format(locale, args);
+    }
+
+    /**
+     * Find the locale of the bundle that supplies the templates of a locale
+     *
+     * @param locale locale
+     * @return locale of the resource bundle, or {@link Locale#ROOT} if there is no bundle and only registered templates are used
+     */
+    static Locale resolve(Locale locale) {
+        Locale resolved = LOCALES.getIfPresent(locale);
+        if (resolved == null) {
+            resolved = Locale.ROOT;
+            String baseName = bundle;
+            if (baseName != null) {
+                try {
+                    resolved = ResourceBundle.getBundle(baseName, locale).getLocale();
+                } catch (MissingResourceException e) {
+                    // no bundle, use the registered templates
+                }
+            }
+            LOCALES.put(locale, resolved);
+        }
+        return resolved;
+    }
+
+    private static Template template(Locale locale, String code) {
+        ConcurrentMap<String, Template> templates = TEMPLATES.get(locale);
+        if (templates == null) {
+            ConcurrentMap<String, Template> newbie = Maps.newConcurrentMap();
+            templates = TEMPLATES.putIfAbsent(locale, newbie);
+            if (templates == null) {
+                templates = newbie;
+            }
+        }
+        Template template = templates.get(code);
+        if (template == null) {
+            String pattern = null;
+            if (bundle != null) {
+                try {
+                    pattern = ResourceBundle.getBundle(bundle, locale).getString(code);
+                } catch (MissingResourceException e) {
+                    // fall back on the registered template
+                }
+            }
+            if (pattern == null) {
+                pattern = DEFAULTS.get(code);
+            }
+            Template newbie = pattern == null ? new Template(code) : Template.compile(pattern);
+            template = templates.putIfAbsent(code, newbie);
+            if (template == null) {
+                template = newbie;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * An error description, formatted when it is read
+     */
+    static final class Message {
+        Message(String code, Object[] args) {
+            this.args = args;
+            this.code = code;
+        }
+
+        String format(Locale locale) {
+            return Messages.format(locale, this.code, this.args);
+        }
+
+        final String code;
+        final Object[] args;
+    }
+
+    /**
+     * A compiled template: literal text between argument indexes, or only the pattern of a MessageFormat
+     */
+    private static final class Template {
+        Template(String text) {
+            this(new String[]{text}, new int[0], null);
+        }
+
+        private Template(String[] parts, int[] indexes, String pattern) {
+            this.parts = parts;
+            this.indexes = indexes;
+            this.pattern = pattern;
+        }
+
+        /**
+         * Split a template into literal text and plain arguments, unquoting as MessageFormat does
+         *
+         * @param pattern message template
+         * @return template
+         */
+        static Template compile(String pattern) {
+            List<String> parts = Lists.newArrayList();
+            List<Integer> indexes = Lists.newArrayList();
+            StringBuilder text = new StringBuilder(pattern.length());
+            boolean quoted = false;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '\'') {
+                    if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                        text.append('\'');
+                        i++;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (c == '{' && !quoted) {
+                    int end = pattern.indexOf('}', i);
+                    Integer index = end < 0 ? null : Ints.tryParse(pattern.substring(i + 1, end).trim());
+                    if (index == null || index < 0) {
+                        // typed or malformed argument
+                        return new Template(null, null, pattern);
+                    }
+                    parts.add(text.toString());
+                    indexes.add(index);
+                    text.setLength(0);
+                    i = end;
+                } else {
+                    text.append(c);
+                }
+            }
+            parts.add(text.toString());
+            return new Template(parts.toArray(new String[parts.size()]), Ints.toArray(indexes), pattern);
+        }
+
+        /**
+         * @param locale locale of numbers, dates and typed arguments
+         * @param args   message arguments
+         * @return formatted message
+         */
+        String format(Locale locale, Object[] args) {
+            if (this.indexes != null && this.indexes.length == 0) {
+                return this.parts[0];
+            } else if (this.indexes == null || !isPlain(args)) {
+                return parse(this.pattern, locale).format(args);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < this.indexes.length; i++) {
+                sb.append(this.parts[i]);
+                int index = this.indexes[i];
+                if (args != null && index < args.length) {
+                    sb.append(args[index]);
+                } else {
+                    sb.append('{').append(index).append('}');
+                }
+            }
+            return sb.append(this.parts[this.indexes.length]).toString();
+        }
+
+        @Override
+        public String toString() {
+            return this.parts == null ? this.pattern : Arrays.toString(this.parts);
+        }
+
+        /**
+         * @param args message arguments
+         * @return true, if every argument is a string, formatted the same in any locale
+         */
+        private static boolean isPlain(Object[] args) {
+            if (args != null) {
+                for (Object arg : args) {
+                    if (arg != null && !(arg instanceof String)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param pattern message template
+         * @param locale  locale
+         * @return a copy of the parsed template, for use by one thread
+         */
+        private static MessageFormat parse(String pattern, Locale locale) {
+            Pair<Locale, String> key = new Pair<Locale, String>(locale, pattern);
+            MessageFormat format = FORMATS.getIfPresent(key);
+            if (format == null) {
+                format = new MessageFormat(pattern, locale);
+                FORMATS.put(key, format);
+            }
+            return (MessageFormat) format.clone();
+        }
+
+        private final String[] parts;
+        private final int[] indexes;
+        private final String pattern;
+    }
+
+    private static volatile String bundle = "wf4j-messages";
+
+    private static final ConcurrentMap<String, String> DEFAULTS = Maps.newConcurrentMap();
+    private static final ConcurrentMap<Locale, ConcurrentMap<String, Template>> TEMPLATES = Maps.newConcurrentMap();
+
+    /**
+     * Bundle locales of the locales clients asked for, bounded since any client can make up a locale
+     */
+    private static final Cache<Locale, Locale> LOCALES = CacheBuilder.newBuilder().maximumSize(256).build();
+
+    /**
+     * Parsed MessageFormats by locale and pattern, bounded for the same reason
+     */
+    private static final Cache<Pair<Locale, String>, MessageFormat> FORMATS = CacheBuilder.newBuilder().maximumSize(1024).build();
+
+    /**
+     * Message codes of the errors reported by wf4j itself
+     */
+    public static final String REQUIRED = "wf4j.required";
+    public static final String LENGTH_MIN = "wf4j.length.min";
+    public static final String LENGTH_MAX = "wf4j.length.max";
+    public static final String LENGTH = "wf4j.length";
+    public static final String RANGE_MIN = "wf4j.range.min";
+    public static final String RANGE_MAX = "wf4j.range.max";
+    public static final String RANGE = "wf4j.range";
+    public static final String MATCHES = "wf4j.matches";
+    public static final String EMAIL = "wf4j.email";
+    public static final String VALIDATION_TIMEOUT = "wf4j.validationTimeout";
+    public static final String DATE_START_MIN = "wf4j.date.start.min";
+    public static final String DATE_START_INVALID = "wf4j.date.start.invalid";
+    public static final String DATE_END_MAX = "wf4j.date.end.max";
+    public static final String DATE_END_INVALID = "wf4j.date.end.invalid";
+    public static final String DATE_ORDER = "wf4j.date.order";
+    public static final String INVALID_DATE = "wf4j.invalid.date";
+    public static final String INVALID_NUMBER = "wf4j.invalid.number";
+    public static final String NOT_EMPTY = "wf4j.notEmpty";
+    public static final String PARAMETER_REQUIRED = "wf4j.parameter.required";
+    public static final String MALFORMED_BODY = "wf4j.malformedBody";
+    public static final String UPLOAD_ID = "wf4j.upload.id";
+    public static final String UPLOAD_CHUNKS = "wf4j.upload.chunks";
+    public static final String UPLOAD_CHUNK = "wf4j.upload.chunk";
+    public static final String FILE_TOO_LARGE = "wf4j.upload.fileTooLarge";
+
+    static {
+        DEFAULTS.put(REQUIRED, "Required");
+        DEFAULTS.put(LENGTH_MIN, "Must be at least {0} characters");
+        DEFAULTS.put(LENGTH_MAX, "Must be at most {1} characters");
+        DEFAULTS.put(LENGTH, "Must be between {0} and {1} characters");
+        DEFAULTS.put(RANGE_MIN, "Must be at least {0}");
+        DEFAULTS.put(RANGE_MAX, "Must be at most {1}");
+        DEFAULTS.put(RANGE, "Must be between {0} and {1}");
+        DEFAULTS.put(MATCHES, "Invalid format");
+        DEFAULTS.put(EMAIL, "Invalid email address");
+        DEFAULTS.put(VALIDATION_TIMEOUT, "Validation did not complete in time, please try again");
+        DEFAULTS.put(DATE_START_MIN, "Please enter a start date after January 1, 2000.");
+        DEFAULTS.put(DATE_START_INVALID, "The start date must be a valid date and in format MM/DD/YYYY.");
+        DEFAULTS.put(DATE_END_MAX, "Please enter a end date no later than today.");
+        DEFAULTS.put(DATE_END_INVALID, "The end date must be be a valid date and in format MM/DD/YYYY.");
+        DEFAULTS.put(DATE_ORDER, "The start date can''t be after the end date.");
+        DEFAULTS.put(INVALID_DATE, "Invalid format: {0}");
+        DEFAULTS.put(INVALID_NUMBER, "Please enter a number in the format ''{0}''");
+        DEFAULTS.put(NOT_EMPTY, "Text cannot be empty");
+        DEFAULTS.put(PARAMETER_REQUIRED, "Required parameter not found in request: {0}");
+        DEFAULTS.put(MALFORMED_BODY, "Malformed request body");
+        DEFAULTS.put(UPLOAD_ID, "Missing or invalid upload id");
+        DEFAULTS.put(UPLOAD_CHUNKS, "Chunk count must be between 1 and {0}");
+        DEFAULTS.put(UPLOAD_CHUNK, "Chunk index must be between 0 and {0}");
+        DEFAULTS.put(FILE_TOO_LARGE, "File too large: {0} exceeds {1} bytes");
+    }
+}
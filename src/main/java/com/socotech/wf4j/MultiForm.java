@@ -0,0 +1,30 @@
+package com.socotech.wf4j;
+
+import java.util.Map;
+
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.Maps;
+
+/**
+ * The form objects of an {@link AbstractMultiFormAction}, keyed by form name.
+ */
+public class MultiForm extends ForwardingMap<String, Object> {
+    /**
+     * Get a form object by name
+     *
+     * @param name form name
+     * @param type form class
+     * @param <T>  form type
+     * @return form object, or null if there is no such form
+     */
+    public <T> T get(String name, Class<T> type) {
+        return type.cast(this.forms.get(name));
+    }
+
+    @Override
+    protected Map<String, Object> delegate() {
+        return this.forms;
+    }
+
+    private final Map<String, Object> forms = Maps.newLinkedHashMap();
+}
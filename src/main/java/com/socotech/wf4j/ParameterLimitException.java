@@ -0,0 +1,57 @@
+package com.socotech.wf4j;
+
+import java.util.Locale;
+
+/**
+ * Thrown when request parameters exceed the limits configured for a form.  Carries the HTTP status with which the request should be rejected.
+ */
+public class ParameterLimitException extends Exception {
+    /**
+     * Constructor
+     *
+     * @param status  HTTP status code
+     * @param message description of the exceeded limit
+     */
+    public ParameterLimitException(int status, String message) {
+        this(status, message, null, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param status HTTP status code
+     * @param code   message code describing the exceeded limit
+     * @param args   message arguments
+     */
+    public ParameterLimitException(int status, String code, Object... args) {
+        this(status, Messages.format(null, code, args), code, args);
+    }
+
+    private ParameterLimitException(int status, String message, String code, Object[] args) {
+        super(message);
+        this.code = code;
+        this.args = args;
+        this.status = status;
+    }
+
+    /**
+     * @return HTTP status code used to reject the request
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @param locale locale of the request
+     * @return description of the exceeded limit, formatted in the locale if it has a message code
+     */
+    public String getMessage(Locale locale) {
+        return code == null ? this.getMessage() : Messages.format(locale, code, args);
+    }
+
+    private final int status;
+    private final String code;
+    private final Object[] args;
+
+    private static final long serialVersionUID = 1L;
+}
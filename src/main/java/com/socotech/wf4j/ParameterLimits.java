@@ -0,0 +1,50 @@
+package com.socotech.wf4j;
+
+/**
+ * Limits applied to the request parameters of a single form submission.  A negative limit is not enforced.
+ */
+public final class ParameterLimits {
+    /**
+     * Constructor
+     *
+     * @param maxParameters     maximum number of parameter values
+     * @param maxParameterSize  maximum combined length of parameter values
+     * @param maxParameterDepth maximum nesting/index depth of a parameter name
+     */
+    public ParameterLimits(int maxParameters, long maxParameterSize, int maxParameterDepth) {
+        this.maxParameters = maxParameters;
+        this.maxParameterSize = maxParameterSize;
+        this.maxParameterDepth = maxParameterDepth;
+    }
+
+    /**
+     * Read limits from a form specification
+     *
+     * @param form form spec
+     * @return limits
+     */
+    public static ParameterLimits of(Form form) {
+        return new ParameterLimits(form.maxParameters(), form.maxParameterSize(), form.maxParameterDepth());
+    }
+
+    public int getMaxParameters() {
+        return maxParameters;
+    }
+
+    public long getMaxParameterSize() {
+        return maxParameterSize;
+    }
+
+    public int getMaxParameterDepth() {
+        return maxParameterDepth;
+    }
+
+    /**
+     * Limits that are never enforced
+     */
+    public static final ParameterLimits NONE = new ParameterLimits(-1, -1, -1);
+
+    private final int maxParameters;
+    private final long maxParameterSize;
+    private final int maxParameterDepth;
+}
@@ -0,0 +1,156 @@
+package com.socotech.wf4j;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.SortedMap;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A sorted copy of the request parameters to be bound to a form object.  Limits are enforced as parameters are added, and names that cannot resolve to a property of the form
+ * object are dropped.
+ */
+final class ParameterSnapshot {
+    /**
+     * Constructor
+     *
+     * @param limits     parameter limits
+     * @param properties names of bindable top-level properties
+     */
+    ParameterSnapshot(ParameterLimits limits, Set<String> properties) {
+        this.limits = limits;
+        this.properties = properties;
+    }
+
+    /**
+     * Add all values of a parameter
+     *
+     * @param name   parameter name
+     * @param values parameter values
+     * @throws ParameterLimitException if a limit is exceeded
+     */
+    void put(String name, String[] values) throws ParameterLimitException {
+        if (values != null && this.accept(name, values)) {
+            this.parameters.put(name, values);
+        }
+    }
+
+    /**
+     * Append a single parameter value
+     *
+     * @param name  parameter name
+     * @param value parameter value
+     * @throws ParameterLimitException if a limit is exceeded
+     */
+    void add(String name, String value) throws ParameterLimitException {
+        if (this.accept(name, value)) {
+            String[] values = this.parameters.get(name);
+            if (values == null) {
+                // Not in parameter map yet, so add as new value.
+                this.parameters.put(name, new String[]{value});
+            } else {
+                // Multiple field values, so add new value to existing array.
+                int length = values.length;
+                String[] newValues = new String[length + 1];
+                System.arraycopy(values, 0, newValues, 0, length);
+                newValues[length] = value;
+                this.parameters.put(name, newValues);
+            }
+        }
+    }
+
+    /**
+     * Enforce limits on a parameter and determine whether it names a bindable property
+     *
+     * @param name   parameter name
+     * @param values parameter values
+     * @return true, if parameter should be bound
+     * @throws ParameterLimitException if a limit is exceeded
+     */
+    boolean accept(String name, String... values) throws ParameterLimitException {
+        this.enforce(name, values);
+        return this.isBindable(name);
+    }
+
+    /**
+     * Enforce limits on a parameter without adding it to the snapshot, i.e. when values are bound directly from a request body
+     *
+     * @param name   parameter name
+     * @param values parameter values
+     * @throws ParameterLimitException if a limit is exceeded
+     */
+    void enforce(String name, String... values) throws ParameterLimitException {
+        long length = 0;
+        for (String value : values) {
+            if (value != null) {
+                length += value.length();
+            }
+        }
+        this.enforce(name, values.length, length);
+    }
+
+    /**
+     * Enforce limits on an uploaded file and determine whether it names a bindable property
+     *
+     * @param name field name
+     * @return true, if file should be bound
+     * @throws ParameterLimitException if a limit is exceeded
+     */
+    boolean acceptFile(String name) throws ParameterLimitException {
+        this.enforce(name, 1, 0);
+        return this.isBindable(name);
+    }
+
+    /**
+     * @return combined length of parameter values still allowed, or -1 if there is no limit
+     */
+    long remaining() {
+        return this.limits.getMaxParameterSize() < 0 ? -1 : Math.max(0, this.limits.getMaxParameterSize() - this.size);
+    }
+
+    private void enforce(String name, int count, long length) throws ParameterLimitException {
+        this.count += count;
+        if (this.limits.getMaxParameters() >= 0 && this.count > this.limits.getMaxParameters()) {
+            throw new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Too many parameters: more than " + this.limits.getMaxParameters());
+        }
+        this.size += length;
+        if (this.limits.getMaxParameterSize() >= 0 && this.size > this.limits.getMaxParameterSize()) {
+            throw new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Parameters too large: more than " + this.limits.getMaxParameterSize());
+        }
+        if (this.limits.getMaxParameterDepth() >= 0 && BindingPlan.getDepth(name) > this.limits.getMaxParameterDepth()) {
+            throw new ParameterLimitException(HttpServletResponse.SC_BAD_REQUEST, "Parameter nested too deeply: " + name);
+        }
+    }
+
+    private boolean isBindable(String name) {
+        return !name.isEmpty() && this.properties.contains(BindingPlan.getRootProperty(name));
+    }
+
+    /**
+     * Drop every parameter that does not fall within the given property names or paths
+     *
+     * @param paths bindable property names or paths
+     */
+    void retain(Set<String> paths) {
+        Iterator<String> names = this.parameters.keySet().iterator();
+        while (names.hasNext()) {
+            if (!BindingPlan.contains(paths, names.next())) {
+                names.remove();
+            }
+        }
+    }
+
+    /**
+     * @return accepted parameters in ancestral order
+     */
+    SortedMap<String, String[]> getParameters() {
+        return parameters;
+    }
+
+    private int count;
+    private long size;
+    private final ParameterLimits limits;
+    private final Set<String> properties;
+    private final SortedMap<String, String[]> parameters = Maps.newTreeMap();
+}
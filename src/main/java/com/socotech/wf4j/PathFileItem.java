@@ -0,0 +1,149 @@
+package com.socotech.wf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemHeaders;
+
+/**
+ * A file item over a file already on disk, i.e. an upload assembled from chunks.  The item owns the file and deletes it when the item is deleted.
+ */
+final class PathFileItem implements FileItem {
+    /**
+     * Constructor
+     *
+     * @param fieldName   field name
+     * @param contentType content type
+     * @param fileName    file name supplied by the client
+     * @param path        file content
+     */
+    PathFileItem(String fieldName, String contentType, String fileName, Path path) {
+        this.path = path;
+        this.fileName = fileName;
+        this.fieldName = fieldName;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return file content
+     */
+    Path getStoreLocation() {
+        return path;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(this.path);
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getName() {
+        return fileName;
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return false;
+    }
+
+    @Override
+    public long getSize() {
+        try {
+            return Files.size(this.path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] get() {
+        try {
+            return Files.readAllBytes(this.path);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getString(String encoding) throws UnsupportedEncodingException {
+        return new String(this.get(), encoding);
+    }
+
+    @Override
+    public String getString() {
+        try {
+            return this.getString("ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void write(File file) throws Exception {
+        Files.move(this.path, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void delete() {
+        try {
+            Files.deleteIfExists(this.path);
+        } catch (IOException e) {
+            // noop
+        }
+    }
+
+    @Override
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    @Override
+    public void setFieldName(String name) {
+        this.fieldName = name;
+    }
+
+    @Override
+    public boolean isFormField() {
+        return false;
+    }
+
+    @Override
+    public void setFormField(boolean state) {
+        throw new UnsupportedOperationException("file item is not a form field");
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("file item is read-only");
+    }
+
+    @Override
+    public FileItemHeaders getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public void setHeaders(FileItemHeaders headers) {
+        this.headers = headers;
+    }
+
+    private String fieldName;
+    private FileItemHeaders headers;
+    private final Path path;
+    private final String fileName;
+    private final String contentType;
+
+    private static final long serialVersionUID = 1L;
+}
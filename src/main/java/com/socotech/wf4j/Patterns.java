@@ -14,4 +14,61 @@ class Patterns {
      * A pattern for identifying the index of an array element
      */
     static final Pattern INDEX_REFERENCE = Pattern.compile("\\[\\d+\\]");
+    /**
+     * A pattern for a plausible email address: a local part, an at sign and a dotted domain
+     */
+    static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s.]+(\\.[^@\\s.]+)+");
+
+    /**
+     * Determine whether a pattern means the same to a JavaScript engine.  Patterns with flags, inline flags, atomic groups, possessive quantifiers, POSIX or Unicode classes,
+     * <code>\A</code>, <code>\Z</code>, <code>\z</code>, <code>\G</code>, quoting and other Java-only escapes, or class unions and intersections are not.
+     *
+     * @param pattern compiled pattern
+     * @return true, if the pattern is in the subset shared by Java and JavaScript
+     */
+    static boolean isPortable(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return false;
+        }
+        String regex = pattern.pattern();
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            char next = i + 1 < regex.length() ? regex.charAt(i + 1) : 0;
+            if (c == '\\') {
+                if (JAVA_ESCAPES.indexOf(next) >= 0) {
+                    return false;
+                }
+                i++;
+            } else if (inClass) {
+                if (c == '[' || (c == '&' && next == '&')) {
+                    return false;
+                } else if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+                if (next == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;  // a leading bracket is literal
+                }
+            } else if (c == '(' && next == '?') {
+                char kind = i + 2 < regex.length() ? regex.charAt(i + 2) : 0;
+                if (kind != ':' && kind != '=' && kind != '!' && kind != '<') {
+                    return false;  // inline flags or atomic group
+                }
+                i++;
+            } else if ((c == '*' || c == '+' || c == '?' || c == '}') && next == '+') {
+                return false;  // possessive quantifier
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Escapes that JavaScript lacks or reads differently
+     */
+    private static final String JAVA_ESCAPES = "pPAZzGQEhHRXv";
 }
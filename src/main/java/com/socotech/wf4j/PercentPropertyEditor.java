@@ -47,11 +47,10 @@ public class PercentPropertyEditor extends PropertyEditorSupport {
                 this.setValue(bigNumber.divide(hundred, this.scale + 2, RoundingMode.HALF_UP));
             } catch (IllegalArgumentException iae) {
                 // Re-throw but with a friendlier error message
-                String ex = "Please enter a number in the format '" + this.numberFormat.format(0.999999) + "'";
-                throw new IllegalArgumentException(ex, iae.getCause());
+                throw new InvalidValueException(Messages.INVALID_NUMBER, this.numberFormat.format(0.999999));
             }
         } else if (!this.allowEmpty) {
-            throw new IllegalArgumentException("Text cannot be empty");
+            throw new InvalidValueException(Messages.NOT_EMPTY);
         } else {
             this.setValue(null);
         }
@@ -0,0 +1,373 @@
+package com.socotech.wf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemHeaders;
+
+/**
+ * A file item whose content is written into fixed-size buffers taken from a {@link BufferPool}.  Content never has to be copied while it grows, and streams read from views of
+ * the buffers rather than from copies.  Past a size threshold, content spills to a temporary file.  Buffers go back to the pool when the item is deleted.
+ * <p/>
+ * Like a <code>DiskFileItem</code>, a serialized item carries its content if it is held in memory, or else the location of its file; a deserialized item holds its content
+ * in buffers of a shared pool.
+ */
+public class PooledFileItem implements FileItem {
+    /**
+     * Constructor
+     *
+     * @param fieldName   field name
+     * @param contentType content type
+     * @param formField   true, if item is a simple form field
+     * @param fileName    file name supplied by the client
+     * @param pool        buffer pool
+     * @param threshold   size in bytes past which content spills to disk, or -1 to keep content in memory
+     * @param repository  directory for spilled content, or null for the default temporary directory
+     */
+    public PooledFileItem(String fieldName, String contentType, boolean formField, String fileName, BufferPool pool, long threshold, File repository) {
+        this.pool = pool;
+        this.fileName = fileName;
+        this.fieldName = fieldName;
+        this.formField = formField;
+        this.threshold = threshold;
+        this.repository = repository;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return read-only views of the content held in memory, in order; empty if content has spilled to disk
+     */
+    public ByteBuffer[] getBuffers() {
+        ByteBuffer[] views = new ByteBuffer[this.chunks.size()];
+        for (int i = 0; i < views.length; i++) {
+            ByteBuffer view = this.chunks.get(i).asReadOnlyBuffer();
+            view.flip();
+            views[i] = view;
+        }
+        return views;
+    }
+
+    /**
+     * @return location of content spilled to disk, or null if content is in memory
+     */
+    public Path getStoreLocation() {
+        return spill;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return this.spill == null ? new BufferInputStream(this.getBuffers()) : Files.newInputStream(this.spill);
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getName() {
+        return fileName;
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return this.spill == null;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Copy the content into a single array.  The array is computed once; prefer {@link #getInputStream()} or {@link #getBuffers()}, which do not copy.
+     *
+     * @return content as an array
+     */
+    @Override
+    public byte[] get() {
+        if (this.cached == null) {
+            byte[] bytes = new byte[(int) this.size];
+            try {
+                InputStream in = this.getInputStream();
+                try {
+                    int n, offset = 0;
+                    while (offset < bytes.length && (n = in.read(bytes, offset, bytes.length - offset)) > 0) {
+                        offset += n;
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            this.cached = bytes;
+        }
+        return cached;
+    }
+
+    @Override
+    public String getString(String encoding) throws UnsupportedEncodingException {
+        return new String(this.get(), encoding);
+    }
+
+    @Override
+    public String getString() {
+        try {
+            return this.getString(DEFAULT_CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void write(File file) throws Exception {
+        if (this.spill != null) {
+            Files.move(this.spill, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            this.spill = null;
+        } else {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            try {
+                writeFully(channel, this.getBuffers());
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    @Override
+    public void delete() {
+        for (ByteBuffer chunk : this.chunks) {
+            this.pool.release(chunk);
+        }
+        this.chunks.clear();
+        this.cached = null;
+        try {
+            if (this.channel != null) {
+                this.channel.close();
+            }
+            if (this.spill != null) {
+                Files.deleteIfExists(this.spill);
+            }
+        } catch (IOException e) {
+            // noop
+        }
+    }
+
+    @Override
+    public String getFieldName() {
+        return this.fieldName;
+    }
+
+    @Override
+    public void setFieldName(String name) {
+        this.fieldName = name;
+    }
+
+    @Override
+    public boolean isFormField() {
+        return this.formField;
+    }
+
+    @Override
+    public void setFormField(boolean b) {
+        this.formField = b;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return new ChunkOutputStream();
+    }
+
+    @Override
+    public FileItemHeaders getHeaders() {
+        return this.headers;
+    }
+
+    @Override
+    public void setHeaders(FileItemHeaders headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Move in-memory content to a temporary file and give the buffers back to the pool
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void spill() throws IOException {
+        this.spill = this.repository == null ? Files.createTempFile("upload_", ".tmp") : Files.createTempFile(this.repository.toPath(), "upload_", ".tmp");
+        this.channel = FileChannel.open(this.spill, StandardOpenOption.WRITE);
+        writeFully(this.channel, this.getBuffers());
+        for (ByteBuffer chunk : this.chunks) {
+            this.pool.release(chunk);
+        }
+        this.chunks.clear();
+    }
+
+    /**
+     * Write the content in place of the buffers, which cannot be serialized
+     *
+     * @param out object stream
+     * @throws IOException if the content cannot be read or written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(this.spill == null ? this.get() : null);
+        out.writeObject(this.spill == null ? null : this.spill.toFile());
+    }
+
+    /**
+     * Restore the content written by {@link #writeObject}
+     *
+     * @param in object stream
+     * @throws IOException            if the content cannot be read
+     * @throws ClassNotFoundException if a class of the stream cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.pool = PooledFileItemFactory.SHARED_POOL;
+        this.chunks = Lists.newArrayList();
+        byte[] content = (byte[]) in.readObject();
+        File file = (File) in.readObject();
+        if (content != null) {
+            this.size = 0;
+            OutputStream out = this.getOutputStream();
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+        } else if (file != null) {
+            this.spill = file.toPath();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer... buffers) throws IOException {
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes into pooled buffers, spilling to disk past the threshold
+     */
+    private class ChunkOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (this.closed) {
+                throw new IOException("Stream closed");
+            }
+            size += len;
+            cached = null;
+            if (channel == null && threshold >= 0 && size > threshold) {
+                spill();
+            }
+            if (channel != null) {
+                writeFully(channel, ByteBuffer.wrap(b, off, len));
+                return;
+            }
+            while (len > 0) {
+                ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+                if (chunk == null || !chunk.hasRemaining()) {
+                    chunk = pool.acquire();
+                    chunks.add(chunk);
+                }
+                int n = Math.min(len, chunk.remaining());
+                chunk.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!this.closed && channel != null) {
+                channel.close();
+                channel = null;
+            }
+            this.closed = true;
+        }
+
+        private boolean closed;
+    }
+
+    /**
+     * Reads a sequence of buffers without copying them
+     */
+    private static class BufferInputStream extends InputStream {
+        BufferInputStream(ByteBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer buffer = this.current();
+            return buffer == null ? -1 : buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = this.current();
+            if (buffer == null) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            ByteBuffer buffer = this.current();
+            return buffer == null ? 0 : buffer.remaining();
+        }
+
+        private ByteBuffer current() {
+            while (this.index < this.buffers.length && !this.buffers[this.index].hasRemaining()) {
+                this.index++;
+            }
+            return this.index < this.buffers.length ? this.buffers[this.index] : null;
+        }
+
+        private int index;
+        private final ByteBuffer[] buffers;
+    }
+
+    private long size;
+    private String fileName;
+    private String fieldName;
+    private boolean formField;
+    private FileItemHeaders headers;
+    private final long threshold;
+    private final File repository;
+    private final String contentType;
+    private transient Path spill;
+    private transient byte[] cached;
+    private transient FileChannel channel;
+    private transient BufferPool pool;
+    private transient List<ByteBuffer> chunks = Lists.newArrayList();
+
+    private static final String DEFAULT_CHARSET = "ISO-8859-1";
+    private static final long serialVersionUID = 1L;
+}
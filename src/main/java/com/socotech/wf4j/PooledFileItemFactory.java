@@ -0,0 +1,52 @@
+package com.socotech.wf4j;
+
+import java.io.File;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemFactory;
+
+/**
+ * Creates {@link PooledFileItem}s that share a {@link BufferPool}.  With no threshold, uploads are kept entirely in memory, which suits deployments that cannot write to disk,
+ * i.e. Google Appengine; such deployments should also bound the upload size, since nothing else bounds the memory held by uploads.
+ */
+public class PooledFileItemFactory implements FileItemFactory {
+    /**
+     * Default constructor.  Content is kept in buffers from a shared heap pool, and spills to the default temporary directory past 1 MB.
+     */
+    public PooledFileItemFactory() {
+        this(SHARED_POOL, DEFAULT_THRESHOLD, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pool       buffer pool
+     * @param threshold  size in bytes past which content spills to disk, or -1 to keep content in memory
+     * @param repository directory for spilled content, or null for the default temporary directory
+     */
+    public PooledFileItemFactory(BufferPool pool, long threshold, File repository) {
+        this.pool = pool;
+        this.threshold = threshold;
+        this.repository = repository;
+    }
+
+    @Override
+    public FileItem createItem(String fieldName, String contentType, boolean isFormField, String fileName) {
+        return new PooledFileItem(fieldName, contentType, isFormField, fileName, this.pool, this.threshold, this.repository);
+    }
+
+    public BufferPool getPool() {
+        return pool;
+    }
+
+    private final long threshold;
+    private final File repository;
+    private final BufferPool pool;
+
+    /**
+     * Pool of the default factory, and of deserialized items
+     */
+    static final BufferPool SHARED_POOL = new BufferPool(16 * 1024, 256, false);
+
+    private static final long DEFAULT_THRESHOLD = 1024 * 1024;
+}
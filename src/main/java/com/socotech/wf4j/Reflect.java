@@ -3,6 +3,8 @@ package com.socotech.wf4j;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.beanutils.expression.DefaultResolver;
 import org.apache.commons.beanutils.expression.Resolver;
@@ -61,4 +63,26 @@ public class Reflect {
         // no field in target class or any ancestor
         return null;
     }
+
+    /**
+     * Resolves the declared type of a property.  Simple, indexed, and mapped properties are handled, as are the simple properties of a {@link DynaBean}.
+     *
+     * @param o    bean object
+     * @param name simple, indexed, or mapped property name
+     * @return declared type, or null if property is not found
+     * @throws InvocationTargetException unreadable field
+     * @throws NoSuchMethodException     no getter for private field?
+     * @throws IllegalAccessException    private field
+     */
+    public static Class<?> getDeclaredType(Object o, String name) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        Validate.notNull(o, "Object cannot be null");
+        Validate.notEmpty(name, "Name cannot be empty");
+        Resolver resolver = new DefaultResolver();
+        if (o instanceof DynaBean && !resolver.hasNested(name)) {
+            DynaProperty property = ((DynaBean) o).getDynaClass().getDynaProperty(resolver.getProperty(name));
+            return property == null ? null : property.getType();
+        }
+        Field field = getDeclaredField(o, name);
+        return field == null ? null : field.getType();
+    }
 }
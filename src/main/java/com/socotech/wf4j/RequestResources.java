@@ -0,0 +1,112 @@
+package com.socotech.wf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Deque;
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.collect.Queues;
+import org.apache.commons.fileupload.FileItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resources whose lifetime is tied to a single request, i.e. channels opened on uploaded files and the temporary files behind them.  Resources are released in reverse order of
+ * registration when the action completes.
+ */
+final class RequestResources implements Closeable {
+    /**
+     * Find or create the resources of a request
+     *
+     * @param request web request
+     * @return request resources
+     */
+    static RequestResources of(HttpServletRequest request) {
+        RequestResources resources = (RequestResources) request.getAttribute(ATTRIBUTE);
+        if (resources == null) {
+            resources = new RequestResources();
+            request.setAttribute(ATTRIBUTE, resources);
+        }
+        return resources;
+    }
+
+    /**
+     * Release the resources of a request, if any
+     *
+     * @param request web request
+     */
+    static void release(HttpServletRequest request) {
+        RequestResources resources = (RequestResources) request.getAttribute(ATTRIBUTE);
+        if (resources != null) {
+            request.removeAttribute(ATTRIBUTE);
+            resources.close();
+        }
+    }
+
+    /**
+     * Close a resource when the request completes
+     *
+     * @param closeable resource
+     * @return the resource
+     */
+    <T extends Closeable> T register(T closeable) {
+        this.closeables.push(closeable);
+        return closeable;
+    }
+
+    /**
+     * Delete a file when the request completes
+     *
+     * @param path file
+     * @return the file
+     */
+    Path deleteOnClose(final Path path) {
+        this.register(new Closeable() {
+            @Override
+            public void close() throws IOException {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // still mapped on platforms that lock mapped files
+                    path.toFile().deleteOnExit();
+                    throw e;
+                }
+            }
+        });
+        return path;
+    }
+
+    /**
+     * Delete an uploaded file item when the request completes
+     *
+     * @param item file item
+     * @return the file item
+     */
+    FileItem deleteOnClose(final FileItem item) {
+        this.register(new Closeable() {
+            @Override
+            public void close() {
+                item.delete();
+            }
+        });
+        return item;
+    }
+
+    @Override
+    public void close() {
+        while (!this.closeables.isEmpty()) {
+            try {
+                this.closeables.pop().close();
+            } catch (IOException e) {
+                log.warn("Unable to release request resource: " + e.getMessage());
+            }
+        }
+    }
+
+    private final Deque<Closeable> closeables = Queues.newArrayDeque();
+
+    private static final String ATTRIBUTE = RequestResources.class.getName();
+    private static final Logger log = LoggerFactory.getLogger(RequestResources.class);
+}
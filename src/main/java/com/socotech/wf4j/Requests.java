@@ -146,7 +146,7 @@ public class Requests {
      */
     public static String getRequiredStringParameter(HttpServletRequest request, String name) {
         String value = request.getParameter(name);
-        Validate.notEmpty(name, "Required parameter not found in request: " + name);
+        require(value, name);
         return value;
     }
 
@@ -185,7 +185,7 @@ public class Requests {
      */
     public static boolean getRequiredBooleanParameter(HttpServletRequest request, String name) {
         String value = request.getParameter(name);
-        Validate.notEmpty("Required parameter not found in request: " + name);
+        require(value, name);
         return Boolean.valueOf(value);
     }
 
@@ -215,7 +215,7 @@ public class Requests {
      */
     public static Number getRequiredIdParameter(HttpServletRequest request, String name) {
         Number value = getIdParameter(request, name, null);
-        Validate.notNull(value, "Required parameter not found in request: " + name);
+        require(value, name);
         return value;
     }
 
@@ -283,7 +283,7 @@ public class Requests {
      */
     public static Integer getRequiredIntParameter(HttpServletRequest request, String name) {
         String value = request.getParameter(name);
-        Validate.notEmpty(value, "Required parameter not found in request: " + name);
+        require(value, name);
         return Integer.parseInt(value);
     }
 
@@ -330,7 +330,7 @@ public class Requests {
      */
     public static Long getRequiredLongParameter(HttpServletRequest request, String name) {
         String value = request.getParameter(name);
-        Validate.notEmpty(value, "Required parameter not found in request: " + name);
+        require(value, name);
         return Long.parseLong(value);
     }
 
@@ -360,7 +360,7 @@ public class Requests {
      */
     public static Float getRequiredFloatParameter(HttpServletRequest request, String name) {
         String value = request.getParameter(name);
-        Validate.notEmpty(value, "Required parameter not found in request: " + name);
+        require(value, name);
         return Float.parseFloat(value);
     }
 
@@ -406,11 +406,11 @@ public class Requests {
 
                 // Is the start date "logical"? (See issue #2888)
                 if (DateManager.getField(dateStart, Calendar.YEAR) < 2000) {
-                    errors.put(WF4JScopeVariable.date_start.name(), "Please enter a start date after January 1, 2000.");
+                    errors.putMessage(WF4JScopeVariable.date_start.name(), Messages.DATE_START_MIN);
                 }
 
             } catch (ParseException pe) {
-                errors.put(WF4JScopeVariable.date_start.name(), "The start date must be a valid date and in format MM/DD/YYYY.");
+                errors.putMessage(WF4JScopeVariable.date_start.name(), Messages.DATE_START_INVALID);
             }
         }
         String paramEndDate = request.getParameter(WF4JScopeVariable.date_end.name());
@@ -429,22 +429,35 @@ public class Requests {
 
                 // Is the end date "logical"? (See issue #2888)
                 if (!dateEnd.before(DateManager.tomorrow())) {
-                    errors.put(WF4JScopeVariable.date_end.name(), "Please enter a end date no later than today.");
+                    errors.putMessage(WF4JScopeVariable.date_end.name(), Messages.DATE_END_MAX);
                 }
 
             } catch (ParseException pe) {
-                errors.put(WF4JScopeVariable.date_end.name(), "The end date must be be a valid date and in format MM/DD/YYYY.");
+                errors.putMessage(WF4JScopeVariable.date_end.name(), Messages.DATE_END_INVALID);
             }
         }
 
         // Are the dates the right order?
         if (dateStart != null && dateEnd != null && dateStart.after(dateEnd)) {
-            errors.put(WF4JScopeVariable.date_end.name(), "The start date can't be after the end date.");
+            errors.putMessage(WF4JScopeVariable.date_end.name(), Messages.DATE_ORDER);
         }
 
         log.debug("Your report's final date range: " + DateManager.dateToString(dateStart) + " to " + DateManager.dateToString(dateEnd));
     }
 
+    /**
+     * Throw an exception with a message code if a required parameter is not found
+     *
+     * @param value parameter value
+     * @param name  parameter name
+     * @throws InvalidValueException if value is null or empty
+     */
+    private static void require(Object value, String name) {
+        if (value == null || "".equals(value)) {
+            throw new InvalidValueException(Messages.PARAMETER_REQUIRED, name);
+        }
+    }
+
     /**
      * <p/> A logging category for this class. </p>
      */
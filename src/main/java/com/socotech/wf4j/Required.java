@@ -0,0 +1,32 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requires a form field to have a value.  Null values, blank strings and empty arrays, collections and maps are rejected.
+ *
+ * @see ValidationPlan
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Required {
+    /**
+     * The error description reported on the field, or a {@link Messages message code} in braces
+     *
+     * @return error description
+     */
+    String message() default "{" + Messages.REQUIRED + "}";
+
+    /**
+     * The relative cost of the check.  Cheaper checks run first, which matters most when an action fails fast.
+     *
+     * @return relative cost
+     * @see Form#failFast()
+     */
+    int cost() default 0;
+}
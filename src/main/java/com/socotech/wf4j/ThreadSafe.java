@@ -0,0 +1,18 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link FormValidator} or {@link AsyncFormValidator} that may validate several forms at once, i.e. one that keeps no per-request state in its fields.  A single instance of a marked validator is
+ * shared by every request to an action; an unmarked validator is instantiated once per thread instead, or once per request if the action overrides its factory
+ * method.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ThreadSafe {
+}
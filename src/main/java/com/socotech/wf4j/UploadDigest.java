@@ -0,0 +1,47 @@
+package com.socotech.wf4j;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * The size and checksums of an uploaded file, computed as it was streamed from the request
+ */
+public final class UploadDigest {
+    /**
+     * Constructor
+     *
+     * @param size   size in bytes
+     * @param sha256 SHA-256 digest
+     * @param crc32  CRC-32 checksum
+     */
+    UploadDigest(long size, byte[] sha256, long crc32) {
+        this.size = size;
+        this.crc32 = crc32;
+        this.sha256 = sha256;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return SHA-256 digest
+     */
+    public byte[] getSha256() {
+        return sha256.clone();
+    }
+
+    /**
+     * @return SHA-256 digest as lower-case hex, i.e. as a content address for de-duplication
+     */
+    public String getSha256Hex() {
+        return BaseEncoding.base16().lowerCase().encode(this.sha256);
+    }
+
+    public long getCrc32() {
+        return crc32;
+    }
+
+    private final long size;
+    private final long crc32;
+    private final byte[] sha256;
+}
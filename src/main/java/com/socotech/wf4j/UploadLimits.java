@@ -0,0 +1,104 @@
+package com.socotech.wf4j;
+
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Limits applied to the files uploaded in a single form submission.  A negative limit is not enforced.
+ */
+public final class UploadLimits {
+    /**
+     * Constructor
+     *
+     * @param maxFileSize   maximum size of each file
+     * @param maxUploadSize maximum size of the request
+     * @param maxFiles      maximum number of files
+     * @param types         accepted content types, or empty to accept any type
+     * @param fields        limits of specific properties
+     */
+    public UploadLimits(long maxFileSize, long maxUploadSize, int maxFiles, String[] types, FormUpload... fields) {
+        this.types = types.clone();
+        this.maxFiles = maxFiles;
+        this.maxFileSize = maxFileSize;
+        this.maxUploadSize = maxUploadSize;
+        ImmutableMap.Builder<String, FormUpload> builder = ImmutableMap.builder();
+        for (FormUpload field : fields) {
+            builder.put(field.property(), field);
+        }
+        this.fields = builder.build();
+    }
+
+    /**
+     * Read limits from a form specification
+     *
+     * @param form form spec
+     * @return limits
+     */
+    public static UploadLimits of(Form form) {
+        return new UploadLimits(form.maxFileSize(), form.maxUploadSize(), form.maxFiles(), form.uploadTypes(), form.uploads());
+    }
+
+    /**
+     * Resolve the maximum size of a file uploaded to a property
+     *
+     * @param name property name
+     * @return maximum size in bytes, or -1 for no limit
+     */
+    public long getMaxFileSize(String name) {
+        FormUpload field = this.getField(name);
+        return field != null && field.maxFileSize() >= 0 ? field.maxFileSize() : this.maxFileSize;
+    }
+
+    /**
+     * Reject a file whose content type is not accepted for a property
+     *
+     * @param name        property name
+     * @param contentType content type supplied by the client
+     * @throws ParameterLimitException if the content type is not accepted
+     */
+    public void checkType(String name, String contentType) throws ParameterLimitException {
+        FormUpload field = this.getField(name);
+        String[] accepted = field != null && field.types().length > 0 ? field.types() : this.types;
+        if (accepted.length == 0) {
+            return;
+        }
+        String type = StringUtils.trimToEmpty(StringUtils.substringBefore(contentType, ";")).toLowerCase();
+        for (String pattern : accepted) {
+            pattern = pattern.toLowerCase();
+            if (pattern.equals(type) || pattern.endsWith("/*") && type.startsWith(pattern.substring(0, pattern.length() - 1))) {
+                return;
+            }
+        }
+        throw new ParameterLimitException(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Content type not accepted for " + name + ": " + contentType);
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public long getMaxUploadSize() {
+        return maxUploadSize;
+    }
+
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    private FormUpload getField(String name) {
+        return this.fields.isEmpty() ? null : this.fields.get(Patterns.INDEX_REFERENCE.matcher(name).replaceAll(""));
+    }
+
+    /**
+     * Limits that are never enforced
+     */
+    public static final UploadLimits NONE = new UploadLimits(-1, -1, -1, new String[0]);
+
+    private final int maxFiles;
+    private final String[] types;
+    private final long maxFileSize;
+    private final long maxUploadSize;
+    private final Map<String, FormUpload> fields;
+}
@@ -0,0 +1,148 @@
+package com.socotech.wf4j;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemFactory;
+import org.apache.commons.fileupload.disk.DiskFileItem;
+import org.apache.commons.io.FileCleaningTracker;
+
+/**
+ * A file item factory shared by every action of a controller.  Uploads larger than the threshold are spooled to a dedicated repository directory, and a single
+ * {@link FileCleaningTracker} reaps temporary files whose items are garbage collected without being deleted.  Actions delete their items when the request completes, so the
+ * tracker is only a safety net.
+ * <p/>
+ * The number of bytes spooled to disk and the number of temporary files still on disk are tracked for monitoring.
+ */
+public class UploadManager implements FileItemFactory {
+    /**
+     * Constructor
+     *
+     * @param threshold  size in bytes past which uploads are spooled to disk
+     * @param repository directory for temporary files, created if missing
+     */
+    public UploadManager(int threshold, File repository) {
+        this.threshold = threshold;
+        this.repository = repository;
+        if (!repository.isDirectory() && !repository.mkdirs()) {
+            throw new IllegalStateException("Unable to create upload repository " + repository);
+        }
+    }
+
+    /**
+     * Find the upload manager made available to a request by the controller
+     *
+     * @param request web request
+     * @return upload manager, or null if none
+     */
+    public static UploadManager of(HttpServletRequest request) {
+        return (UploadManager) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * Make this upload manager available to a request
+     *
+     * @param request web request
+     */
+    public void attach(HttpServletRequest request) {
+        request.setAttribute(ATTRIBUTE, this);
+    }
+
+    @Override
+    public FileItem createItem(String fieldName, String contentType, boolean isFormField, String fileName) {
+        ManagedFileItem item = new ManagedFileItem(fieldName, contentType, isFormField, fileName);
+        this.tracker.track(item.getTempFile(), item);
+        return item;
+    }
+
+    /**
+     * @return total number of bytes spooled to disk
+     */
+    public long getBytesSpooled() {
+        return this.bytesSpooled.get();
+    }
+
+    /**
+     * @return number of temporary files still on disk
+     */
+    public int getFilesOutstanding() {
+        // files are deleted, reaped or taken over outside of this class, so prune on read
+        Iterator<File> files = this.spooled.iterator();
+        while (files.hasNext()) {
+            if (!files.next().exists()) {
+                files.remove();
+            }
+        }
+        return this.spooled.size();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public File getRepository() {
+        return repository;
+    }
+
+    /**
+     * Stop the reaper once every tracked file is deleted
+     */
+    public void shutdown() {
+        this.tracker.exitWhenFinished();
+    }
+
+    /**
+     * A disk file item that reports when its content is spooled to disk
+     */
+    private class ManagedFileItem extends DiskFileItem {
+        ManagedFileItem(String fieldName, String contentType, boolean isFormField, String fileName) {
+            super(fieldName, contentType, isFormField, fileName, threshold, repository);
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return new FilterOutputStream(super.getOutputStream()) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    this.out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    if (!isInMemory()) {
+                        bytesSpooled.addAndGet(getSize());
+                        spooled.add(getStoreLocation());
+                    }
+                }
+            };
+        }
+
+        /**
+         * Widened to package access so the factory can track the file
+         */
+        @Override
+        protected File getTempFile() {
+            return super.getTempFile();
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private final int threshold;
+    private final File repository;
+    private final AtomicLong bytesSpooled = new AtomicLong();
+    private final FileCleaningTracker tracker = new FileCleaningTracker();
+    private final Set<File> spooled = Collections.newSetFromMap(Maps.<File, Boolean>newConcurrentMap());
+
+    private static final String ATTRIBUTE = UploadManager.class.getName();
+}
@@ -0,0 +1,181 @@
+package com.socotech.wf4j;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The upload processors started for one form target.  Processing is joined with a deadline before the form is handed to the action; tasks still running when the request
+ * completes are cancelled.
+ * <p/>
+ * Each task owns the file it processes: the file is deleted when the request completes, unless its task is still reading it, in which case the task deletes the file once it
+ * stops.  A task interrupted by cancellation may not stop at once, and a pooled file item must not hand its buffers back while they are read.
+ */
+final class UploadProcessing implements Closeable {
+    /**
+     * Start processing an uploaded file.  The file item is deleted by this processing, so it must not also be deleted when the request completes.
+     *
+     * @param executor  executor
+     * @param name      property name
+     * @param processor upload processor
+     * @param item      uploaded file
+     * @param digest    size and checksums computed while the file was streamed
+     */
+    <T> void submit(ExecutorService executor, final String name, final UploadProcessor<T> processor, final FileItem item, final UploadDigest digest) {
+        final AtomicInteger state = new AtomicInteger(NEW);
+        Future<T> future = executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (!state.compareAndSet(NEW, RUNNING)) {
+                    return null;  // closed before it started
+                }
+                try {
+                    return processor.process(name, item, digest);
+                } finally {
+                    if (!state.compareAndSet(RUNNING, DONE)) {
+                        // request completed while the file was read
+                        item.delete();
+                    }
+                }
+            }
+        });
+        this.tasks.add(new Task<T>(name, processor, item, state, future));
+    }
+
+    /**
+     * Wait for every task to complete.  Failed and late tasks are reported on their property and dropped; late tasks are cancelled.
+     *
+     * @param errors        error packet
+     * @param timeoutMillis time allowed for all tasks, in milliseconds
+     * @throws InterruptedException if the request thread is interrupted
+     */
+    void await(FormErrors errors, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Task<?> task : this.tasks) {
+            try {
+                task.await(deadline - System.nanoTime());
+            } catch (TimeoutException e) {
+                task.future.cancel(true);
+                if (!errors.isSet(task.name)) {  // don't overwrite existing property error
+                    errors.put(task.name, "Upload processing did not complete in time");
+                }
+            } catch (ExecutionException e) {
+                if (!errors.isSet(task.name)) {  // don't overwrite existing property error
+                    errors.put(task.name, ExceptionUtils.getRootCauseMessage(e.getCause()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply the results of the tasks that completed
+     *
+     * @param o      form object
+     * @param errors error packet
+     * @throws Exception if a result cannot be applied
+     */
+    void apply(Object o, FormErrors errors) throws Exception {
+        for (Task<?> task : this.tasks) {
+            task.apply(o, errors);
+        }
+    }
+
+    /**
+     * Cancel the tasks still running and delete the files no task is reading
+     */
+    @Override
+    public void close() {
+        for (Task<?> task : this.tasks) {
+            task.close();
+        }
+    }
+
+    /**
+     * @return shared executor, bounded by the number of processors; once its queue is full, uploads are processed on the request thread
+     */
+    static ExecutorService getDefaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * A pending upload processor
+     */
+    private static final class Task<T> {
+        Task(String name, UploadProcessor<T> processor, FileItem item, AtomicInteger state, Future<T> future) {
+            this.name = name;
+            this.item = item;
+            this.state = state;
+            this.future = future;
+            this.processor = processor;
+        }
+
+        void await(long nanos) throws InterruptedException, ExecutionException, TimeoutException {
+            this.result = this.future.get(Math.max(nanos, 0), TimeUnit.NANOSECONDS);
+            this.done = true;
+        }
+
+        void apply(Object o, FormErrors errors) throws Exception {
+            if (this.done) {
+                this.processor.apply(o, this.name, this.result, errors);
+            }
+        }
+
+        void close() {
+            int state = this.state.getAndSet(CLOSED);
+            if (state == RUNNING) {
+                // task deletes the file once it stops reading
+                this.future.cancel(true);
+            } else if (state != CLOSED) {
+                this.future.cancel(false);
+                this.item.delete();
+            }
+        }
+
+        private T result;
+        private boolean done;
+        private final String name;
+        private final FileItem item;
+        private final AtomicInteger state;
+        private final Future<T> future;
+        private final UploadProcessor<T> processor;
+    }
+
+    /**
+     * Lazily created default executor
+     */
+    private static class DefaultExecutor {
+        static final ExecutorService INSTANCE;
+
+        static {
+            int threads = Runtime.getRuntime().availableProcessors();
+            INSTANCE = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(threads * 64),
+                    new ThreadFactoryBuilder().setNameFormat("wf4j-upload-%d").setDaemon(true).build(), new ThreadPoolExecutor.CallerRunsPolicy());
+            ((ThreadPoolExecutor) INSTANCE).allowCoreThreadTimeOut(true);
+            log.debug("Processing uploads on " + threads + " threads");
+        }
+    }
+
+    private final List<Task<?>> tasks = Lists.newArrayList();
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int CLOSED = 3;
+
+    private static final Logger log = LoggerFactory.getLogger(UploadProcessing.class);
+}
@@ -0,0 +1,37 @@
+package com.socotech.wf4j;
+
+import org.apache.commons.fileupload.FileItem;
+
+/**
+ * Post-processes uploaded files, i.e. to sniff content types or render thumbnails, while the rest of a multipart request is still being read.  Each file is handed to
+ * {@link #process} on a background thread as soon as it is spooled; the results are handed to {@link #apply} on the request thread once every file has been read and the
+ * form bound, before {@link AbstractFormAction#onBind} is called.
+ * <p/>
+ * A file whose processing fails or misses the deadline is reported as an error on its property, and {@link #apply} is not called for it.
+ *
+ * @param <T> result type
+ */
+public interface UploadProcessor<T> {
+    /**
+     * Process an uploaded file on a background thread.  The file item must only be read; it is deleted when the request completes, or once this method
+     * returns if the request completes first.
+     *
+     * @param name   property name, relative to the form object
+     * @param item   uploaded file
+     * @param digest size and checksums computed while the file was streamed
+     * @return processing result
+     * @throws Exception if the file cannot be processed
+     */
+    T process(String name, FileItem item, UploadDigest digest) throws Exception;
+
+    /**
+     * Apply a processing result to the form on the request thread
+     *
+     * @param o      form object
+     * @param name   property name, relative to the form object
+     * @param result processing result
+     * @param errors error packet
+     * @throws Exception if the result cannot be applied
+     */
+    void apply(Object o, String name, T result, FormErrors errors) throws Exception;
+}
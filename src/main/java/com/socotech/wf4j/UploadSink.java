@@ -0,0 +1,23 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Implemented by form objects that consume uploaded files as they are streamed from a multipart request.  A file part routed to a sink is neither spooled by the
+ * {@link org.apache.commons.fileupload.FileItemFactory} nor bound to a form property, so heap use does not depend on the size of the upload.
+ * <p/>
+ * Parts are handed to the sink in the order they appear in the request, before any form field is bound.  Limits still apply to the number of parts.
+ */
+public interface UploadSink {
+    /**
+     * Consume an uploaded file.  The stream is closed by the caller; any content not read is skipped.
+     *
+     * @param name        field name, relative to the form object
+     * @param fileName    file name supplied by the client, if any
+     * @param contentType content type supplied by the client, if any
+     * @param in          file content
+     * @throws IOException if the file cannot be consumed
+     */
+    void receiveUpload(String name, String fileName, String contentType, InputStream in) throws IOException;
+}
@@ -0,0 +1,112 @@
+package com.socotech.wf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Streams an uploaded file, enforcing its size limit and computing its size and checksums as bytes are read.  Exceeding the limit aborts the read with a
+ * {@link LimitExceeded} exception.
+ */
+final class UploadStream extends FilterInputStream {
+    /**
+     * Constructor
+     *
+     * @param in          file content
+     * @param name        field name
+     * @param maxFileSize maximum size in bytes, or -1 for no limit
+     */
+    UploadStream(InputStream in, String name, long maxFileSize) {
+        super(in);
+        this.name = name;
+        this.maxFileSize = maxFileSize;
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            this.sha256.update((byte) b);
+            this.crc32.update(b);
+            this.count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            this.sha256.update(b, off, n);
+            this.crc32.update(b, off, n);
+            this.count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes must still be digested
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        int read;
+        while (skipped < n && (read = this.read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0) {
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @return size and checksums of the bytes read so far; complete once the stream is exhausted
+     */
+    UploadDigest getDigest() {
+        try {
+            return new UploadDigest(this.size, ((MessageDigest) this.sha256.clone()).digest(), this.crc32.getValue());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void count(int n) throws LimitExceeded {
+        this.size += n;
+        if (this.maxFileSize >= 0 && this.size > this.maxFileSize) {
+            throw new LimitExceeded(new ParameterLimitException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, Messages.FILE_TOO_LARGE, this.name, String.valueOf(this.maxFileSize)));
+        }
+    }
+
+    /**
+     * Carries a {@link ParameterLimitException} through the {@link InputStream} API
+     */
+    static final class LimitExceeded extends IOException {
+        LimitExceeded(ParameterLimitException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public ParameterLimitException getCause() {
+            return (ParameterLimitException) super.getCause();
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private long size;
+    private final String name;
+    private final long maxFileSize;
+    private final MessageDigest sha256;
+    private final CRC32 crc32 = new CRC32();
+}
@@ -0,0 +1,198 @@
+package com.socotech.wf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.io.Closeables;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.disk.DiskFileItem;
+
+/**
+ * A handle to an uploaded file that is bound to a form property without copying its content onto the heap.  A file spooled to disk is taken over by renaming its temporary
+ * file, so it is no longer deleted with the upload; a file held in memory is exposed as a read-only view of the uploaded bytes.
+ * <p/>
+ * Once bound, the handle owns the file.  Handlers should either {@link #moveTo(Path) move} it to storage or {@link #delete() delete} it.
+ */
+public final class UploadedFile {
+    /**
+     * Constructor
+     *
+     * @param fileName    file name supplied by the client
+     * @param contentType content type supplied by the client
+     * @param size        size in bytes
+     * @param path        file content on disk, if any
+     * @param content     file content in memory, if any
+     * @param digest      size and checksums computed while the file was streamed, if any
+     */
+    private UploadedFile(String fileName, String contentType, long size, Path path, byte[] content, UploadDigest digest) {
+        this.size = size;
+        this.digest = digest;
+        this.path = path;
+        this.content = content;
+        this.fileName = fileName;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Take over the content of an uploaded file item
+     *
+     * @param item   file item
+     * @param digest size and checksums computed while the file was streamed, if any
+     * @return file handle
+     * @throws IOException if a temporary file cannot be renamed or written
+     */
+    static UploadedFile of(FileItem item, UploadDigest digest) throws IOException {
+        if (item.isInMemory()) {
+            // DiskFileItem returns its cached content without copying; PooledFileItem copies once, so its buffers can go back to the pool
+            return new UploadedFile(item.getName(), item.getContentType(), item.getSize(), null, item.get(), digest);
+        }
+        long size = item.getSize();
+        Path path, store = null;
+        if (item instanceof DiskFileItem && ((DiskFileItem) item).getStoreLocation() != null) {
+            store = ((DiskFileItem) item).getStoreLocation().toPath();
+        } else if (item instanceof PooledFileItem) {
+            store = ((PooledFileItem) item).getStoreLocation();
+        } else if (item instanceof PathFileItem) {
+            store = ((PathFileItem) item).getStoreLocation();
+        }
+        if (store != null) {
+            // rename temp file so the file item no longer deletes it
+            path = Files.move(store, Files.createTempFile(store.getParent(), "upload_", ".tmp"), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            path = Files.createTempFile("upload_", ".tmp");
+            InputStream in = item.getInputStream();
+            try {
+                Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Closeables.close(in, true);
+            }
+        }
+        return new UploadedFile(item.getName(), item.getContentType(), size, path, null, digest);
+    }
+
+    /**
+     * @return file name supplied by the client, if any
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return content type supplied by the client, if any
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return size and checksums computed while the file was streamed, or null if not available
+     */
+    public UploadDigest getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return true, if content is held in memory rather than on disk
+     */
+    public boolean isInMemory() {
+        return this.path == null;
+    }
+
+    /**
+     * Locate the file on disk.  Content held in memory is written to a temporary file on first call.
+     *
+     * @return path to file content
+     * @throws IOException if content cannot be written to disk
+     */
+    public Path getPath() throws IOException {
+        if (this.path == null) {
+            this.path = Files.write(Files.createTempFile("upload_", ".tmp"), this.content);
+            this.content = null;
+        }
+        return path;
+    }
+
+    /**
+     * @return read-only view of content held in memory, or null if content is on disk
+     */
+    public ByteBuffer getBuffer() {
+        return this.content == null ? null : ByteBuffer.wrap(this.content).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a new stream over the file content
+     * @throws IOException if the file cannot be opened
+     */
+    public InputStream openStream() throws IOException {
+        return this.content == null ? Files.newInputStream(this.path) : new ByteArrayInputStream(this.content);
+    }
+
+    /**
+     * @return a new channel over the file content; a {@link FileChannel} if content is on disk
+     * @throws IOException if the file cannot be opened
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+        return this.content == null ? FileChannel.open(this.path, StandardOpenOption.READ) : Channels.newChannel(new ByteArrayInputStream(this.content));
+    }
+
+    /**
+     * Move the file to its final location.  A file on disk is renamed; content held in memory is written out.
+     *
+     * @param target destination path
+     * @return destination path
+     * @throws IOException if the file cannot be moved
+     */
+    public Path moveTo(Path target) throws IOException {
+        if (this.content == null) {
+            this.path = Files.move(this.path, target, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            this.path = Files.write(target, this.content);
+            this.content = null;
+        }
+        return this.path;
+    }
+
+    /**
+     * Discard the file content
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        if (this.path != null) {
+            Files.deleteIfExists(this.path);
+        }
+        this.content = null;
+    }
+
+    /**
+     * @return file on disk, for APIs that predate {@link Path}
+     * @throws IOException if content cannot be written to disk
+     */
+    public File getFile() throws IOException {
+        return this.getPath().toFile();
+    }
+
+    private Path path;
+    private byte[] content;
+    private final long size;
+    private final UploadDigest digest;
+    private final String fileName;
+    private final String contentType;
+}
@@ -0,0 +1,174 @@
+package com.socotech.wf4j;
+
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Primitives;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.fileupload.FileItem;
+
+/**
+ * The client-side view of a form: the type of each bindable field, the editors bound to it and its declared constraints, rendered once per form and bundle locale, i.e.
+ * the locale of the {@link Messages} bundle that supplies its messages, as compact JSON.
+ * <pre>
+ * {"form": "signup", "fields": {"age": {"type": "integer", "constraints": [{"type": "range", "min": 0.0, "max": 120.0, "message": "Must be between 0 and 120"}]}}}
+ * </pre>
+ * A script can check the cheap constraints before submitting; the server still validates everything.  Nested properties, form validators and async validators are not
+ * described.
+ * Patterns in Java-only syntax, i.e. <code>\p{Alpha}</code> or <code>(?i)</code>, carry no pattern and are marked <code>"portable": false</code>.
+ */
+final class ValidationManifest {
+    /**
+     * Constructor
+     *
+     * @param json manifest content, UTF-8
+     */
+    private ValidationManifest(byte[] json) {
+        this.json = json;
+        this.etag = '"' + Hashing.murmur3_128().hashBytes(json).toString() + '"';
+    }
+
+    /**
+     * Find or render the manifest of a form.  Clients whose locales share a bundle share a manifest, with messages formatted in the locale of the bundle.
+     *
+     * @param form   form spec
+     * @param locale locale of messages
+     * @return manifest
+     * @throws IOException if the manifest cannot be rendered
+     */
+    static ValidationManifest of(Form form, Locale locale) throws IOException {
+        Locale resolved = Messages.resolve(locale == null ? Locale.getDefault() : locale);
+        Pair<Form, Locale> key = new Pair<Form, Locale>(form, resolved);
+        ValidationManifest manifest = MANIFESTS.getIfPresent(key);
+        if (manifest == null) {
+            manifest = new ValidationManifest(render(form, resolved));
+            MANIFESTS.put(key, manifest);
+        }
+        return manifest;
+    }
+
+    /**
+     * Discard every manifest, i.e. when message templates change
+     */
+    static void clear() {
+        MANIFESTS.invalidateAll();
+    }
+
+    /**
+     * @return manifest content, UTF-8
+     */
+    byte[] getContent() {
+        return json;
+    }
+
+    /**
+     * @return strong entity tag of the content
+     */
+    String getETag() {
+        return etag;
+    }
+
+    private static byte[] render(Form form, Locale locale) throws IOException {
+        BindingPlan binding = BindingPlan.of(form);
+        ValidationPlan validation = ValidationPlan.of(form.formClass());
+        // bindable and constrained fields, in a stable order
+        Set<String> fields = new TreeSet<String>(binding.getProperties());
+        fields.addAll(validation.getFields());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("form").value(form.name());
+        if (!form.prefix().isEmpty()) {
+            json.name("prefix").value(form.prefix());
+        }
+        json.name("fields").beginObject();
+        for (String field : fields) {
+            json.name(field).beginObject().name("type").value(typeOf(form.formClass(), field));
+            Set<FormBinder> binders = binding.getBinders(field);
+            if (!binders.isEmpty()) {
+                json.name("editors").beginArray();
+                for (FormBinder binder : binders) {
+                    json.beginObject().name("editor").value(binder.editorClass().getSimpleName());
+                    if (DatePropertyEditor.class.isAssignableFrom(binder.editorClass())) {
+                        json.name("formats").beginArray();
+                        for (String pattern : DatePropertyEditor.getPatterns()) {
+                            json.value(pattern);
+                        }
+                        json.endArray();
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            if (validation.getFields().contains(field)) {
+                json.name("constraints");
+                validation.describe(field, json, locale);
+            }
+            json.endObject();
+        }
+        json.endObject().endObject().close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Name the JSON type of a form field
+     *
+     * @param clazz form class
+     * @param field field name
+     * @return string, integer, number, boolean, date, file, array or object
+     */
+    private static String typeOf(Class<?> clazz, String field) {
+        Class<?> type = null;
+        for (PropertyDescriptor pd : PropertyUtils.getPropertyDescriptors(clazz)) {
+            if (pd.getName().equals(field)) {
+                type = pd.getPropertyType();
+            }
+        }
+        for (Class<?> c = clazz; type == null && c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (f.getName().equals(field)) {
+                    type = f.getType();
+                }
+            }
+        }
+        if (type == null || CharSequence.class.isAssignableFrom(type) || type == char.class || type == Character.class || type.isEnum()) {
+            return "string";
+        }
+        type = Primitives.wrap(type);
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class || type == BigInteger.class) {
+            return "integer";
+        } else if (Number.class.isAssignableFrom(type)) {
+            return "number";
+        } else if (type == Boolean.class) {
+            return "boolean";
+        } else if (Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)) {
+            return "date";
+        } else if (type == UploadedFile.class || type == byte[].class || Path.class.isAssignableFrom(type) || type == File.class || FileItem.class.isAssignableFrom(type)) {
+            return "file";
+        } else if (type.isArray() || Collection.class.isAssignableFrom(type)) {
+            return "array";
+        }
+        return "object";
+    }
+
+    private final byte[] json;
+    private final String etag;
+
+    /**
+     * Manifests by form and bundle locale, bounded since sub-classes of {@link ValidationManifestAction} may serve any number of forms
+     */
+    private static final Cache<Pair<Form, Locale>, ValidationManifest> MANIFESTS = CacheBuilder.newBuilder().maximumSize(1024).build();
+}
@@ -0,0 +1,115 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ValidationManifestAction.java
+ * <p/>
+ * Serves the client-side validation manifest of a form, so a script can check field types and declared constraints before it submits:
+ * <pre>
+ * &#64;WebActions(actions = {&#64;WebAction(path = "/wf4j/manifest", type = ValidationManifestAction.class)})
+ * </pre>
+ * The form is named by the <code>form</code> parameter, i.e. <code>/wf4j/manifest?form=signup</code>, and must be the {@link Form#name() name} of a form declared by an action
+ * of the controller, or the class name of its form object.  Forms left with the default name are served by class name only.  Messages are formatted in the locale of the request.  Each manifest is rendered once and served with a strong entity tag, so a cached copy is revalidated
+ * without being sent again.
+ */
+public class ValidationManifestAction extends AbstractAction {
+
+    /**
+     * Write the manifest of the named form, or answer 304 if the client already has it
+     *
+     * @param req web request
+     * @param res web response
+     * @throws IOException      if the manifest cannot be written
+     * @throws ServletException servlet error
+     */
+    @Override
+    public void execute(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
+        Form form = this.getForm(req, req.getParameter(FORM));
+        if (form == null) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ValidationManifest manifest = ValidationManifest.of(form, req.getLocale());
+        res.setHeader("ETag", manifest.getETag());
+        res.setHeader("Cache-Control", "public, max-age=" + this.getMaxAge());
+        res.setHeader("Vary", "Accept-Language");
+        if (matches(req.getHeader("If-None-Match"), manifest.getETag())) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] content = manifest.getContent();
+        res.setContentType("application/json;charset=UTF-8");
+        res.setContentLength(content.length);
+        ServletOutputStream out = res.getOutputStream();
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Find a form declared by an action of the controller.  Sub-classes can override to serve other forms, i.e. those of actions outside the controller.
+     *
+     * @param request web request
+     * @param name    form name
+     * @return form spec, or null if no such form is declared
+     */
+    @SuppressWarnings("unchecked")
+    protected Form getForm(HttpServletRequest request, String name) {
+        Map<String, Form> forms = (Map<String, Form>) request.getServletContext().getAttribute(FORMS);
+        if (forms == null) {
+            log.warn("No forms registered; is " + this.getClass().getSimpleName() + " served by " + WF4JController.class.getSimpleName() + "?");
+            return null;
+        }
+        return name == null ? null : forms.get(name);
+    }
+
+    /**
+     * The time for which a client may use a manifest without revalidating it.  Sub-classes can override to cache manifests for longer, i.e. between releases.
+     *
+     * @return maximum age in seconds
+     */
+    protected int getMaxAge() {
+        return 24 * 60 * 60;
+    }
+
+    /**
+     * @param header If-None-Match header, if any
+     * @param etag   current entity tag
+     * @return true, if the header names the entity tag
+     */
+    private static boolean matches(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String tag : StringUtils.split(header, ',')) {
+            tag = StringUtils.removeStart(tag.trim(), "W/");
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The request parameter that names the form
+     */
+    public static final String FORM = "form";
+    /**
+     * The servlet context attribute holding the forms declared by the controller's actions, by name and by form class name
+     */
+    public static final String FORMS = ValidationManifestAction.class.getName() + ".FORMS";
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationManifestAction.class);
+}
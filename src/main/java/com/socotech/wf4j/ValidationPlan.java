@@ -0,0 +1,490 @@
+package com.socotech.wf4j;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The field constraints of a form class, i.e. {@link Required}, {@link Length}, {@link Range}, {@link Matches} and {@link Email}, compiled once into a flat list of checks.
+ * Each constrained field is read through a cached method handle and its checks are simple comparisons or precompiled patterns, so no reflection happens per request.
+ * <p/>
+ * A failed check is reported under the field name, the same code a hand-written validator would use.  Only the first failed check of a field is reported, and an error already
+ * set on the field, i.e. by binding, is not overwritten.
+ */
+final class ValidationPlan {
+    /**
+     * Constructor
+     *
+     * @param properties constrained properties
+     */
+    private ValidationPlan(List<Property> properties) {
+        this.properties = properties.toArray(new Property[properties.size()]);
+        // every check of every property, cheapest first
+        List<Step> steps = Lists.newArrayList();
+        for (Property property : this.properties) {
+            for (Check check : property.checks) {
+                steps.add(new Step(property, check));
+            }
+        }
+        Collections.sort(steps);
+        this.steps = steps.toArray(new Step[steps.size()]);
+    }
+
+    /**
+     * Find or compile the plan for a form class
+     *
+     * @param clazz form class
+     * @return validation plan
+     */
+    static ValidationPlan of(Class<?> clazz) {
+        ValidationPlan plan = PLANS.get(clazz);
+        if (plan == null) {
+            ValidationPlan newbie = compile(clazz);
+            plan = PLANS.putIfAbsent(clazz, newbie);
+            if (plan == null) {
+                plan = newbie;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return true, if the form class declares no constraints
+     */
+    boolean isEmpty() {
+        return this.properties.length == 0;
+    }
+
+    /**
+     * Check every constrained field of a form
+     *
+     * @param o      form object
+     * @param errors error packet
+     */
+    void validate(Object o, FormErrors errors) {
+        this.validate(o, errors, null);
+    }
+
+    /**
+     * Check the constrained fields of a form that fall within a set of properties
+     *
+     * @param o          form object
+     * @param errors     error packet
+     * @param properties property names or paths, or null for every property
+     */
+    void validate(Object o, FormErrors errors, Set<String> properties) {
+        for (Property property : this.properties) {
+            if (properties != null && !BindingPlan.contains(properties, property.name)) {
+                continue;
+            }
+            if (errors.isSetHere(property.name)) {  // don't overwrite existing property error
+                continue;
+            }
+            Object value = property.get(o);
+            for (Check check : property.checks) {
+                if (!check.accept(value)) {
+                    check.report(errors, property.name);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return names of the constrained fields, in declaration order
+     */
+    List<String> getFields() {
+        List<String> fields = Lists.newArrayListWithCapacity(this.properties.length);
+        for (Property property : this.properties) {
+            fields.add(property.name);
+        }
+        return fields;
+    }
+
+    /**
+     * Describe the constraints of a field for client-side validation, in the order they are checked, i.e. <code>[{"type": "required", "message": "Required"}]</code>
+     *
+     * @param field  field name
+     * @param json   JSON writer
+     * @param locale locale of messages
+     * @throws IOException if the description cannot be written
+     */
+    void describe(String field, JsonWriter json, Locale locale) throws IOException {
+        json.beginArray();
+        for (Property property : this.properties) {
+            if (property.name.equals(field)) {
+                for (Check check : property.checks) {
+                    json.beginObject();
+                    check.describe(json);
+                    json.name("message").value(check.format(locale)).endObject();
+                }
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * Run the checks whose cost falls within a range, cheapest first, and stop at the first failure.  Fields that already have an error are skipped, so their error is kept.
+     *
+     * @param o      form object
+     * @param errors error packet
+     * @param from   lowest cost, inclusive
+     * @param to     highest cost, exclusive
+     * @return true, if a check failed
+     */
+    boolean validateFirst(Object o, FormErrors errors, int from, int to) {
+        for (Step step : this.steps) {
+            int cost = step.check.cost;
+            if (cost >= from && cost < to && !errors.isSetHere(step.property.name) && !step.check.accept(step.property.get(o))) {
+                step.check.report(errors, step.property.name);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compile the constraints declared on the fields of a class and its ancestors
+     *
+     * @param clazz form class
+     * @return validation plan
+     */
+    private static ValidationPlan compile(Class<?> clazz) {
+        List<Property> properties = Lists.newArrayList();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                List<Check> checks = Lists.newArrayList();
+                for (Annotation annotation : field.getAnnotations()) {
+                    Check check = compile(annotation);
+                    if (check != null) {
+                        checks.add(check);
+                    }
+                }
+                if (!checks.isEmpty()) {
+                    properties.add(new Property(field.getName(), getter(clazz, field), checks));
+                }
+            }
+        }
+        return new ValidationPlan(properties);
+    }
+
+    private static Check compile(Annotation annotation) {
+        if (annotation instanceof Required) {
+            Required required = (Required) annotation;
+            return new RequiredCheck(required.message(), required.cost());
+        } else if (annotation instanceof Length) {
+            Length length = (Length) annotation;
+            return new LengthCheck(length.min(), length.max(), StringUtils.defaultIfEmpty(length.message(), describe(length)), length.cost());
+        } else if (annotation instanceof Range) {
+            Range range = (Range) annotation;
+            return new RangeCheck(range.min(), range.max(), StringUtils.defaultIfEmpty(range.message(), describe(range)), range.cost());
+        } else if (annotation instanceof Matches) {
+            Matches matches = (Matches) annotation;
+            return new PatternCheck(Pattern.compile(matches.value()), matches.message(), matches.cost());
+        } else if (annotation instanceof Email) {
+            Email email = (Email) annotation;
+            return new PatternCheck(Patterns.EMAIL, email.message(), email.cost());
+        }
+        return null;
+    }
+
+    /**
+     * Resolve an accessor for a field, preferring its getter
+     *
+     * @param clazz form class
+     * @param field constrained field
+     * @return method handle of type (Object)Object
+     */
+    private static MethodHandle getter(Class<?> clazz, Field field) {
+        try {
+            MethodHandle handle = null;
+            for (PropertyDescriptor pd : PropertyUtils.getPropertyDescriptors(clazz)) {
+                if (pd.getName().equals(field.getName()) && pd.getReadMethod() != null) {
+                    Method method = pd.getReadMethod();
+                    method.setAccessible(true);
+                    handle = MethodHandles.lookup().unreflect(method);
+                }
+            }
+            if (handle == null) {
+                // no getter, i.e. an immutable form, so read the field directly
+                field.setAccessible(true);
+                handle = MethodHandles.lookup().unreflectGetter(field);
+            }
+            return handle.asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to read constrained field " + field, e);
+        }
+    }
+
+    private static String describe(Length length) {
+        if (length.max() == Integer.MAX_VALUE) {
+            return "{" + Messages.LENGTH_MIN + "}";
+        } else if (length.min() <= 0) {
+            return "{" + Messages.LENGTH_MAX + "}";
+        }
+        return "{" + Messages.LENGTH + "}";
+    }
+
+    private static String describe(Range range) {
+        if (range.max() == Double.MAX_VALUE) {
+            return "{" + Messages.RANGE_MIN + "}";
+        } else if (range.min() == -Double.MAX_VALUE) {
+            return "{" + Messages.RANGE_MAX + "}";
+        }
+        return "{" + Messages.RANGE + "}";
+    }
+
+    private static String format(double d) {
+        return d == Math.rint(d) && Math.abs(d) < Long.MAX_VALUE ? Long.toString((long) d) : Double.toString(d);
+    }
+
+    /**
+     * A constrained field
+     */
+    private static final class Property {
+        Property(String name, MethodHandle getter, List<Check> checks) {
+            this.name = name;
+            this.getter = getter;
+            this.checks = checks.toArray(new Check[checks.size()]);
+            // cheapest first; the sort is stable, so declaration order breaks ties
+            Arrays.sort(this.checks);
+        }
+
+        Object get(Object o) {
+            try {
+                return this.getter.invokeExact(o);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Unable to read " + this.name, t);
+            }
+        }
+
+        private final String name;
+        private final Check[] checks;
+        private final MethodHandle getter;
+    }
+
+    /**
+     * A single compiled constraint
+     */
+    private abstract static class Check implements Comparable<Check> {
+        Check(String message, int cost, Object... args) {
+            this.cost = cost;
+            this.args = args;
+            this.message = message;
+            // a message in braces is a message code
+            this.messageCode = message.length() > 2 && message.startsWith("{") && message.endsWith("}") ? message.substring(1, message.length() - 1) : null;
+        }
+
+        /**
+         * Report a failure of this check
+         *
+         * @param errors error packet
+         * @param field  field name
+         */
+        void report(FormErrors errors, String field) {
+            if (this.messageCode != null) {
+                errors.putMessage(field, this.messageCode, this.args);
+            } else {
+                errors.put(field, this.message);
+            }
+        }
+
+        /**
+         * @param locale locale of message
+         * @return error description
+         */
+        String format(Locale locale) {
+            return this.messageCode != null ? Messages.format(locale, this.messageCode, this.args) : this.message;
+        }
+
+        @Override
+        public int compareTo(Check that) {
+            return Integer.compare(this.cost, that.cost);
+        }
+
+        /**
+         * @param value field value
+         * @return true, if the value satisfies the constraint
+         */
+        abstract boolean accept(Object value);
+
+        /**
+         * Write the type and parameters of the constraint for client-side validation
+         *
+         * @param json JSON writer, within an object
+         * @throws IOException if the description cannot be written
+         */
+        abstract void describe(JsonWriter json) throws IOException;
+
+        final int cost;
+        final Object[] args;
+        final String message;
+        final String messageCode;
+    }
+
+    /**
+     * A check of a property
+     */
+    private static final class Step implements Comparable<Step> {
+        Step(Property property, Check check) {
+            this.check = check;
+            this.property = property;
+        }
+
+        @Override
+        public int compareTo(Step that) {
+            return this.check.compareTo(that.check);
+        }
+
+        private final Check check;
+        private final Property property;
+    }
+
+    private static final class RequiredCheck extends Check {
+        RequiredCheck(String message, int cost) {
+            super(message, cost);
+        }
+
+        @Override
+        boolean accept(Object value) {
+            if (value == null) {
+                return false;
+            } else if (value instanceof CharSequence) {
+                return StringUtils.isNotBlank(value.toString());
+            } else if (value instanceof Collection) {
+                return !((Collection) value).isEmpty();
+            } else if (value instanceof Map) {
+                return !((Map) value).isEmpty();
+            } else if (value.getClass().isArray()) {
+                return Array.getLength(value) > 0;
+            }
+            return true;
+        }
+
+        @Override
+        void describe(JsonWriter json) throws IOException {
+            json.name("type").value("required");
+        }
+    }
+
+    private static final class LengthCheck extends Check {
+        LengthCheck(int min, int max, String message, int cost) {
+            super(message, cost, String.valueOf(min), String.valueOf(max));
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean accept(Object value) {
+            if (value == null) {
+                return true;
+            }
+            int length = value instanceof CharSequence ? ((CharSequence) value).length() : value.toString().length();
+            return length >= this.min && length <= this.max;
+        }
+
+        @Override
+        void describe(JsonWriter json) throws IOException {
+            json.name("type").value("length");
+            if (this.min > 0) {
+                json.name("min").value(this.min);
+            }
+            if (this.max < Integer.MAX_VALUE) {
+                json.name("max").value(this.max);
+            }
+        }
+
+        private final int min;
+        private final int max;
+    }
+
+    private static final class RangeCheck extends Check {
+        RangeCheck(double min, double max, String message, int cost) {
+            super(message, cost, ValidationPlan.format(min), ValidationPlan.format(max));
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean accept(Object value) {
+            if (!(value instanceof Number)) {
+                return true;
+            }
+            double d = ((Number) value).doubleValue();
+            return d >= this.min && d <= this.max;
+        }
+
+        @Override
+        void describe(JsonWriter json) throws IOException {
+            json.name("type").value("range");
+            if (this.min > -Double.MAX_VALUE) {
+                json.name("min").value(this.min);
+            }
+            if (this.max < Double.MAX_VALUE) {
+                json.name("max").value(this.max);
+            }
+        }
+
+        private final double min;
+        private final double max;
+    }
+
+    private static final class PatternCheck extends Check {
+        PatternCheck(Pattern pattern, String message, int cost) {
+            super(message, cost);
+            this.pattern = pattern;
+            this.portable = Patterns.isPortable(pattern);
+        }
+
+        @Override
+        boolean accept(Object value) {
+            return value == null || value.toString().isEmpty() || this.pattern.matcher(value.toString()).matches();
+        }
+
+        @Override
+        void describe(JsonWriter json) throws IOException {
+            json.name("type").value("pattern");
+            if (this.portable) {
+                // anchored, since the whole value must match
+                json.name("pattern").value("^(?:" + this.pattern.pattern() + ")$");
+            } else {
+                // Java-only syntax, checked by the server alone
+                json.name("portable").value(false);
+            }
+        }
+
+        private final Pattern pattern;
+        private final boolean portable;
+    }
+
+    private final Step[] steps;
+    private final Property[] properties;
+
+    private static final ConcurrentMap<Class<?>, ValidationPlan> PLANS = Maps.newConcurrentMap();
+}
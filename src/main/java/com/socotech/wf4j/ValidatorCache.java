@@ -0,0 +1,144 @@
+package com.socotech.wf4j;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
+
+/**
+ * Validator instances, cached per action class and form specification so validators are not constructed on every request.  Validators marked {@link ThreadSafe} are shared;
+ * any other validator is kept per thread, so an instance never validates two forms at once.
+ * <p/>
+ * Per-thread validators are held in one map per thread rather than in a thread local per validator, so {@link #evict(Iterable)} and {@link #clear()} can drop them on
+ * every thread and they do not keep the web application's class loader alive once the application is stopped.
+ */
+final class ValidatorCache {
+    private ValidatorCache() {
+        // use the static methods
+    }
+
+    /**
+     * Find or create the validator for a form
+     *
+     * @param action    action class
+     * @param key       form spec or validator class
+     * @param perThread true, to keep a validator that is not thread-safe for later requests on the same thread; false, to use it once
+     * @param factory   creates a validator on a cache miss
+     * @return validator
+     * @throws Exception if a validator cannot be created
+     */
+    @SuppressWarnings("unchecked")
+    static <V> V get(Class<?> action, Object key, boolean perThread, Callable<V> factory) throws Exception {
+        Pair<Class<?>, Object> pair = new Pair<Class<?>, Object>(action, key);
+        Object cached = SHARED.get(pair);
+        if (cached != null) {
+            return (V) cached;
+        }
+        Map<Pair<Class<?>, Object>, Object> local = local();
+        cached = local.get(pair);
+        if (cached != null) {
+            return (V) cached;
+        }
+        V validator = factory.call();
+        if (validator.getClass().isAnnotationPresent(ThreadSafe.class)) {
+            cached = SHARED.putIfAbsent(pair, validator);
+            return cached != null ? (V) cached : validator;
+        } else if (perThread) {
+            // validator is not thread-safe, so keep one per thread
+            local.put(pair, validator);
+        }
+        return validator;
+    }
+
+    /**
+     * Determine whether an action creates validators with a factory method declared by {@link AbstractFormAction}, i.e. from the validator class alone.  A validator
+     * created by an overridden factory may depend on the request that created it, so it is kept for later requests only if it is marked {@link ThreadSafe}.
+     *
+     * @param action         action class
+     * @param name           factory method name
+     * @param parameterTypes factory method parameter types
+     * @return true, if no sub-class of {@link AbstractFormAction} overrides the factory method
+     */
+    static boolean isDefaultFactory(Class<?> action, String name, Class<?>... parameterTypes) {
+        Pair<Class<?>, Object> pair = new Pair<Class<?>, Object>(action, name);
+        Boolean result = FACTORIES.get(pair);
+        if (result == null) {
+            result = Boolean.TRUE;
+            for (Class<?> type = action; type != null && type != AbstractFormAction.class; type = type.getSuperclass()) {
+                for (Method method : type.getDeclaredMethods()) {
+                    if (method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), parameterTypes)) {
+                        result = Boolean.FALSE;
+                    }
+                }
+            }
+            FACTORIES.putIfAbsent(pair, result);
+        }
+        return result;
+    }
+
+    /**
+     * Discard every cached validator, on every thread, i.e. when validator classes are reloaded or the application is stopped
+     */
+    static void clear() {
+        SHARED.clear();
+        FACTORIES.clear();
+        for (Map<Pair<Class<?>, Object>, Object> local : LOCALS) {
+            local.clear();
+        }
+    }
+
+    /**
+     * Discard the validators cached for some actions, or their sub-classes, on every thread, i.e. when the controller that serves them is destroyed
+     *
+     * @param actions action classes
+     */
+    static void evict(Iterable<Class<?>> actions) {
+        evict(SHARED, actions);
+        evict(FACTORIES, actions);
+        for (Map<Pair<Class<?>, Object>, Object> local : LOCALS) {
+            evict(local, actions);
+        }
+    }
+
+    private static void evict(Map<Pair<Class<?>, Object>, ?> cache, Iterable<Class<?>> actions) {
+        for (Iterator<Pair<Class<?>, Object>> it = cache.keySet().iterator(); it.hasNext(); ) {
+            Class<?> cached = it.next().getLeft();
+            for (Class<?> action : actions) {
+                if (action.isAssignableFrom(cached)) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return validators kept for the current thread
+     */
+    private static Map<Pair<Class<?>, Object>, Object> local() {
+        Map<Pair<Class<?>, Object>, Object> local = LOCAL.get();
+        if (local == null) {
+            // concurrent, since clear() may be called from another thread
+            local = Maps.newConcurrentMap();
+            LOCAL.set(local);
+            LOCALS.add(local);
+        }
+        return local;
+    }
+
+    private static final ConcurrentMap<Pair<Class<?>, Object>, Object> SHARED = Maps.newConcurrentMap();
+    private static final ConcurrentMap<Pair<Class<?>, Object>, Boolean> FACTORIES = Maps.newConcurrentMap();
+    private static final ThreadLocal<Map<Pair<Class<?>, Object>, Object>> LOCAL = new ThreadLocal<Map<Pair<Class<?>, Object>, Object>>();
+
+    /**
+     * The per-thread maps, weakly held so the map of a finished thread can be collected
+     */
+    private static final Set<Map<Pair<Class<?>, Object>, Object>> LOCALS = Collections.newSetFromMap(new MapMaker().weakKeys().<Map<Pair<Class<?>, Object>, Object>, Boolean>makeMap());
+}
@@ -1,10 +1,14 @@
 package com.socotech.wf4j;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -12,7 +16,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Injector;
+import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.reflections.Reflections;
 import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
@@ -28,6 +36,7 @@ import org.slf4j.LoggerFactory;
 public class WF4JController extends HttpServlet {
     private Injector injector;
     private List<WebAction> actions;
+    private UploadManager uploads;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
@@ -42,6 +51,97 @@ public class WF4JController extends HttpServlet {
         for (Class<?> actionClass : actionClasses) {
             Collections.addAll(this.actions, actionClass.getAnnotation(WebActions.class).actions());
         }
+        // publish form specs for validation manifests
+        config.getServletContext().setAttribute(ValidationManifestAction.FORMS, getForms(this.getActionTypes()));
+        // share one upload factory across actions
+        this.uploads = this.newUploadManager(config);
+        config.getServletContext().setAttribute(UploadManager.class.getName(), this.uploads);
+        // opt in to non-blocking body reads
+        this.async = Boolean.parseBoolean(config.getInitParameter("wf4j.async"));
+        this.asyncTimeout = NumberUtils.toLong(config.getInitParameter("wf4j.async.timeout"), DEFAULT_ASYNC_TIMEOUT);
+        this.asyncMaxBody = NumberUtils.toLong(config.getInitParameter("wf4j.async.maxBody"), -1);
+    }
+
+    /**
+     * @return types of the actions served by this controller
+     */
+    private List<Class<?>> getActionTypes() {
+        List<Class<?>> types = Lists.newArrayList();
+        for (WebAction action : this.actions) {
+            types.add(action.type());
+        }
+        return types;
+    }
+
+    /**
+     * Collect the forms declared by every action, each of a multi-form action included, by name and by the class name of the form object.  Forms with the default name
+     * are registered by class name only, since many actions share that name.  If two actions declare different forms under the same key, the first is kept.
+     *
+     * @param types action types
+     * @return forms by name and form class name
+     */
+    static Map<String, Form> getForms(Iterable<Class<?>> types) {
+        Map<String, Form> forms = Maps.newHashMap();
+        for (Class<?> type : types) {
+            Forms multi = type.getAnnotation(Forms.class);
+            Form single = type.getAnnotation(Form.class);
+            // the form of a multi-form action is only the envelope of its forms
+            Form[] specs = multi != null ? multi.value() : single != null ? new Form[]{single} : new Form[0];
+            for (Form form : specs) {
+                if (!DEFAULT_FORM_NAME.equals(form.name())) {
+                    register(forms, form.name(), form, type);
+                }
+                register(forms, form.formClass().getName(), form, type);
+            }
+        }
+        return Collections.unmodifiableMap(forms);
+    }
+
+    private static void register(Map<String, Form> forms, String key, Form form, Class<?> type) {
+        Form existing = forms.get(key);
+        if (existing == null) {
+            forms.put(key, form);
+        } else if (!existing.equals(form)) {
+            log.warn("Form " + key + " of " + type.getName() + " is already declared; its validation manifest is not served under that key");
+        }
+    }
+
+    /**
+     * Configure the upload factory shared by every action.  The spooling threshold and repository directory are read from the init parameters
+     * <code>wf4j.upload.threshold</code> and <code>wf4j.upload.repository</code>; by default, uploads over 10 KB are spooled to a sub-directory of the container's
+     * temporary directory.
+     *
+     * @param config servlet config
+     * @return upload manager
+     */
+    protected UploadManager newUploadManager(ServletConfig config) {
+        String threshold = config.getInitParameter("wf4j.upload.threshold");
+        String repository = config.getInitParameter("wf4j.upload.repository");
+        File tempdir = (File) config.getServletContext().getAttribute("javax.servlet.context.tempdir");
+        if (tempdir == null) {
+            tempdir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        return new UploadManager(StringUtils.isNotBlank(threshold) ? Integer.parseInt(threshold) : DiskFileItemFactory.DEFAULT_SIZE_THRESHOLD,
+                StringUtils.isNotBlank(repository) ? new File(repository) : new File(tempdir, "wf4j-uploads"));
+    }
+
+    @Override
+    public void destroy() {
+        if (this.uploads != null) {
+            this.uploads.shutdown();
+        }
+        // release the validators of this controller's actions, so they do not pin the class loader of a stopped application
+        if (this.actions != null) {
+            ValidatorCache.evict(this.getActionTypes());
+        }
+        super.destroy();
+    }
+
+    /**
+     * @return upload factory shared by every action, i.e. to monitor bytes spooled and files outstanding
+     */
+    public UploadManager getUploadManager() {
+        return uploads;
     }
 
     @Override
@@ -68,12 +168,47 @@ public class WF4JController extends HttpServlet {
         }
         // found an action?
         if (executable != null) {
-            executable.execute(req, resp);
+            this.uploads.attach(req);
+            if (this.isAsyncRead(req)) {
+                AsyncContext context = req.startAsync(req, resp);
+                // the reader enforces the read timeout itself, so the container must not time out the action
+                context.setTimeout(0);
+                new AsyncBodyReader(context, this.uploads, this.asyncMaxBody, this.asyncTimeout, executable).start();
+            } else {
+                executable.execute(req, resp);
+            }
         } else {
             resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
+    /**
+     * Determine whether to read the body of a request with non-blocking I/O before executing its action.  Async reads are enabled with the init parameter
+     * <code>wf4j.async</code>, which requires the servlet to be declared with <code>async-supported</code>, and apply only to requests with a body.  The init parameters
+     * <code>wf4j.async.timeout</code> and <code>wf4j.async.maxBody</code> bound the time and bytes allowed for the body; the time taken by the action itself is not bounded.
+     *
+     * @param req web request
+     * @return true, if the body should be read asynchronously
+     */
+    protected boolean isAsyncRead(HttpServletRequest req) {
+        if (!this.async || !req.isAsyncSupported() || req.isAsyncStarted() || req.getDispatcherType() != DispatcherType.REQUEST) {
+            return false;
+        }
+        // a body has a length or is chunked
+        return req.getContentLengthLong() > 0 || req.getHeader("Transfer-Encoding") != null;
+    }
+
+    private boolean async;
+    private long asyncTimeout;
+    private long asyncMaxBody;
+
+    private static final long DEFAULT_ASYNC_TIMEOUT = 60 * 1000L;
+
+    /**
+     * The default of {@link Form#name()}
+     */
+    private static final String DEFAULT_FORM_NAME = "form";
+
     /**
      * <p/> A logging category for each action. </p>
      */
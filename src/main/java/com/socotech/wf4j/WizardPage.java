@@ -0,0 +1,26 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * WizardPage.java
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WizardPage {
+    /**
+     * The index of the page within the wizard
+     *
+     * @return page index
+     */
+    int page();
+
+    /**
+     * The properties bound when the page is submitted.  Entries are top-level property names or nested paths, i.e. <code>address</code> or <code>address.street</code>.
+     *
+     * @return property names or paths
+     */
+    String[] properties();
+}
@@ -0,0 +1,25 @@
+package com.socotech.wf4j;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * WizardPages.java
+ * <p/>
+ * Maps each page of a wizard to the properties bound when that page is submitted.  May be declared on either the wizard action or its form class; the action takes precedence.
+ * Pages without a mapping bind every submitted property.
+ */
+@Target(ElementType.TYPE)
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WizardPages {
+    /**
+     * Page mappings
+     *
+     * @return array of pages
+     */
+    WizardPage[] value();
+}
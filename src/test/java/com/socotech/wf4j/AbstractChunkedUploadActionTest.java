@@ -0,0 +1,144 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.easymock.IAnswer;
+import org.easymock.classextension.EasyMock;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class AbstractChunkedUploadActionTest {
+    @Test
+    public void testResume() throws Exception {
+        ChunkStore store = new ChunkStore(Files.createTempDirectory("wf4j").toFile(), 60000);
+        ChunkedAction action = new ChunkedAction(store);
+        // second chunk arrives first
+        JSONObject status = new JSONObject(this.send(action, "session-1", 1, new byte[1000]));
+        Assert.assertEquals("Wrong missing chunks", "[0]", status.getJSONArray("missing").toString());
+        Assert.assertFalse("Incomplete upload was handled", action.handled);
+        // client asks which chunks are missing
+        status = new JSONObject(this.send(action, "session-1", -1, null));
+        Assert.assertEquals("Wrong received chunks", "[1]", status.getJSONArray("received").toString());
+        // missing chunk completes upload
+        this.send(action, "session-1", 0, new byte[3000]);
+        assertTrue("Form submission not handled", action.handled);
+        Assert.assertEquals("Chunks not assembled", 4000, action.form.getPhoto().getSize());
+        Assert.assertEquals("Chunks not assembled", "tour.mp4", action.form.getPhoto().getFileName());
+        action.form.getPhoto().delete();
+    }
+
+    @Test
+    public void testUploadScopedToSession() throws Exception {
+        ChunkStore store = new ChunkStore(Files.createTempDirectory("wf4j").toFile(), 60000);
+        ChunkedAction action = new ChunkedAction(store);
+        this.send(action, "session-1", 1, new byte[1000]);
+        // same upload id in another session
+        JSONObject status = new JSONObject(this.send(action, "session-2", -1, null));
+        Assert.assertEquals("Chunks visible to another session", "[]", status.getJSONArray("received").toString());
+        this.send(action, "session-2", 0, new byte[3000]);
+        Assert.assertFalse("Upload completed from another session", action.handled);
+        // owner still sees only its own chunk
+        status = new JSONObject(this.send(action, "session-1", -1, null));
+        Assert.assertEquals("Wrong received chunks", "[1]", status.getJSONArray("received").toString());
+    }
+
+    @Test
+    public void testChunkOutOfRange() throws Exception {
+        ChunkedAction action = new ChunkedAction(new ChunkStore(Files.createTempDirectory("wf4j").toFile(), 60000));
+        HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        EasyMock.expect(session.getId()).andReturn("session-1").anyTimes();
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getSession()).andReturn(session).anyTimes();
+        EasyMock.expect(request.getMethod()).andReturn("PUT").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/octet-stream").anyTimes();
+        EasyMock.expect(request.getParameterNames()).andReturn(new Vector().elements()).anyTimes();
+        EasyMock.expect(request.getParameter("uploadId")).andReturn("tour-1").anyTimes();
+        EasyMock.expect(request.getParameter("chunks")).andReturn("2").anyTimes();
+        EasyMock.expect(request.getParameter("chunk")).andReturn("2").anyTimes();
+        EasyMock.replay(session, request);
+        FormErrors errors = new FormErrors();
+        action.bindFormObject(request, new TestFileForm(), errors);
+        Assert.assertEquals("Error has no message code", Messages.UPLOAD_CHUNK, errors.getMessageCode("chunk"));
+        Assert.assertEquals("Chunk index must be between 0 and 1", errors.get("chunk"));
+    }
+
+    private String send(ChunkedAction action, String sessionId, int chunk, byte[] body) throws IOException, ServletException {
+        HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        EasyMock.expect(session.getId()).andReturn(sessionId).anyTimes();
+        EasyMock.replay(session);
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getSession()).andReturn(session).anyTimes();
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        StringWriter out = new StringWriter();
+        EasyMock.expect(request.getMethod()).andReturn(body == null ? "GET" : "PUT").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/octet-stream").anyTimes();
+        EasyMock.expect(request.getParameterNames()).andReturn(new Vector().elements()).anyTimes();
+        EasyMock.expect(request.getParameter("uploadId")).andReturn("tour-1").anyTimes();
+        EasyMock.expect(request.getParameter("chunks")).andReturn("2").anyTimes();
+        EasyMock.expect(request.getParameter("chunk")).andReturn(chunk < 0 ? null : String.valueOf(chunk)).anyTimes();
+        EasyMock.expect(request.getParameter("fileName")).andReturn("tour.mp4").anyTimes();
+        EasyMock.expect(request.getInputStream()).andReturn(new TestServletInputStream(body == null ? new byte[0] : body)).anyTimes();
+        // keep request attributes
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        request.setAttribute(EasyMock.anyObject(String.class), EasyMock.anyObject());
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.put((String) EasyMock.getCurrentArguments()[0], EasyMock.getCurrentArguments()[1]);
+            }
+        }).anyTimes();
+        EasyMock.expect(request.getAttribute(EasyMock.anyObject(String.class))).andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.get(EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.expect(response.getWriter()).andReturn(new PrintWriter(out)).anyTimes();
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        return out.toString();
+    }
+
+    @Form(name = "testForm", formClass = TestFileForm.class)
+    private static class ChunkedAction extends AbstractChunkedUploadAction {
+        final ChunkStore store;
+        TestFileForm form;
+        boolean handled;
+
+        ChunkedAction(ChunkStore store) {
+            this.store = store;
+        }
+
+        @Override
+        protected String getFileProperty() {
+            return "photo";
+        }
+
+        @Override
+        protected ChunkStore getChunkStore(HttpServletRequest request) {
+            return store;
+        }
+
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            this.form = (TestFileForm) o;
+            this.handled = true;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Vector;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import com.google.common.collect.Sets;
+import org.easymock.classextension.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("unchecked")
+public class AbstractMultiFormActionTest {
+    @Test
+    public void testPost() throws Exception {
+        final DashboardAction action = new DashboardAction();
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        Vector v = new Vector(Arrays.asList("search.string", "search.integer", "alert.string", "alert.date", "other"));
+        EasyMock.expect(request.getMethod()).andReturn("POST").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
+        EasyMock.expect(request.getSession()).andReturn(session);
+        EasyMock.expect(request.getParameterNames()).andReturn(v.elements());
+        EasyMock.expect(request.getParameterValues("search.string")).andReturn(new String[]{"my search"});
+        EasyMock.expect(request.getParameterValues("search.integer")).andReturn(new String[]{"1"});
+        EasyMock.expect(request.getParameterValues("alert.string")).andReturn(new String[]{"my alert"});
+        EasyMock.expect(request.getParameterValues("alert.date")).andReturn(new String[]{"11/19/1973"});
+        EasyMock.expect(request.getParameterValues("other")).andReturn(new String[]{"other"});
+        EasyMock.replay(request);
+        action.execute(request, response);
+        assertTrue("Form submission not handled", action.handled);
+        TestForm search = action.forms.get("search", TestForm.class);
+        TestForm alert = action.forms.get("alert", TestForm.class);
+        Assert.assertEquals("Unable to extract String from request", "my search", search.getString());
+        Assert.assertEquals("Unable to extract int from request", 1, search.getInteger());
+        Assert.assertNull("Parameter of another form was bound", search.getDate());
+        Assert.assertEquals("Unable to extract String from request", "my alert", alert.getString());
+        Assert.assertNotNull("Unable to extract Date from request", alert.getDate());
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        MultiForm forms = new MultiForm();
+        for (String name : Arrays.asList("billing", "shipping")) {
+            ValidationPlanTest.ConstrainedForm form = new ValidationPlanTest.ConstrainedForm();
+            form.setCode("abc");
+            forms.put(name, form);
+        }
+        FormErrors errors = new FormErrors();
+        new FailFastAction().validateFormObject(request, forms, errors);
+        Assert.assertEquals("Each form not stopped at its own first error", Sets.newHashSet("billing.name", "shipping.name"), errors.getCodes());
+        // a form that failed to bind is not validated, the others still are
+        errors = new FormErrors();
+        errors.put("billing.age", "Not a number");
+        new FailFastAction().validateFormObject(request, forms, errors);
+        Assert.assertEquals("Form with binding error validated", Sets.newHashSet("billing.age", "shipping.name"), errors.getCodes());
+    }
+
+    @Test
+    public void testBindingErrorKept() throws Exception {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        MultiForm forms = new MultiForm();
+        forms.put("member", new AgeForm());
+        // age did not bind, so it keeps its default of zero
+        FormErrors errors = new FormErrors();
+        errors.push("member");
+        errors.put("age", "Not a number");
+        errors.pop();
+        new AgeAction().validateFormObject(request, forms, errors);
+        Assert.assertEquals("Binding error overwritten", "Not a number", errors.get("member.age"));
+        Assert.assertEquals("Unexpected errors: " + errors, 1, errors.size());
+    }
+
+    @Forms({@Form(name = "search", prefix = "search.", formClass = TestForm.class, validatorClass = TestFormValidator.class),
+            @Form(name = "alert", prefix = "alert.", formClass = TestForm.class, binders = {@FormBinder(property = "date", editorClass = DatePropertyEditor.class)})})
+    private static class DashboardAction extends AbstractMultiFormAction {
+        MultiForm forms;
+        boolean handled;
+
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            this.forms = (MultiForm) o;
+            this.handled = true;
+        }
+
+        @Override
+        protected String getFormView(HttpServletRequest req, Object o) {
+            return null;
+        }
+
+        @Override
+        protected String getSuccessView(HttpServletRequest req, Object o) throws Exception {
+            return null;
+        }
+    }
+
+    @Forms({@Form(name = "billing", prefix = "billing.", formClass = ValidationPlanTest.ConstrainedForm.class, validatorClass = AbstractSimpleFormActionTest.NameValidator.class, failFast = true),
+            @Form(name = "shipping", prefix = "shipping.", formClass = ValidationPlanTest.ConstrainedForm.class, validatorClass = AbstractSimpleFormActionTest.NameValidator.class, failFast = true)})
+    private static class FailFastAction extends DashboardAction {
+        // each form stops at its first error
+    }
+
+    @Forms(@Form(name = "member", prefix = "member.", formClass = AgeForm.class))
+    private static class AgeAction extends DashboardAction {
+        // one form, constrained by field annotations only
+    }
+
+    public static class AgeForm {
+        @Range(min = 5)
+        private int age;
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+}
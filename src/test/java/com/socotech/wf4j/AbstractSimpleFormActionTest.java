@@ -1,19 +1,38 @@
 package com.socotech.wf4j;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.commons.fileupload.FileItem;
+import org.easymock.IAnswer;
 import org.easymock.classextension.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
@@ -45,7 +64,7 @@ public class AbstractSimpleFormActionTest {
         EasyMock.expect(request.getMethod()).andReturn("post");
         EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
         EasyMock.expect(request.getSession()).andReturn(session);
-        EasyMock.expect(request.getParameterMap()).andReturn(params);
+        EasyMock.expect(request.getParameterMap()).andReturn((Map) params);
         EasyMock.expect(request.getParameterNames()).andReturn(v.elements());
         EasyMock.expect(request.getParameterValues("array")).andReturn(array);
         EasyMock.expect(request.getParameterValues("string")).andReturn(new String[]{"my string"});
@@ -68,7 +87,7 @@ public class AbstractSimpleFormActionTest {
         EasyMock.expect(request.getMethod()).andReturn("post");
         EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
         EasyMock.expect(request.getSession()).andReturn(session);
-        EasyMock.expect(request.getParameterMap()).andReturn(Collections.emptyMap());
+        EasyMock.expect(request.getParameterMap()).andReturn((Map) Collections.emptyMap());
         EasyMock.expect(request.getParameterNames()).andReturn(new Vector().elements());
         EasyMock.expect(request.getMethod()).andReturn("POST");
         EasyMock.replay(request);
@@ -92,7 +111,7 @@ public class AbstractSimpleFormActionTest {
         EasyMock.expect(request.getMethod()).andReturn("post");
         EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
         EasyMock.expect(request.getSession()).andReturn(session);
-        EasyMock.expect(request.getParameterMap()).andReturn(params);
+        EasyMock.expect(request.getParameterMap()).andReturn((Map) params);
         EasyMock.expect(request.getParameterNames()).andReturn(v.elements());
         EasyMock.expect(request.getParameterValues("string")).andReturn(new String[]{null});
         EasyMock.expect(request.getParameterValues("integer")).andReturn(new String[]{null});
@@ -105,6 +124,469 @@ public class AbstractSimpleFormActionTest {
         action.execute(request, response);
     }
 
+    @Test
+    public void testParameterLimits() throws Exception {
+        final AbstractSimpleFormAction action = new LimitedAction();
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createStrictMock(HttpServletResponse.class);
+        Vector v = new Vector(Arrays.asList("string", "junk0", "junk1"));
+        EasyMock.expect(request.getMethod()).andReturn("post");
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
+        EasyMock.expect(request.getSession()).andReturn(session);
+        EasyMock.expect(request.getParameterNames()).andReturn(v.elements());
+        EasyMock.expect(request.getParameterValues("string")).andReturn(new String[]{"my string"});
+        EasyMock.expect(request.getParameterValues("junk0")).andReturn(new String[]{"junk"});
+        EasyMock.expect(request.getParameterValues("junk1")).andReturn(new String[]{"junk"});
+        response.sendError(EasyMock.eq(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE), EasyMock.anyObject(String.class));
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        EasyMock.verify(response);
+    }
+
+    @Test
+    public void testMultipartParameterSize() throws Exception {
+        final AbstractSimpleFormAction action = new SizeLimitedAction();
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createStrictMock(HttpServletResponse.class);
+        TestMultipart multipart = new TestMultipart().field("string", Strings.repeat("x", 1 << 20));
+        multipart.expect(request);
+        EasyMock.expect(request.getSession()).andReturn(session);
+        response.sendError(EasyMock.eq(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE), EasyMock.anyObject(String.class));
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        EasyMock.verify(response);
+        assertTrue("Oversized field read in full", multipart.unread() > 1 << 19);
+    }
+
+    @Test
+    public void testUnknownParametersDropped() throws Exception {
+        final boolean[] handled = new boolean[1];
+        final AbstractSimpleFormAction action = new PostAction() {
+            @Override
+            protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+                Assert.assertEquals("Unable to extract String from request", "my string", ((TestForm) o).getString());
+                handled[0] = true;
+            }
+        };
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        Vector v = new Vector(Arrays.asList("string", "junk[0].junk"));
+        EasyMock.expect(request.getMethod()).andReturn("POST").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
+        EasyMock.expect(request.getSession()).andReturn(session);
+        EasyMock.expect(request.getParameterNames()).andReturn(v.elements());
+        EasyMock.expect(request.getParameterValues("string")).andReturn(new String[]{"my string"});
+        EasyMock.expect(request.getParameterValues("junk[0].junk")).andReturn(new String[]{"junk"});
+        EasyMock.replay(request);
+        action.execute(request, response);
+        assertTrue("Form submission not handled", handled[0]);
+    }
+
+    @Test
+    public void testStreamingUpload() throws Exception {
+        final boolean[] handled = new boolean[1];
+        final AbstractSimpleFormAction action = new UploadAction() {
+            @Override
+            protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+                TestUploadForm form = (TestUploadForm) o;
+                Assert.assertEquals("Unable to extract String from request", "my string", form.getString());
+                Assert.assertEquals("Upload not streamed to form", "photo.jpg", form.getFileName());
+                Assert.assertEquals("Upload not streamed to form", 4096, form.getReceived());
+                handled[0] = true;
+            }
+        };
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        new TestMultipart().field("string", "my string").file("photo", "photo.jpg", "image/jpeg", new byte[4096]).expect(request);
+        EasyMock.expect(request.getSession()).andReturn(session);
+        EasyMock.replay(request);
+        action.execute(request, response);
+        assertTrue("Form submission not handled", handled[0]);
+    }
+
+    @Test
+    public void testFileProperties() throws Exception {
+        final boolean[] handled = new boolean[1];
+        final FileChannel[] channel = new FileChannel[1];
+        final Set<Path> before = uploads();
+        final AbstractSimpleFormAction action = new FileAction() {
+            @Override
+            protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+                TestFileForm form = (TestFileForm) o;
+                assertTrue("Small upload not held in memory", form.getPhoto().isInMemory());
+                Assert.assertEquals("Unable to extract UploadedFile from request", 16, form.getPhoto().getBuffer().remaining());
+                Assert.assertEquals("Digest not computed", 16, form.getPhoto().getDigest().getSize());
+                Assert.assertEquals("Digest not computed", "374708fff7719dd5979ec875d56cd2286f6d3cf7ec317a3b25632aab28ec37bb", form.getPhoto().getDigest().getSha256Hex());
+                assertTrue("Unable to extract Path from request", Files.exists(form.getDocument()));
+                Assert.assertEquals("Unable to extract Path from request", 65536, Files.size(form.getDocument()));
+                Assert.assertEquals("Unable to extract InputStream from request", 3, ByteStreams.toByteArray(form.getStream()).length);
+                Assert.assertEquals("Unable to extract MappedByteBuffer from request", 32768, form.getMapped().capacity());
+                assertTrue("Unable to extract FileChannel from request", form.getChannel().isOpen());
+                Assert.assertEquals("Unable to extract FileChannel from request", 16384, form.getChannel().size());
+                Files.delete(form.getDocument());
+                channel[0] = form.getChannel();
+                handled[0] = true;
+            }
+        };
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        new TestMultipart()
+                .file("photo", "photo.jpg", "image/jpeg", new byte[16])
+                .file("document", "document.pdf", "application/pdf", new byte[65536])
+                .file("stream", "stream.txt", "text/plain", "abc".getBytes())
+                .file("mapped", "data.csv", "text/csv", new byte[32768])
+                .file("channel", "image.png", "image/png", new byte[16384])
+                .expect(request);
+        EasyMock.expect(request.getSession()).andReturn(session);
+        keepAttributes(request);
+        EasyMock.replay(request);
+        action.execute(request, response);
+        assertTrue("Form submission not handled", handled[0]);
+        Assert.assertFalse("FileChannel not closed after request", channel[0].isOpen());
+        Assert.assertEquals("Mapped and channel files not deleted after request", before, uploads());
+    }
+
+    @Test
+    public void testStreamDeletedAfterRequest() throws Exception {
+        final Path[] spooled = new Path[1];
+        final Set<Path> before = uploads();
+        final AbstractSimpleFormAction action = new FileAction() {
+            @Override
+            protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+                TestFileForm form = (TestFileForm) o;
+                Assert.assertEquals("Unable to extract InputStream from request", 65536, ByteStreams.toByteArray(form.getStream()).length);
+                Set<Path> during = uploads();
+                during.removeAll(before);
+                Assert.assertEquals("Upload not taken over", 1, during.size());
+                spooled[0] = during.iterator().next();
+            }
+        };
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        new TestMultipart().file("stream", "stream.txt", "text/plain", new byte[65536]).expect(request);
+        EasyMock.expect(request.getSession()).andReturn(session);
+        keepAttributes(request);
+        EasyMock.replay(request);
+        action.execute(request, response);
+        Assert.assertNotNull("Form submission not handled", spooled[0]);
+        Assert.assertFalse("Upload not deleted after request", Files.exists(spooled[0]));
+    }
+
+    @Test
+    public void testUploadProcessing() throws Exception {
+        final String requestThread = Thread.currentThread().getName();
+        final List<String> applied = new ArrayList<String>();
+        final FormErrors[] bound = new FormErrors[1];
+        final AbstractSimpleFormAction action = new FileAction() {
+            @Override
+            protected UploadProcessor<?> getUploadProcessor(HttpServletRequest request, Object o, String name) {
+                final boolean fail = "document".equals(name);
+                return new UploadProcessor<String>() {
+                    @Override
+                    public String process(String name, FileItem item, UploadDigest digest) throws Exception {
+                        if (fail) {
+                            throw new IOException("unreadable");
+                        }
+                        return Thread.currentThread().getName() + ":" + digest.getSize();
+                    }
+
+                    @Override
+                    public void apply(Object o, String name, String result, FormErrors errors) throws Exception {
+                        assertTrue("Result applied before form was bound", ((TestFileForm) o).getPhoto() != null);
+                        applied.add(name + "=" + result);
+                    }
+                };
+            }
+
+            @Override
+            protected void onBind(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
+                bound[0] = errors;
+            }
+
+            @Override
+            protected void showForm(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
+                // errors expected
+            }
+        };
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        new TestMultipart()
+                .file("photo", "photo.jpg", "image/jpeg", new byte[16])
+                .file("document", "document.pdf", "application/pdf", new byte[64])
+                .expect(request);
+        EasyMock.expect(request.getSession()).andReturn(session);
+        EasyMock.replay(request);
+        action.execute(request, response);
+        Assert.assertEquals("Wrong results applied", 1, applied.size());
+        assertTrue("Photo not processed", applied.get(0).startsWith("photo=") && applied.get(0).endsWith(":16"));
+        assertTrue("Photo not processed in background", !applied.get(0).startsWith("photo=" + requestThread + ":"));
+        Assert.assertNotNull("Form not bound", bound[0]);
+        assertTrue("Processing failure not reported", bound[0].isSet("document"));
+    }
+
+    @Test
+    public void testValidatorCache() throws Exception {
+        final AbstractSimpleFormAction action = new ValidatedAction();
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final Form form = ValidatedAction.class.getAnnotation(Form.class);
+        final Form shared = SharedValidatorAction.class.getAnnotation(Form.class);
+        final FormValidator[] other = new FormValidator[2];
+        FormValidator validator = action.getFormValidator(request, form);
+        Assert.assertSame("Validator not cached", validator, action.getFormValidator(request, form));
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    other[0] = action.getFormValidator(request, form);
+                    other[1] = new SharedValidatorAction().getFormValidator(request, shared);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        Assert.assertNotSame("Validator shared across threads", validator, other[0]);
+        Assert.assertSame("Thread-safe validator not shared", new SharedValidatorAction().getFormValidator(request, shared), other[1]);
+    }
+
+    @Test
+    public void testOverriddenValidatorFactory() throws Exception {
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final AbstractSimpleFormAction action = new ValidatedAction() {
+            @Override
+            protected FormValidator newFormValidator(HttpServletRequest request, Form form) throws Exception {
+                return new TestFormValidator();
+            }
+        };
+        final Form form = ValidatedAction.class.getAnnotation(Form.class);
+        Assert.assertNotSame("Validator of overridden factory cached", action.getFormValidator(request, form), action.getFormValidator(request, form));
+        final AbstractSimpleFormAction shared = new ValidatedAction() {
+            @Override
+            protected FormValidator newFormValidator(HttpServletRequest request, Form form) throws Exception {
+                return new SharedValidator();
+            }
+        };
+        Assert.assertSame("Thread-safe validator of overridden factory not cached", shared.getFormValidator(request, form), shared.getFormValidator(request, form));
+    }
+
+    @Test
+    public void testValidatorCacheCleared() throws Exception {
+        final AbstractSimpleFormAction action = new ValidatedAction();
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final Form form = ValidatedAction.class.getAnnotation(Form.class);
+        FormValidator validator = action.getFormValidator(request, form);
+        ValidatorCache.clear();
+        Assert.assertNotSame("Per-thread validator not cleared", validator, action.getFormValidator(request, form));
+        // evicted with the actions of a controller, sub-classes included
+        validator = action.getFormValidator(request, form);
+        ValidatorCache.evict(Collections.<Class<?>>singleton(PostAction.class));
+        Assert.assertNotSame("Validator of a sub-class not evicted", validator, action.getFormValidator(request, form));
+        validator = action.getFormValidator(request, form);
+        ValidatorCache.evict(Collections.<Class<?>>singleton(AbstractMultiFormAction.class));
+        Assert.assertSame("Validator of another action evicted", validator, action.getFormValidator(request, form));
+    }
+
+    @Test
+    public void testAsyncValidation() throws Exception {
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        FormErrors errors = new FormErrors();
+        new AsyncValidatedAction().validateFormObject(request, new TestForm(), errors);
+        Assert.assertEquals("Async errors not merged", "Already taken", errors.get("string"));
+        Assert.assertEquals("Async errors not merged", "Not found", errors.get("date"));
+        errors = new FormErrors();
+        new SlowValidatedAction().validateFormObject(request, new TestForm(), errors);
+        assertTrue("Timeout not reported", errors.isSet(AbstractFormAction.VALIDATION_TIMEOUT));
+        // a saturated executor rejects validators instead of running them on the request thread
+        final ExecutorService saturated = Executors.newSingleThreadExecutor();
+        saturated.shutdown();
+        errors = new FormErrors();
+        new AsyncValidatedAction() {
+            @Override
+            protected ExecutorService getValidationExecutor(HttpServletRequest request) {
+                return saturated;
+            }
+        }.validateFormObject(request, new TestForm(), errors);
+        assertTrue("Rejection not reported", errors.isSet(AbstractFormAction.VALIDATION_TIMEOUT));
+        Assert.assertFalse("Rejected validator run", errors.isSet("string"));
+    }
+
+    @Test
+    public void testEditorMessage() throws Exception {
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.replay(request);
+        BindingPlan plan = BindingPlan.of(PostAction.class.getAnnotation(Form.class));
+        FormErrors errors = new FormErrors();
+        new PostAction().bindProperty(request, new TestForm(), "date", "date", new String[]{"yesterday"}, plan, errors);
+        Assert.assertEquals("Editor failure has no message code", Messages.INVALID_DATE, errors.getMessageCode("date"));
+        Assert.assertEquals("Invalid format: yesterday", errors.get("date"));
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        ValidationPlanTest.ConstrainedForm form = new ValidationPlanTest.ConstrainedForm();
+        form.setCode("abc");
+        FormErrors errors = new FormErrors();
+        new FailFastAction().validateFormObject(request, form, errors);
+        Assert.assertEquals("Cheapest constraint not reported first", Collections.singleton("name"), errors.getCodes());
+        // the validator costs less than a pattern
+        form.setName("taken");
+        form.setTags(Arrays.asList("tag"));
+        errors = new FormErrors();
+        new FailFastAction().validateFormObject(request, form, errors);
+        Assert.assertEquals("Cheap validator not run before pattern", Collections.singleton("name"), errors.getCodes());
+        Assert.assertEquals("Cheap validator not run before pattern", "Already taken", errors.get("name"));
+        form.setName("free");
+        errors = new FormErrors();
+        new FailFastAction().validateFormObject(request, form, errors);
+        Assert.assertEquals("Pattern not checked", Collections.singleton("code"), errors.getCodes());
+        // the async validator runs last
+        form.setCode("ABC");
+        errors = new FormErrors();
+        new FailFastAction().validateFormObject(request, form, errors);
+        Assert.assertEquals("Async validator not run last", Collections.singleton(AbstractFormAction.VALIDATION_TIMEOUT), errors.getCodes());
+        // a form that failed to bind is not validated
+        form.setName("taken");
+        errors = new FormErrors();
+        errors.put("age", "Not a number");
+        new FailFastAction().validateFormObject(request, form, errors);
+        Assert.assertEquals("Form with binding error validated", Collections.singleton("age"), errors.getCodes());
+    }
+
+    @Test
+    public void testBuiltForm() throws Exception {
+        final boolean[] handled = new boolean[1];
+        final AbstractSimpleFormAction action = new BuiltAction() {
+            @Override
+            protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+                TestBuiltForm form = (TestBuiltForm) o;
+                Assert.assertEquals("Unable to extract String from request", "my string", form.getString());
+                Assert.assertEquals("Unable to extract int from request", 1, form.getInteger());
+                assertTrue("Unable to extract array from request", Arrays.asList(form.getArray()).contains("string0"));
+                Assert.assertEquals("Builder default not kept for unbound argument", "default label", form.getLabel());
+                handled[0] = true;
+            }
+        };
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        Vector v = new Vector(Arrays.asList("string", "integer", "array"));
+        EasyMock.expect(request.getMethod()).andReturn("POST").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
+        EasyMock.expect(request.getSession()).andReturn(session);
+        EasyMock.expect(request.getParameterNames()).andReturn(v.elements());
+        EasyMock.expect(request.getParameterValues("string")).andReturn(new String[]{"my string"});
+        EasyMock.expect(request.getParameterValues("integer")).andReturn(new String[]{"1"});
+        EasyMock.expect(request.getParameterValues("array")).andReturn(new String[]{"string0", "string1"});
+        EasyMock.replay(request);
+        action.execute(request, response);
+        assertTrue("Form submission not handled", handled[0]);
+    }
+
+    @Test
+    public void testUploadLimits() throws Exception {
+        this.assertUploadRejected(new TestMultipart().file("photo", "photo.jpg", "image/jpeg", new byte[2048]), HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        this.assertUploadRejected(new TestMultipart().file("photo", "photo.gif", "application/octet-stream", new byte[16]), HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+        this.assertUploadRejected(new TestMultipart().file("photo", "photo.jpg", "image/jpeg", new byte[16]).file("document", "document.pdf", "application/pdf", new byte[16]),
+                HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    private void assertUploadRejected(TestMultipart body, int status) throws Exception {
+        final AbstractSimpleFormAction action = new LimitedUploadAction();
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createStrictMock(HttpServletResponse.class);
+        body.expect(request);
+        EasyMock.expect(request.getSession()).andReturn(session);
+        response.sendError(EasyMock.eq(status), EasyMock.anyObject(String.class));
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        EasyMock.verify(response);
+    }
+
+    @Test
+    public void testImmutableForm() throws Exception {
+        final boolean[] handled = new boolean[1];
+        final AbstractSimpleFormAction action = new ImmutableAction() {
+            @Override
+            protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+                TestImmutableForm form = (TestImmutableForm) o;
+                Assert.assertEquals("Unable to extract String from request", "my string", form.getString());
+                Assert.assertEquals("Unable to extract int from request", 1, form.getInteger());
+                assertTrue("Unable to extract array from request", Arrays.asList(form.getArray()).contains("string0"));
+                handled[0] = true;
+            }
+        };
+        final HttpSession session = EasyMock.createNiceMock(HttpSession.class);
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        Vector v = new Vector(Arrays.asList("string", "integer", "array"));
+        EasyMock.expect(request.getMethod()).andReturn("POST").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded");
+        EasyMock.expect(request.getSession()).andReturn(session);
+        EasyMock.expect(request.getParameterNames()).andReturn(v.elements());
+        EasyMock.expect(request.getParameterValues("string")).andReturn(new String[]{"my string"});
+        EasyMock.expect(request.getParameterValues("integer")).andReturn(new String[]{"1"});
+        EasyMock.expect(request.getParameterValues("array")).andReturn(new String[]{"string0", "string1"});
+        EasyMock.replay(request);
+        action.execute(request, response);
+        assertTrue("Form submission not handled", handled[0]);
+    }
+
+    /**
+     * Keep request attributes, so resources bound for the request are released
+     *
+     * @param request mock request
+     */
+    private static void keepAttributes(HttpServletRequest request) {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        request.setAttribute(EasyMock.anyObject(String.class), EasyMock.anyObject());
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.put((String) EasyMock.getCurrentArguments()[0], EasyMock.getCurrentArguments()[1]);
+            }
+        }).anyTimes();
+        request.removeAttribute(EasyMock.anyObject(String.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.remove(EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.expect(request.getAttribute(EasyMock.anyObject(String.class))).andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.get(EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+    }
+
+    /**
+     * @return uploads taken over in the temporary directory
+     * @throws IOException if the directory cannot be listed
+     */
+    private static Set<Path> uploads() throws IOException {
+        Set<Path> paths = new HashSet<Path>();
+        DirectoryStream<Path> dir = Files.newDirectoryStream(Paths.get(System.getProperty("java.io.tmpdir")), "upload_*.tmp");
+        try {
+            for (Path path : dir) {
+                paths.add(path);
+            }
+        } finally {
+            dir.close();
+        }
+        return paths;
+    }
+
     @Form(name = "testForm",
             formClass = TestForm.class,
             binders = {@FormBinder(property = "date", editorClass = DatePropertyEditor.class)})
@@ -182,4 +664,134 @@ public class AbstractSimpleFormActionTest {
             // noop
         }
     }
-}
\ No newline at end of file
+
+    @Form(name = "testForm", formClass = TestForm.class, validatorClass = SharedValidator.class)
+    private class SharedValidatorAction extends PostAction {
+        // validated by a thread-safe validator
+    }
+
+    @ThreadSafe
+    public static final class SharedValidator implements FormValidator {
+        public void validate(Object o, FormErrors errors) {
+            // noop
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestForm.class, asyncValidators = {UniqueValidator.class, AddressValidator.class})
+    private class AsyncValidatedAction extends PostAction {
+        // validated by two async validators, each of which waits for the other to start
+    }
+
+    @Form(name = "testForm", formClass = TestForm.class, asyncValidators = StalledValidator.class, validationTimeout = 50)
+    private class SlowValidatedAction extends PostAction {
+        // validated by an async validator that never completes
+    }
+
+    @Form(name = "testForm", formClass = ValidationPlanTest.ConstrainedForm.class, validatorClass = NameValidator.class, asyncValidators = StalledValidator.class,
+            validationTimeout = 50, failFast = true)
+    private class FailFastAction extends PostAction {
+        // stops at the first error
+    }
+
+    @Cost(5)
+    public static class NameValidator implements FormValidator<ValidationPlanTest.ConstrainedForm> {
+        public void validate(ValidationPlanTest.ConstrainedForm form, FormErrors errors) {
+            if ("taken".equals(form.getName())) {
+                errors.put("name", "Already taken");
+            }
+        }
+    }
+
+    private static final CountDownLatch BOTH_STARTED = new CountDownLatch(2);
+
+    public static class UniqueValidator implements AsyncFormValidator<TestForm> {
+        public Future<FormErrors> validate(TestForm form, ExecutorService executor) {
+            return executor.submit(new Callable<FormErrors>() {
+                public FormErrors call() throws Exception {
+                    BOTH_STARTED.countDown();
+                    BOTH_STARTED.await(5, TimeUnit.SECONDS);
+                    FormErrors errors = new FormErrors();
+                    errors.put("string", "Already taken");
+                    return errors;
+                }
+            });
+        }
+    }
+
+    public static class AddressValidator implements AsyncFormValidator<TestForm> {
+        public Future<FormErrors> validate(TestForm form, ExecutorService executor) {
+            return executor.submit(new Callable<FormErrors>() {
+                public FormErrors call() throws Exception {
+                    BOTH_STARTED.countDown();
+                    FormErrors errors = new FormErrors();
+                    if (BOTH_STARTED.await(5, TimeUnit.SECONDS)) {
+                        errors.put("date", "Not found");
+                    }
+                    return errors;
+                }
+            });
+        }
+    }
+
+    public static class StalledValidator implements AsyncFormValidator<Object> {
+        public Future<FormErrors> validate(Object form, ExecutorService executor) {
+            return SettableFuture.create();
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestForm.class, maxParameters = 2)
+    private class LimitedAction extends PostAction {
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            fail("Request over parameter limit was bound");
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestForm.class, maxParameterSize = 64)
+    private class SizeLimitedAction extends PostAction {
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            fail("Request over parameter size was bound");
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestBuiltForm.class)
+    private class BuiltAction extends PostAction {
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            // noop
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestImmutableForm.class)
+    private class ImmutableAction extends PostAction {
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            // noop
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestUploadForm.class)
+    private class UploadAction extends PostAction {
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            // noop
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestFileForm.class)
+    private class FileAction extends PostAction {
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            // noop
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestFileForm.class, maxFiles = 1, uploads = {@FormUpload(property = "photo", maxFileSize = 1024, types = "image/*")})
+    private class LimitedUploadAction extends PostAction {
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            fail("Request over upload limit was bound");
+        }
+    }
+}
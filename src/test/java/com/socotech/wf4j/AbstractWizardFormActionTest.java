@@ -1,8 +1,11 @@
 package com.socotech.wf4j;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
@@ -11,6 +14,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.easymock.IAnswer;
 import org.easymock.classextension.EasyMock;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -113,8 +117,137 @@ public class AbstractWizardFormActionTest {
         assertTrue("Finish not called when expected", action.finishCalled);
     }
 
+    @Test
+    public void testPageScopedBinding() throws Exception {
+        // expectations
+        Vector names = new Vector(Arrays.asList("page", "string", "integer"));
+        EasyMock.expect(request.getMethod()).andReturn("post").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded").anyTimes();
+        EasyMock.expect(request.getSession()).andReturn(session).anyTimes();
+        EasyMock.expect(request.getParameterNames()).andReturn(names.elements());
+        EasyMock.expect(request.getParameterValues("page")).andReturn(new String[]{"1"});
+        EasyMock.expect(request.getParameterValues("string")).andReturn(new String[]{"my string"});
+        EasyMock.expect(request.getParameterValues("integer")).andReturn(new String[]{"7"});
+        // replay
+        EasyMock.replay(session);
+        EasyMock.replay(request);
+        // action
+        PageScopedAction action = new PageScopedAction();
+        action.execute(request, response);
+        assertEquals("Wrong page", 1, action.boundPage);
+        assertEquals("Property of page was not bound", "my string", action.boundForm.getString());
+        assertEquals("Property of another page was bound", 0, action.boundForm.getInteger());
+    }
+
+    @Test
+    public void testFinishValidatesChangedPages() throws Exception {
+        this.keepSessionAttributes();
+        PageScopedAction action = new PageScopedAction();
+        TestWizardForm form = new TestWizardForm();
+        form.setChoice(UserScopeVariable.next.name());
+        form.setInteger(1);
+        action.validateFormObject(request, form, new FormErrors());
+        form.setPage(1);
+        form.setString("my string");
+        action.validateFormObject(request, form, new FormErrors());
+        assertEquals("Pages not validated as submitted", Arrays.asList(0, 1), action.validatedPages);
+        // nothing changed since pages were validated
+        action.validatedPages.clear();
+        form.setChoice(UserScopeVariable.finish.name());
+        action.validateFormObject(request, form, new FormErrors());
+        assertTrue("Unchanged pages validated on finish", action.validatedPages.isEmpty());
+        // first page changed
+        form.setInteger(2);
+        action.validateFormObject(request, form, new FormErrors());
+        assertEquals("Changed page not validated on finish", Collections.singletonList(0), action.validatedPages);
+    }
+
+    @Test
+    public void testPageOutOfRange() throws Exception {
+        TestWizardForm form = new TestWizardForm();
+        form.setPage(1);
+        Map<String, String[]> parameters = Collections.singletonMap(WF4JScopeVariable.page.name(), new String[]{"99999999999"});
+        Set<String> properties = new PageScopedAction().getBindableProperties(request, form, parameters);
+        assertTrue("Properties of the current page not bound", properties.contains("string"));
+    }
+
+    @Test
+    public void testUnmappedPagesNotFingerprinted() throws Exception {
+        Map<String, Object> attributes = this.keepSessionAttributes();
+        MultiPageAction action = new MultiPageAction();
+        TestWizardForm form = new TestWizardForm();
+        form.setChoice(UserScopeVariable.next.name());
+        action.validateFormObject(request, form, new FormErrors());
+        assertTrue("Page not validated", action.validatePageCalled);
+        assertTrue("Unmapped pages fingerprinted", attributes.isEmpty());
+    }
+
+    @Test
+    public void testExitRemovesFingerprints() throws Exception {
+        Map<String, Object> attributes = this.keepSessionAttributes();
+        PageScopedAction action = new PageScopedAction();
+        TestWizardForm form = new TestWizardForm();
+        form.setChoice(UserScopeVariable.next.name());
+        action.validateFormObject(request, form, new FormErrors());
+        assertEquals("Page not fingerprinted", 1, attributes.size());
+        // back from the first page leaves the wizard
+        form.setChoice(UserScopeVariable.back.name());
+        action.handleFormSubmission(request, response, form, new FormErrors());
+        assertTrue("Fingerprints kept after exit", attributes.isEmpty());
+    }
+
+    /**
+     * Keep the attributes set on the mock session, and replay the mocks
+     *
+     * @return session attributes
+     */
+    private Map<String, Object> keepSessionAttributes() {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        session.setAttribute(EasyMock.anyObject(String.class), EasyMock.anyObject());
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.put((String) EasyMock.getCurrentArguments()[0], EasyMock.getCurrentArguments()[1]);
+            }
+        }).anyTimes();
+        session.removeAttribute(EasyMock.anyObject(String.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.remove(EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.expect(session.getAttribute(EasyMock.anyObject(String.class))).andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                return attributes.get(EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.expect(request.getSession()).andReturn(session).anyTimes();
+        EasyMock.replay(session, request);
+        return attributes;
+    }
+
+    @WizardPages({@WizardPage(page = 0, properties = "integer"), @WizardPage(page = 1, properties = "string")})
+    public static class PageScopedAction extends MultiPageAction {
+        int boundPage;
+        TestWizardForm boundForm;
+        List<Integer> validatedPages = new ArrayList<Integer>();
+
+        @Override
+        protected void validatePage(HttpServletRequest request, Object command, FormErrors errors, int page) throws Exception {
+            this.validatedPages.add(page);
+        }
+
+        @Override
+        protected void onBind(HttpServletRequest request, Object o, FormErrors errors, int page) throws Exception {
+            this.boundPage = page;
+            this.boundForm = (TestWizardForm) o;
+        }
+    }
+
     @Form(name = "testForm", formClass = TestWizardForm.class, sessionForm = false)
-    public static final class MultiPageAction extends AbstractWizardFormAction {
+    public static class MultiPageAction extends AbstractWizardFormAction {
         int targetPage;
         String forwardToPage;
         boolean finishCalled;
@@ -0,0 +1,215 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.easymock.IAnswer;
+import org.easymock.classextension.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AsyncBodyReaderTest {
+    @Test
+    public void testReadBody() throws Exception {
+        final String[] body = new String[1];
+        PushedInputStream in = new PushedInputStream();
+        this.start(in, -1, 1000, new WebExecutable() {
+            @Override
+            public void execute(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
+                body[0] = new String(ByteStreams.toByteArray(req.getInputStream()), Charsets.UTF_8);
+            }
+        });
+        // body arrives in two reads
+        in.push("name=");
+        in.listener.onDataAvailable();
+        in.push("value");
+        in.finished = true;
+        in.listener.onDataAvailable();
+        in.listener.onAllDataRead();
+        Assert.assertEquals("Body not buffered", "name=value", body[0]);
+        Assert.assertEquals("Request not completed", 0, this.completed.getCount());
+        Assert.assertEquals("Error sent for complete body", 0, this.status.get());
+    }
+
+    @Test
+    public void testMaxBody() throws Exception {
+        PushedInputStream in = new PushedInputStream();
+        this.start(in, 8, 0, this.unexpected());
+        in.push("name=long value");
+        in.listener.onDataAvailable();
+        Assert.assertEquals("Oversized body not rejected", HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, this.status.get());
+        Assert.assertEquals("Request not completed", 0, this.completed.getCount());
+        // late notification does not run the action
+        in.finished = true;
+        in.listener.onAllDataRead();
+    }
+
+    @Test
+    public void testMaxBodyFromContentLength() throws Exception {
+        PushedInputStream in = new PushedInputStream();
+        this.contentLength = 100;
+        this.start(in, 8, 0, this.unexpected());
+        Assert.assertEquals("Oversized body not rejected", HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, this.status.get());
+        Assert.assertNull("Oversized body was read", in.listener);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        PushedInputStream in = new PushedInputStream();
+        this.start(in, -1, 50, this.unexpected());
+        in.push("name=");
+        in.listener.onDataAvailable();
+        // rest of body never arrives
+        Assert.assertTrue("Request not completed", this.completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("Slow body not timed out", HttpServletResponse.SC_REQUEST_TIMEOUT, this.status.get());
+        in.finished = true;
+        in.listener.onAllDataRead();
+    }
+
+    @Test
+    public void testTimeoutExcludesAction() throws Exception {
+        final boolean[] handled = new boolean[1];
+        PushedInputStream in = new PushedInputStream();
+        this.start(in, -1, 50, new WebExecutable() {
+            @Override
+            public void execute(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
+                try {
+                    // action outlasts the read timeout
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                handled[0] = true;
+            }
+        });
+        in.finished = true;
+        in.listener.onAllDataRead();
+        Assert.assertTrue("Form submission not handled", handled[0]);
+        Assert.assertEquals("Read timeout applied to action", 0, this.status.get());
+    }
+
+    /**
+     * Start a reader whose async context runs tasks on the calling thread
+     *
+     * @param in         request body
+     * @param maxBody    maximum body size
+     * @param timeout    read timeout
+     * @param executable action
+     * @throws IOException if the reader cannot be started
+     */
+    private void start(PushedInputStream in, long maxBody, long timeout, WebExecutable executable) throws IOException {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        AsyncContext context = EasyMock.createNiceMock(AsyncContext.class);
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded").anyTimes();
+        EasyMock.expect(request.getContentLengthLong()).andReturn(this.contentLength).anyTimes();
+        EasyMock.expect(request.getInputStream()).andReturn(in).anyTimes();
+        response.sendError(EasyMock.anyInt(), EasyMock.anyObject(String.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                status.set((Integer) EasyMock.getCurrentArguments()[0]);
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.expect(context.getRequest()).andReturn(request).anyTimes();
+        EasyMock.expect(context.getResponse()).andReturn(response).anyTimes();
+        context.start(EasyMock.anyObject(Runnable.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                ((Runnable) EasyMock.getCurrentArguments()[0]).run();
+                return null;
+            }
+        }).anyTimes();
+        context.complete();
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                completed.countDown();
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.replay(request, response, context);
+        new AsyncBodyReader(context, new DiskFileItemFactory(), maxBody, timeout, executable).start();
+    }
+
+    private WebExecutable unexpected() {
+        return new WebExecutable() {
+            @Override
+            public void execute(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
+                Assert.fail("Rejected body was handled");
+            }
+        };
+    }
+
+    private long contentLength = -1;
+    private final AtomicInteger status = new AtomicInteger();
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * A servlet input stream whose content arrives when the test pushes it
+     */
+    private static final class PushedInputStream extends ServletInputStream {
+        void push(String data) {
+            this.chunks.add(data.getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            byte[] chunk = this.chunks.peek();
+            if (chunk == null) {
+                return this.finished ? -1 : 0;
+            }
+            int n = Math.min(len, chunk.length);
+            System.arraycopy(chunk, 0, b, off, n);
+            this.chunks.poll();
+            if (n < chunk.length) {
+                this.chunks.addFirst(Arrays.copyOfRange(chunk, n, chunk.length));
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return this.finished && this.chunks.isEmpty();
+        }
+
+        @Override
+        public boolean isReady() {
+            return this.finished || !this.chunks.isEmpty();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            this.listener = listener;
+        }
+
+        volatile boolean finished;
+        volatile ReadListener listener;
+        private final Deque<byte[]> chunks = new ConcurrentLinkedDeque<byte[]>();
+    }
+}
@@ -0,0 +1,224 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.base.Charsets;
+import org.easymock.classextension.EasyMock;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class AsynchronousFormActionTest {
+    @Test
+    public void testJsonBody() throws Exception {
+        JsonAction action = new JsonAction();
+        HttpServletRequest request = this.newJsonRequest("{\"string\": \"my string\", \"integer\": 1, \"doubl\": 3.14, \"bool\": true, \"longs\": null,"
+                + " \"array\": [\"string0\", \"string1\"], \"junk\": {\"deep\": [[1, 2], {\"a\": \"b\"}]}}");
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        assertTrue("Form submission not handled", action.handled);
+        TestForm form = action.form;
+        List<String> array = Arrays.asList(form.getArray());
+        assertTrue("Unable to extract array element #1 from body", array.contains("string0"));
+        assertTrue("Unable to extract array element #2 from body", array.contains("string1"));
+        Assert.assertEquals("Unable to extract String from body", "my string", form.getString());
+        Assert.assertEquals("Unable to extract int from body", 1, form.getInteger());
+        Assert.assertEquals("Unable to extract double from body", 3.14, form.getDoubl(), 0);
+        Assert.assertEquals("Unable to extract boolean from body", true, form.isBool());
+        Assert.assertNull("Unable to extract null from body", form.getLongs());
+    }
+
+    @Test
+    public void testMalformedJsonBody() throws Exception {
+        JsonAction action = new JsonAction();
+        HttpServletRequest request = this.newJsonRequest("{\"string\": ");
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        Assert.assertFalse("Malformed body was handled", action.handled);
+        request = this.newJsonRequest("{\"string\": ");
+        EasyMock.replay(request);
+        FormErrors errors = new FormErrors();
+        action.bindFormObject(request, new TestForm(), errors);
+        Assert.assertEquals("Malformed body has no message code", Messages.MALFORMED_BODY, errors.getMessageCode("testForm"));
+        Assert.assertEquals("Malformed request body", errors.get("testForm"));
+    }
+
+    @Test
+    public void testFieldValidation() throws Exception {
+        ConstrainedAction action = new ConstrainedAction();
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        StringWriter body = new StringWriter();
+        Vector<String> names = new Vector<String>(Arrays.asList("name", "email", "nickname", AsynchronousFormAction.VALIDATE));
+        EasyMock.expect(request.getMethod()).andReturn("POST").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded").anyTimes();
+        EasyMock.expect(request.getParameterNames()).andReturn(names.elements());
+        EasyMock.expect(request.getParameterValues("name")).andReturn(new String[]{""}).anyTimes();
+        EasyMock.expect(request.getParameterValues("email")).andReturn(new String[]{"marc@"}).anyTimes();
+        EasyMock.expect(request.getParameterValues("nickname")).andReturn(new String[]{"x"}).anyTimes();
+        EasyMock.expect(request.getParameterValues(AsynchronousFormAction.VALIDATE)).andReturn(new String[]{"email,nickname"}).anyTimes();
+        EasyMock.expect(response.getWriter()).andReturn(new PrintWriter(body));
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        Assert.assertFalse("Field validation was handled", action.handled);
+        Assert.assertNull("Field outside targets was bound", action.form.getName());
+        JSONArray errors = new JSONObject(body.toString()).getJSONArray("errors");
+        Assert.assertEquals("Wrong number of errors: " + body, 2, errors.length());
+        Assert.assertEquals("Wrong field", "email", errors.getJSONObject(0).getString("key"));
+        Assert.assertEquals("Field validator not called", "Too short", errors.getJSONObject(1).getString("value"));
+    }
+
+    @Test
+    public void testNestedFieldValidation() throws Exception {
+        AddressAction action = new AddressAction();
+        HttpServletRequest request = this.newJsonRequest("{\"name\": \"Marc\", \"address\": {\"street\": \"Main\", \"zip\": \"12345\"}}");
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        StringWriter body = new StringWriter();
+        EasyMock.expect(request.getParameterValues(AsynchronousFormAction.VALIDATE)).andReturn(new String[]{"address.zip"}).anyTimes();
+        EasyMock.expect(response.getWriter()).andReturn(new PrintWriter(body));
+        EasyMock.replay(request, response);
+        action.execute(request, response);
+        Assert.assertNotNull("Object holding target field skipped", action.form.getAddress());
+        Assert.assertEquals("Nested target field not bound", "12345", action.form.getAddress().getZip());
+        Assert.assertNull("Nested field outside targets was bound", action.form.getAddress().getStreet());
+        Assert.assertNull("Field outside targets was bound", action.form.getName());
+        Assert.assertEquals("Unexpected errors: " + body, 0, new JSONObject(body.toString()).getJSONArray("errors").length());
+    }
+
+    private HttpServletRequest newJsonRequest(String body) throws IOException {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getMethod()).andReturn("POST").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/json; charset=UTF-8").anyTimes();
+        EasyMock.expect(request.getInputStream()).andReturn(new TestServletInputStream(body.getBytes(Charsets.UTF_8)));
+        return request;
+    }
+
+    @Form(name = "testForm", formClass = ValidationPlanTest.ConstrainedForm.class, validatorClass = NicknameValidator.class)
+    private static class ConstrainedAction extends AsynchronousFormAction {
+        ValidationPlanTest.ConstrainedForm form;
+        boolean handled;
+
+        @Override
+        protected void onBind(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
+            this.form = (ValidationPlanTest.ConstrainedForm) o;
+        }
+
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            this.handled = true;
+        }
+    }
+
+    public static class NicknameValidator implements FieldValidator<ValidationPlanTest.ConstrainedForm> {
+        @Override
+        public void validate(ValidationPlanTest.ConstrainedForm form, FormErrors errors) {
+            this.validateField(form, "nickname", errors);
+        }
+
+        @Override
+        public void validateField(ValidationPlanTest.ConstrainedForm form, String field, FormErrors errors) {
+            if ("nickname".equals(field) && form.getNickname() != null && form.getNickname().length() < 2) {
+                errors.put("nickname", "Too short");
+            }
+        }
+    }
+
+    @Form(name = "testForm", formClass = TestForm.class)
+    private static class JsonAction extends AsynchronousFormAction {
+        TestForm form;
+        boolean handled;
+
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            this.form = (TestForm) o;
+            this.handled = true;
+        }
+    }
+
+    @Form(name = "addressForm", formClass = AddressForm.class, validatorClass = ZipValidator.class)
+    private static class AddressAction extends AsynchronousFormAction {
+        AddressForm form;
+
+        @Override
+        protected void onBind(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws Exception {
+            this.form = (AddressForm) o;
+        }
+
+        @Override
+        protected void handleFormSubmission(HttpServletRequest request, HttpServletResponse response, Object o, FormErrors errors) throws IOException, ServletException {
+            Assert.fail("Field validation was handled");
+        }
+    }
+
+    public static class ZipValidator implements FieldValidator<AddressForm> {
+        @Override
+        public void validate(AddressForm form, FormErrors errors) {
+            this.validateField(form, "address.zip", errors);
+        }
+
+        @Override
+        public void validateField(AddressForm form, String field, FormErrors errors) {
+            if ("address.zip".equals(field) && (form.getAddress() == null || form.getAddress().getZip() == null)) {
+                errors.put("address.zip", "Required");
+            }
+        }
+    }
+
+    public static class AddressForm {
+        private String name;
+        private Address address;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    public static class Address {
+        private String street;
+        private String zip;
+
+        public String getStreet() {
+            return street;
+        }
+
+        public void setStreet(String street) {
+            this.street = street;
+        }
+
+        public String getZip() {
+            return zip;
+        }
+
+        public void setZip(String zip) {
+            this.zip = zip;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.socotech.wf4j;
+
+import java.io.OutputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.easymock.classextension.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BufferedBodyRequestTest {
+    @Test
+    public void testFormParameters() throws Exception {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getQueryString()).andReturn("page=2&tag=a").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded; charset=UTF-8").anyTimes();
+        EasyMock.expect(request.getCharacterEncoding()).andReturn("UTF-8").anyTimes();
+        EasyMock.replay(request);
+        String body = "name=J%C3%BCrgen+Smith&tag=b&empty";
+        BufferedBodyRequest req = new BufferedBodyRequest(request, this.buffer(body));
+        Assert.assertEquals("Wrong query parameter", "2", req.getParameter("page"));
+        Assert.assertEquals("Wrong body parameter", "J\u00fcrgen Smith", req.getParameter("name"));
+        Assert.assertArrayEquals("Wrong values", new String[]{"a", "b"}, req.getParameterValues("tag"));
+        Assert.assertEquals("Wrong empty value", "", req.getParameter("empty"));
+        Assert.assertEquals("Wrong content length", body.length(), req.getContentLength());
+        Assert.assertEquals("Body not replayed", body, new String(ByteStreams.toByteArray(req.getInputStream()), Charsets.UTF_8));
+        req.delete();
+    }
+
+    @Test
+    public void testMalformedPair() throws Exception {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getContentType()).andReturn("application/x-www-form-urlencoded").anyTimes();
+        EasyMock.replay(request);
+        BufferedBodyRequest req = new BufferedBodyRequest(request, this.buffer("bad=%zz&also%2=x&good=1"));
+        Assert.assertNull("Malformed pair not skipped", req.getParameter("bad"));
+        Assert.assertEquals("Well-formed pair skipped", "1", req.getParameter("good"));
+        Assert.assertEquals("Malformed pairs not skipped", 1, req.getParameterMap().size());
+    }
+
+    @Test
+    public void testOtherBody() throws Exception {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getContentType()).andReturn("application/json").anyTimes();
+        EasyMock.replay(request);
+        BufferedBodyRequest req = new BufferedBodyRequest(request, this.buffer("{\"a\": 1}"));
+        Assert.assertTrue("Body parsed as parameters", req.getParameterMap().isEmpty());
+        Assert.assertEquals("Body not replayed", "{\"a\": 1}", req.getReader().readLine());
+    }
+
+    private FileItem buffer(String body) throws Exception {
+        FileItem item = new DiskFileItemFactory().createItem("body", null, false, null);
+        OutputStream out = item.getOutputStream();
+        out.write(body.getBytes(Charsets.UTF_8));
+        out.close();
+        return item;
+    }
+}
@@ -1,6 +1,12 @@
 package com.socotech.wf4j;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
@@ -102,6 +108,51 @@ public class FormErrorsTest extends TestCase {
 		Assert.assertEquals(p.get("5"), "five");
 	}
 
+	/**
+	 * Are nested properties popped in reverse order?
+	 */
+	public void testPop() {
+		FormErrors p = new FormErrors();
+		p.push("items");
+		p.push("0");
+		Assert.assertEquals("0", p.pop());
+		p.push("1");
+		p.put("name", "missing");
+		Assert.assertEquals("1", p.pop());
+		Assert.assertEquals("items", p.pop());
+		Assert.assertEquals("missing", p.get("items.1.name"));
+		try {
+			p.pop();
+			fail();
+		} catch (EmptyStackException e) {
+			// pass
+		}
+	}
+
+	/**
+	 * Are errors iterated in order of code, however many there are?
+	 */
+	public void testOrder() {
+		FormErrors p = new FormErrors();
+		List<String> codes = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			codes.add("code" + i);
+		}
+		Collections.shuffle(codes, new Random(1));
+		for (String code : codes) {
+			p.put(code, code);
+			Assert.assertEquals(code, p.get(code));
+		}
+		Collections.sort(codes);
+		Assert.assertEquals(codes, new ArrayList<String>(p.keySet()));
+		Assert.assertEquals(new TreeMap<String, String>(p), p);
+		p.remove("code50");
+		assertFalse(p.isSet("code50"));
+		assertEquals(99, p.size());
+		p.clear();
+		assertTrue(p.isEmpty());
+	}
+
 	/**
 	 * Test string method
 	 */
@@ -0,0 +1,44 @@
+package com.socotech.wf4j;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FormValidatorUtilTest {
+    @Test
+    public void testInvokeValidator() throws Exception {
+        FormErrors errors = new FormErrors();
+        FormValidatorUtil.invokeValidator(new OddValidator(), 1, errors, "address.zip");
+        Assert.assertEquals("Wrong error path", "Odd", errors.get("address.zip.value"));
+    }
+
+    @Test
+    public void testValidateEach() throws Exception {
+        List<Integer> rows = Lists.newArrayList();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(i);
+        }
+        FormErrors errors = new FormErrors();
+        errors.push("import");
+        FormValidatorUtil.validateEach(new OddValidator(), rows, errors, "rows");
+        errors.pop();
+        Assert.assertEquals("Wrong number of errors", 1000, errors.size());
+        Assert.assertEquals("Wrong error path", "Odd", errors.get("import.rows[1].value"));
+        Assert.assertEquals("Wrong error path", "Odd", errors.get("import.rows[1999].value"));
+        Assert.assertFalse("Wrong error path", errors.isSet("import.rows[2].value"));
+    }
+
+    private static class OddValidator implements FormValidator<Integer> {
+        @Override
+        public void validate(Integer i, FormErrors errors) {
+            if (i % 2 == 1) {
+                errors.put("value", "Odd");
+            }
+        }
+    }
+}
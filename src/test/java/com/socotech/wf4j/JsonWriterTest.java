@@ -0,0 +1,54 @@
+package com.socotech.wf4j;
+
+import java.io.StringWriter;
+import java.util.Collections;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test the streaming JSON writer
+ */
+@RunWith(JUnit4.class)
+public class JsonWriterTest {
+
+    @Test
+    public void testDocument() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("id").value(42).name("ratio").value(0.5).name("ok").value(true).name("none").value((String) null);
+        json.name("tags").beginArray().value("a").beginArray().endArray().beginObject().endObject().endArray().endObject().close();
+        Assert.assertEquals("{\"id\":42,\"ratio\":0.5,\"ok\":true,\"none\":null,\"tags\":[\"a\",[],{}]}", out.toString());
+    }
+
+    @Test
+    public void testEscaping() throws Exception {
+        String text = "say \"hi\"\\\n\t\u0001</script>\u2028caf\u00e9";
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).value(text).close();
+        Assert.assertEquals("\"say \\\"hi\\\"\\\\\\n\\t\\u0001<\\/script>\\u2028caf\u00e9\"", out.toString());
+        Assert.assertEquals("Escaped text not parsed back", text, new JSONArray("[" + out + "]").getString(0));
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        FormErrors errors = new FormErrors();
+        errors.put("name", "Required");
+        errors.put("email", "Invalid \"email\"");
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).value(errors).close();
+        Assert.assertEquals("Errors not written like toJSON", errors.toJSON().toString(), new JSONArray(out.toString()).toString());
+        out = new StringWriter();
+        new JsonWriter(out).beginObject().name("errors").value(errors, Collections.singleton("name")).endObject().close();
+        Assert.assertEquals("Errors not restricted to fields", 1, new JSONObject(out.toString()).getJSONArray("errors").length());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testValueWithoutName() throws Exception {
+        new JsonWriter(new StringWriter()).beginObject().value("orphan");
+    }
+}
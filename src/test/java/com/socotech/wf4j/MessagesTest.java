@@ -0,0 +1,88 @@
+package com.socotech.wf4j;
+
+import java.util.ListResourceBundle;
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test the message registry
+ */
+@RunWith(JUnit4.class)
+public class MessagesTest {
+
+    @After
+    public void tearDown() {
+        Messages.setBundle("wf4j-messages");
+    }
+
+    @Test
+    public void testTemplates() throws Exception {
+        Messages.register("test.plain", "Must be between {0} and {1} characters");
+        Messages.register("test.quoted", "Can''t use '{0}' here: {0}");
+        Messages.register("test.typed", "Costs {0,number,#.00}");
+        Assert.assertEquals("Must be between 2 and 16 characters", Messages.format(Locale.US, "test.plain", 2, 16));
+        Assert.assertEquals("Can't use {0} here: x", Messages.format(Locale.US, "test.quoted", "x"));
+        Assert.assertEquals("Costs 3.50", Messages.format(Locale.US, "test.typed", 3.5));
+        Assert.assertEquals("Costs 3,50", Messages.format(Locale.GERMANY, "test.typed", 3.5));
+        Assert.assertEquals("Missing argument not kept", "Must be between 2 and {1} characters", Messages.format(Locale.US, "test.plain", 2));
+        Assert.assertEquals("Unknown code not returned", "test.unknown", Messages.format(Locale.US, "test.unknown"));
+    }
+
+    @Test
+    public void testDeferredMessages() throws Exception {
+        Messages.setBundle(MessagesTest.class.getName() + "$Bundle");
+        FormErrors errors = new FormErrors();
+        errors.push("address");
+        errors.putMessage("city", Messages.REQUIRED);
+        errors.pop();
+        errors.putMessage("nickname", Messages.LENGTH, 2, 16);
+        Assert.assertEquals("Message code not kept", Messages.REQUIRED, errors.getMessageCode("address.city"));
+        Assert.assertNull("Plain description has no message code", errors.getMessageCode("name"));
+        Assert.assertEquals("Required", errors.get("address.city"));
+        errors.setLocale(Locale.FRENCH);
+        Assert.assertEquals("Obligatoire", errors.get("address.city"));
+        Assert.assertEquals("Entre 2 et 16 caract\u00e8res", errors.get("nickname"));
+        // merged unformatted
+        FormErrors merged = new FormErrors();
+        merged.putAll(errors);
+        Assert.assertEquals(Messages.REQUIRED, merged.getMessageCode("address.city"));
+    }
+
+    @Test
+    public void testArguments() throws Exception {
+        Messages.register("test.count", "{0} items");
+        Assert.assertEquals("Number not formatted in locale", "1,234 items", Messages.format(Locale.US, "test.count", 1234));
+        Assert.assertEquals("Number not formatted in locale", "1.234 items", Messages.format(Locale.GERMANY, "test.count", 1234));
+        Assert.assertEquals("String not substituted as is", "1234 items", Messages.format(Locale.GERMANY, "test.count", "1234"));
+    }
+
+    @Test
+    public void testResolvedLocales() throws Exception {
+        Messages.setBundle(MessagesTest.class.getName() + "$Bundle");
+        Assert.assertEquals("Templates not shared with bundle locale", Locale.FRENCH, Messages.resolve(Locale.CANADA_FRENCH));
+        Assert.assertEquals("Made-up locales not resolved", Messages.resolve(Locale.getDefault()), Messages.resolve(new Locale("xx", "YY")));
+        Assert.assertEquals("Obligatoire", Messages.format(Locale.CANADA_FRENCH, Messages.REQUIRED));
+        Messages.setBundle(null);
+        Assert.assertEquals("Registered templates not in root locale", Locale.ROOT, Messages.resolve(Locale.FRENCH));
+        Assert.assertEquals("Required", Messages.format(Locale.FRENCH, Messages.REQUIRED));
+    }
+
+    public static class Bundle extends ListResourceBundle {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[0][];
+        }
+    }
+
+    public static class Bundle_fr extends ListResourceBundle {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[][]{{Messages.REQUIRED, "Obligatoire"}, {Messages.LENGTH, "Entre {0} et {1} caract\u00e8res"}};
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.socotech.wf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PooledFileItemTest {
+    @Test
+    public void testInMemory() throws Exception {
+        BufferPool pool = new BufferPool(4096, 16, false);
+        PooledFileItem item = (PooledFileItem) new PooledFileItemFactory(pool, -1, null).createItem("photo", "image/jpeg", false, "photo.jpg");
+        byte[] content = this.write(item, 10000);
+        Assert.assertTrue("Item spilled to disk", item.isInMemory());
+        Assert.assertEquals("Wrong size", 10000, item.getSize());
+        Assert.assertEquals("Wrong number of buffers", 3, item.getBuffers().length);
+        Assert.assertTrue("Wrong content", Arrays.equals(content, ByteStreams.toByteArray(item.getInputStream())));
+        Assert.assertTrue("Wrong content", Arrays.equals(content, item.get()));
+        item.delete();
+        Assert.assertEquals("Buffers not returned to pool", 3, pool.getIdleCount());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        BufferPool pool = new BufferPool(4096, 16, false);
+        PooledFileItem item = (PooledFileItem) new PooledFileItemFactory(pool, 8192, null).createItem("photo", "image/jpeg", false, "photo.jpg");
+        byte[] content = this.write(item, 10000);
+        Path store = item.getStoreLocation();
+        Assert.assertFalse("Item not spilled to disk", item.isInMemory());
+        Assert.assertEquals("Buffers not returned to pool", 2, pool.getIdleCount());
+        Assert.assertTrue("Wrong content", Arrays.equals(content, ByteStreams.toByteArray(item.getInputStream())));
+        item.delete();
+        Assert.assertFalse("Spilled file not deleted", Files.exists(store));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        BufferPool pool = new BufferPool(4096, 16, false);
+        PooledFileItem item = (PooledFileItem) new PooledFileItemFactory(pool, -1, null).createItem("photo", "image/jpeg", false, "photo.jpg");
+        byte[] content = this.write(item, 10000);
+        PooledFileItem copy = this.copy(item);
+        Assert.assertEquals("Wrong field name", "photo", copy.getFieldName());
+        Assert.assertEquals("Wrong file name", "photo.jpg", copy.getName());
+        Assert.assertEquals("Wrong size", 10000, copy.getSize());
+        Assert.assertTrue("Wrong content", Arrays.equals(content, ByteStreams.toByteArray(copy.getInputStream())));
+        item.delete();
+        copy.delete();
+    }
+
+    @Test
+    public void testSpilledSerialization() throws Exception {
+        BufferPool pool = new BufferPool(4096, 16, false);
+        PooledFileItem item = (PooledFileItem) new PooledFileItemFactory(pool, 8192, null).createItem("photo", "image/jpeg", false, "photo.jpg");
+        byte[] content = this.write(item, 10000);
+        PooledFileItem copy = this.copy(item);
+        Assert.assertFalse("Item not on disk", copy.isInMemory());
+        Assert.assertEquals("Wrong store location", item.getStoreLocation(), copy.getStoreLocation());
+        Assert.assertTrue("Wrong content", Arrays.equals(content, ByteStreams.toByteArray(copy.getInputStream())));
+        item.delete();
+    }
+
+    private PooledFileItem copy(PooledFileItem item) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(item);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        try {
+            return (PooledFileItem) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    private byte[] write(PooledFileItem item, int length) throws Exception {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        OutputStream out = item.getOutputStream();
+        for (int offset = 0; offset < length; offset += 1000) {
+            out.write(content, offset, Math.min(1000, length - offset));
+        }
+        out.close();
+        return content;
+    }
+}
@@ -0,0 +1,69 @@
+package com.socotech.wf4j;
+
+/**
+ * An immutable form bound through its builder
+ */
+public final class TestBuiltForm {
+    private final String string;
+    private final int integer;
+    private final String[] array;
+    private final String label;
+
+    private TestBuiltForm(Builder builder) {
+        this.string = builder.string;
+        this.integer = builder.integer;
+        this.array = builder.array;
+        this.label = builder.label;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getString() {
+        return string;
+    }
+
+    public int getInteger() {
+        return integer;
+    }
+
+    public String[] getArray() {
+        return array;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static final class Builder {
+        private String string;
+        private int integer;
+        private String[] array;
+        private String label = "default label";
+
+        public Builder string(String string) {
+            this.string = string;
+            return this;
+        }
+
+        public Builder withInteger(int integer) {
+            this.integer = integer;
+            return this;
+        }
+
+        public Builder setArray(String[] array) {
+            this.array = array;
+            return this;
+        }
+
+        public Builder label(String label) {
+            this.label = label;
+            return this;
+        }
+
+        public TestBuiltForm build() {
+            return new TestBuiltForm(this);
+        }
+    }
+}
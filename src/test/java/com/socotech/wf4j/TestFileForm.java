@@ -0,0 +1,57 @@
+package com.socotech.wf4j;
+
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A form with file-typed properties
+ */
+public class TestFileForm {
+    private UploadedFile photo;
+    private Path document;
+    private InputStream stream;
+    private MappedByteBuffer mapped;
+    private FileChannel channel;
+
+    public UploadedFile getPhoto() {
+        return photo;
+    }
+
+    public void setPhoto(UploadedFile photo) {
+        this.photo = photo;
+    }
+
+    public Path getDocument() {
+        return document;
+    }
+
+    public void setDocument(Path document) {
+        this.document = document;
+    }
+
+    public InputStream getStream() {
+        return stream;
+    }
+
+    public void setStream(InputStream stream) {
+        this.stream = stream;
+    }
+
+    public MappedByteBuffer getMapped() {
+        return mapped;
+    }
+
+    public void setMapped(MappedByteBuffer mapped) {
+        this.mapped = mapped;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    public void setChannel(FileChannel channel) {
+        this.channel = channel;
+    }
+}
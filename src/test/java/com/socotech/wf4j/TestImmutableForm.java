@@ -0,0 +1,31 @@
+package com.socotech.wf4j;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * An immutable form bound through its constructor
+ */
+public final class TestImmutableForm {
+    private final String string;
+    private final int integer;
+    private final String[] array;
+
+    @ConstructorProperties({"string", "integer", "array"})
+    public TestImmutableForm(String string, int integer, String[] array) {
+        this.string = string;
+        this.integer = integer;
+        this.array = array;
+    }
+
+    public String getString() {
+        return string;
+    }
+
+    public int getInteger() {
+        return integer;
+    }
+
+    public String[] getArray() {
+        return array;
+    }
+}
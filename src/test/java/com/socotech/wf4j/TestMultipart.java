@@ -0,0 +1,55 @@
+package com.socotech.wf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import javax.servlet.http.HttpServletRequest;
+
+import org.easymock.classextension.EasyMock;
+
+/**
+ * Builds a multipart/form-data request body for tests
+ */
+final class TestMultipart {
+    TestMultipart field(String name, String value) throws IOException {
+        this.write("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n");
+        return this;
+    }
+
+    TestMultipart file(String name, String fileName, String contentType, byte[] content) throws IOException {
+        this.write("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + fileName + "\"\r\nContent-Type: " + contentType + "\r\n\r\n");
+        this.body.write(content);
+        this.write("\r\n");
+        return this;
+    }
+
+    /**
+     * Record expectations on a nice request mock so that it serves this body
+     *
+     * @param request request mock, not yet replayed
+     */
+    void expect(HttpServletRequest request) throws IOException {
+        this.write("--" + BOUNDARY + "--\r\n");
+        EasyMock.expect(request.getMethod()).andReturn("POST").anyTimes();
+        EasyMock.expect(request.getContentType()).andReturn("multipart/form-data; boundary=" + BOUNDARY).anyTimes();
+        EasyMock.expect(request.getContentLength()).andReturn(this.body.size()).anyTimes();
+        this.in = new TestServletInputStream(this.body.toByteArray());
+        EasyMock.expect(request.getInputStream()).andReturn(this.in).anyTimes();
+    }
+
+    /**
+     * @return number of body bytes not read yet
+     */
+    int unread() {
+        return this.in.available();
+    }
+
+    private void write(String s) throws IOException {
+        this.body.write(s.getBytes(Charset.forName("ISO-8859-1")));
+    }
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private TestServletInputStream in;
+
+    private static final String BOUNDARY = "wf4j-test-boundary";
+}
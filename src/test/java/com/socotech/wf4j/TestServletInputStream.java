@@ -0,0 +1,47 @@
+package com.socotech.wf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+/**
+ * A servlet input stream over a fixed request body
+ */
+final class TestServletInputStream extends ServletInputStream {
+    TestServletInputStream(byte[] body) {
+        this.in = new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return this.in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return this.in.read(b, off, len);
+    }
+
+    @Override
+    public int available() {
+        return this.in.available();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.in.available() == 0;
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setReadListener(ReadListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    private final ByteArrayInputStream in;
+}
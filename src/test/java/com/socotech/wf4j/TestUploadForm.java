@@ -0,0 +1,37 @@
+package com.socotech.wf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A form that consumes uploaded files as they are streamed
+ */
+public class TestUploadForm implements UploadSink {
+    private String string;
+    private String fileName;
+    private long received;
+
+    @Override
+    public void receiveUpload(String name, String fileName, String contentType, InputStream in) throws IOException {
+        this.fileName = fileName;
+        this.received += ByteStreams.copy(in, ByteStreams.nullOutputStream());
+    }
+
+    public String getString() {
+        return string;
+    }
+
+    public void setString(String string) {
+        this.string = string;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+}
@@ -0,0 +1,41 @@
+package com.socotech.wf4j;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.fileupload.FileItem;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class UploadManagerTest {
+    @Test
+    public void testMetrics() throws Exception {
+        File repository = Files.createTempDirectory("wf4j").toFile();
+        UploadManager uploads = new UploadManager(1024, repository);
+        try {
+            FileItem small = this.write(uploads.createItem("small", "text/plain", false, "small.txt"), 512);
+            FileItem large = this.write(uploads.createItem("large", "text/plain", false, "large.txt"), 4096);
+            Assert.assertTrue("Small item spooled to disk", small.isInMemory());
+            Assert.assertFalse("Large item not spooled to disk", large.isInMemory());
+            Assert.assertEquals("Wrong number of bytes spooled", 4096, uploads.getBytesSpooled());
+            Assert.assertEquals("Wrong number of files outstanding", 1, uploads.getFilesOutstanding());
+            large.delete();
+            small.delete();
+            Assert.assertEquals("Wrong number of files outstanding", 0, uploads.getFilesOutstanding());
+        } finally {
+            uploads.shutdown();
+            Assert.assertTrue("Repository not empty", repository.delete());
+        }
+    }
+
+    private FileItem write(FileItem item, int length) throws Exception {
+        OutputStream out = item.getOutputStream();
+        out.write(new byte[length]);
+        out.close();
+        return item;
+    }
+}
@@ -0,0 +1,112 @@
+package com.socotech.wf4j;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.commons.fileupload.FileItem;
+import org.easymock.IAnswer;
+import org.easymock.classextension.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class UploadProcessingTest {
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testCloseWhileProcessing() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        UploadProcessing processing = new UploadProcessing();
+        processing.submit(this.executor, "photo", new Processor() {
+            @Override
+            public String process(String name, FileItem item, UploadDigest digest) throws Exception {
+                started.countDown();
+                // ignores interrupts, as a processor blocked in I/O might
+                Uninterruptibles.awaitUninterruptibly(release);
+                return name;
+            }
+        }, this.item(), null);
+        Assert.assertTrue("Processing not started", started.await(5, TimeUnit.SECONDS));
+        processing.close();
+        Assert.assertEquals("File deleted while processed", 1, this.deleted.getCount());
+        release.countDown();
+        Assert.assertTrue("File not deleted once processed", this.deleted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCloseAfterProcessing() throws Exception {
+        UploadProcessing processing = new UploadProcessing();
+        processing.submit(this.executor, "photo", new Processor(), this.item(), null);
+        FormErrors errors = new FormErrors();
+        processing.await(errors, 5000);
+        Assert.assertTrue("Processing failed", errors.isEmpty());
+        processing.close();
+        Assert.assertEquals("File not deleted", 0, this.deleted.getCount());
+    }
+
+    @Test
+    public void testCloseBeforeProcessing() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final boolean[] processed = new boolean[1];
+        // occupy the only thread
+        this.executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Uninterruptibles.awaitUninterruptibly(release);
+            }
+        });
+        UploadProcessing processing = new UploadProcessing();
+        processing.submit(this.executor, "photo", new Processor() {
+            @Override
+            public String process(String name, FileItem item, UploadDigest digest) throws Exception {
+                processed[0] = true;
+                return name;
+            }
+        }, this.item(), null);
+        processing.close();
+        Assert.assertEquals("File not deleted", 0, this.deleted.getCount());
+        release.countDown();
+        this.executor.shutdown();
+        Assert.assertTrue("Executor not drained", this.executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertFalse("Closed task was processed", processed[0]);
+    }
+
+    private FileItem item() {
+        FileItem item = EasyMock.createNiceMock(FileItem.class);
+        item.delete();
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                deleted.countDown();
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.replay(item);
+        return item;
+    }
+
+    private final CountDownLatch deleted = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private static class Processor implements UploadProcessor<String> {
+        @Override
+        public String process(String name, FileItem item, UploadDigest digest) throws Exception {
+            return name;
+        }
+
+        @Override
+        public void apply(Object o, String name, String result, FormErrors errors) throws Exception {
+            // noop
+        }
+    }
+}
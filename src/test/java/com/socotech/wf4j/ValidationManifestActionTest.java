@@ -0,0 +1,167 @@
+package com.socotech.wf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.easymock.classextension.EasyMock;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test the client-side validation manifest
+ */
+@RunWith(JUnit4.class)
+public class ValidationManifestActionTest {
+
+    @Test
+    public void testManifest() throws Exception {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        EasyMock.expect(response.getOutputStream()).andReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                // blocking
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                body.write(b);
+            }
+        });
+        EasyMock.replay(response);
+        new ValidationManifestAction().execute(this.newRequest("constrained", null), response);
+        JSONObject manifest = new JSONObject(new String(body.toByteArray(), Charsets.UTF_8));
+        Assert.assertEquals("constrained", manifest.getString("form"));
+        JSONObject fields = manifest.getJSONObject("fields");
+        Assert.assertEquals("Wrong type", "integer", fields.getJSONObject("age").getString("type"));
+        Assert.assertEquals("Wrong type", "array", fields.getJSONObject("tags").getString("type"));
+        Assert.assertEquals("Editor not described", "CommaDelimitedStringArrayEditor", fields.getJSONObject("tags").getJSONArray("editors").getJSONObject(0).getString("editor"));
+        JSONArray constraints = fields.getJSONObject("name").getJSONArray("constraints");
+        Assert.assertEquals("required", constraints.getJSONObject(0).getString("type"));
+        Assert.assertEquals("Message not formatted", "Required", constraints.getJSONObject(0).getString("message"));
+        JSONObject length = fields.getJSONObject("nickname").getJSONArray("constraints").getJSONObject(0);
+        Assert.assertEquals(16, length.getInt("max"));
+        Assert.assertEquals("Must be between 2 and 16 characters", length.getString("message"));
+        Assert.assertEquals("^(?:[A-Z0-9]+)$", fields.getJSONObject("code").getJSONArray("constraints").getJSONObject(0).getString("pattern"));
+        Assert.assertFalse("Field without binders has editors", fields.getJSONObject("age").has("editors"));
+    }
+
+    @Test
+    public void testPortablePatterns() throws Exception {
+        Assert.assertTrue(Patterns.isPortable(Patterns.EMAIL));
+        Assert.assertTrue(Patterns.isPortable(Pattern.compile("[A-Z0-9]+")));
+        Assert.assertTrue(Patterns.isPortable(Pattern.compile("(?:\\d{3}-)?\\d{4}(?=x)[]a]\\++")));
+        Assert.assertFalse(Patterns.isPortable(Pattern.compile("\\p{Alpha}+")));
+        Assert.assertFalse(Patterns.isPortable(Pattern.compile("a++b")));
+        Assert.assertFalse(Patterns.isPortable(Pattern.compile("\\Aabc\\Z")));
+        Assert.assertFalse(Patterns.isPortable(Pattern.compile("(?i)abc")));
+        Assert.assertFalse(Patterns.isPortable(Pattern.compile("[a-z&&[^e]]")));
+        Assert.assertFalse(Patterns.isPortable(Pattern.compile("abc", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testManifestPerBundleLocale() throws Exception {
+        Form form = ConstrainedAction.class.getAnnotation(Form.class);
+        Messages.setBundle(null);
+        try {
+            ValidationManifest manifest = ValidationManifest.of(form, Locale.US);
+            Assert.assertSame("Manifest not shared by locales of a bundle", manifest, ValidationManifest.of(form, new Locale("xx", "YY")));
+            Messages.register("test.manifest", "Unused");
+            Assert.assertNotSame("Manifest not discarded with templates", manifest, ValidationManifest.of(form, Locale.US));
+        } finally {
+            Messages.setBundle("wf4j-messages");
+        }
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        Form form = ConstrainedAction.class.getAnnotation(Form.class);
+        String etag = ValidationManifest.of(form, Locale.US).getETag();
+        Assert.assertSame("Manifest not cached", ValidationManifest.of(form, Locale.US), ValidationManifest.of(form, Locale.US));
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        EasyMock.expectLastCall();
+        EasyMock.expect(response.getOutputStream()).andThrow(new AssertionError("Manifest sent again")).anyTimes();
+        EasyMock.replay(response);
+        new ValidationManifestAction().execute(this.newRequest("constrained", "W/\"other\", " + etag), response);
+        EasyMock.verify(response);
+    }
+
+    @Test
+    public void testUnknownForm() throws Exception {
+        HttpServletResponse response = EasyMock.createStrictMock(HttpServletResponse.class);
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        EasyMock.replay(response);
+        new ValidationManifestAction().execute(this.newRequest("unknown", null), response);
+        EasyMock.verify(response);
+    }
+
+    @Test
+    public void testControllerForms() throws Exception {
+        List<Class<?>> types = Lists.<Class<?>>newArrayList(ConstrainedAction.class, MultiAction.class, UploadAction.class, BuiltAction.class);
+        Map<String, Form> forms = WF4JController.getForms(types);
+        Assert.assertEquals("Named form not registered", ConstrainedAction.class.getAnnotation(Form.class), forms.get("constrained"));
+        Assert.assertEquals("Form not registered by class", ConstrainedAction.class.getAnnotation(Form.class), forms.get(ValidationPlanTest.ConstrainedForm.class.getName()));
+        Assert.assertEquals("Multi-form entry not registered", "billing", forms.get("billing").name());
+        Assert.assertEquals("Multi-form entry not registered", "shipping", forms.get("shipping").name());
+        Assert.assertFalse("Multi-form envelope registered", forms.containsKey("forms"));
+        Assert.assertFalse("Default name registered", forms.containsKey("form"));
+        Assert.assertEquals("Default-named form not registered by class", UploadAction.class.getAnnotation(Form.class), forms.get(TestUploadForm.class.getName()));
+        Assert.assertEquals("Default-named form not registered by class", BuiltAction.class.getAnnotation(Form.class), forms.get(TestBuiltForm.class.getName()));
+    }
+
+    private HttpServletRequest newRequest(String name, String ifNoneMatch) {
+        ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+        EasyMock.expect(context.getAttribute(ValidationManifestAction.FORMS))
+                .andReturn(Collections.singletonMap("constrained", ConstrainedAction.class.getAnnotation(Form.class))).anyTimes();
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getServletContext()).andReturn(context).anyTimes();
+        EasyMock.expect(request.getParameter(ValidationManifestAction.FORM)).andReturn(name).anyTimes();
+        EasyMock.expect(request.getHeader("If-None-Match")).andReturn(ifNoneMatch).anyTimes();
+        EasyMock.expect(request.getLocale()).andReturn(Locale.US).anyTimes();
+        EasyMock.replay(context, request);
+        return request;
+    }
+
+    @Form(name = "constrained", formClass = ValidationPlanTest.ConstrainedForm.class,
+            binders = {@FormBinder(property = "tags", editorClass = CommaDelimitedStringArrayEditor.class)})
+    private abstract static class ConstrainedAction extends AsynchronousFormAction {
+        // declares the form served
+    }
+
+    @Forms({@Form(name = "billing", prefix = "billing.", formClass = TestForm.class), @Form(name = "shipping", prefix = "shipping.", formClass = TestForm.class)})
+    private abstract static class MultiAction extends AbstractMultiFormAction {
+        // declares the forms served
+    }
+
+    @Form(formClass = TestUploadForm.class)
+    private abstract static class UploadAction extends AbstractSimpleFormAction {
+        // declares a form with the default name
+    }
+
+    @Form(formClass = TestBuiltForm.class)
+    private abstract static class BuiltAction extends AbstractSimpleFormAction {
+        // declares another form with the default name
+    }
+}
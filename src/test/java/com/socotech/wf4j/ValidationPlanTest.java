@@ -0,0 +1,153 @@
+package com.socotech.wf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.common.base.Strings;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ValidationPlanTest {
+    @Test
+    public void testConstraints() throws Exception {
+        ConstrainedForm form = new ConstrainedForm();
+        form.setName(" ");
+        form.setCode("AB-12");
+        form.setEmail("marc@");
+        form.setAge(150);
+        form.setNickname("x");
+        FormErrors errors = new FormErrors();
+        ValidationPlan.of(ConstrainedForm.class).validate(form, errors);
+        Assert.assertEquals("Wrong error", "Required", errors.get("name"));
+        Assert.assertEquals("Wrong error", "Use letters and digits", errors.get("code"));
+        Assert.assertEquals("Wrong error", "Invalid email address", errors.get("email"));
+        Assert.assertEquals("Wrong error", "Must be between 0 and 120", errors.get("age"));
+        Assert.assertEquals("Wrong error", "Must be between 2 and 16 characters", errors.get("nickname"));
+        Assert.assertEquals("Wrong error", "Required", errors.get("tags"));
+        Assert.assertEquals("Wrong number of errors", 6, errors.size());
+    }
+
+    @Test
+    public void testValidForm() throws Exception {
+        ConstrainedForm form = new ConstrainedForm();
+        form.setName("Marc");
+        form.setCode("AB12");
+        form.setEmail("marc@example.com");
+        form.setAge(42);
+        form.setTags(Collections.singletonList("tag"));
+        FormErrors errors = new FormErrors();
+        ValidationPlan.of(ConstrainedForm.class).validate(form, errors);
+        Assert.assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+    }
+
+    @Test
+    public void testExistingErrorKept() throws Exception {
+        FormErrors errors = new FormErrors();
+        errors.put("age", "Not a number");
+        ValidationPlan.of(ConstrainedForm.class).validate(new ConstrainedForm(), errors, Collections.singleton("age"));
+        Assert.assertEquals("Binding error overwritten", "Not a number", errors.get("age"));
+        Assert.assertEquals("Constraint outside properties checked", 1, errors.size());
+    }
+
+    @Test
+    public void testExistingErrorKeptFirst() throws Exception {
+        ConstrainedForm form = new ConstrainedForm();
+        form.setName("Marc");
+        form.setAge(-1);
+        form.setTags(Collections.singletonList("tag"));
+        FormErrors errors = new FormErrors();
+        errors.put("age", "Not a number");
+        Assert.assertFalse("Field with an error checked", ValidationPlan.of(ConstrainedForm.class).validateFirst(form, errors, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        Assert.assertEquals("Binding error overwritten", "Not a number", errors.get("age"));
+    }
+
+    @Test
+    public void testLengthArguments() throws Exception {
+        TextForm form = new TextForm();
+        form.setText(Strings.repeat("x", 1001));
+        FormErrors errors = new FormErrors();
+        errors.setLocale(Locale.US);
+        ValidationPlan.of(TextForm.class).validate(form, errors);
+        Assert.assertEquals("Length not substituted as is", "Must be at most 1000 characters", errors.get("text"));
+    }
+
+    public static class TextForm {
+        @Length(max = 1000)
+        private String text;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+
+    public static class ConstrainedForm {
+        @Required
+        private String name;
+        @Matches(value = "[A-Z0-9]+", message = "Use letters and digits")
+        private String code;
+        @Email
+        private String email;
+        @Range(min = 0, max = 120)
+        private Integer age;
+        @Length(min = 2, max = 16)
+        private String nickname;
+        @Required
+        private List<String> tags;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+        public Integer getAge() {
+            return age;
+        }
+
+        public void setAge(Integer age) {
+            this.age = age;
+        }
+
+        public String getNickname() {
+            return nickname;
+        }
+
+        public void setNickname(String nickname) {
+            this.nickname = nickname;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+}